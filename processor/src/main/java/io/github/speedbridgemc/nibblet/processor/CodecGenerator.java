@@ -0,0 +1,652 @@
+package io.github.speedbridgemc.nibblet.processor;
+
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates the source of the codec for a single type.
+ */
+final class CodecGenerator {
+    private final Elements elements;
+    private final Messager messager;
+    private final TypeElement type;
+    private final boolean record;
+    private final String packageName;
+    private final String simpleCodecName;
+    private final String typeName;
+    private final List<Property> properties = new ArrayList<>();
+    // list and map values are (de)serialized by helper methods, one per distinct type
+    private final Map<String, ValueType> helperTypes = new HashMap<>();
+    private final StringBuilder helpers = new StringBuilder();
+
+    CodecGenerator(ProcessingEnvironment processingEnv, TypeElement type) {
+        elements = processingEnv.getElementUtils();
+        messager = processingEnv.getMessager();
+        this.type = type;
+        // ElementKind.RECORD doesn't exist before Java 16
+        record = type.getKind().name().equals("RECORD");
+        packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        simpleCodecName = codecSimpleName(type);
+        typeName = type.getQualifiedName().toString();
+    }
+
+    String codecName() {
+        return packageName.isEmpty() ? simpleCodecName : packageName + "." + simpleCodecName;
+    }
+
+    private static String codecSimpleName(TypeElement type) {
+        StringBuilder sb = new StringBuilder(type.getSimpleName());
+        for (Element e = type.getEnclosingElement(); !(e instanceof PackageElement); e = e.getEnclosingElement())
+            sb.insert(0, '_').insert(0, e.getSimpleName());
+        return sb.append("NbtCodec").toString();
+    }
+
+    private static boolean isSerializable(Element element) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(NbtCodecProcessor.SERIALIZABLE))
+                return true;
+        }
+        return false;
+    }
+
+    private static String entryName(VariableElement field) {
+        for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            if (!((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(NbtCodecProcessor.NAME))
+                continue;
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("value"))
+                    return (String) entry.getValue().getValue();
+            }
+        }
+        return field.getSimpleName().toString();
+    }
+
+    /**
+     * Generates the codec's source.<p>
+     * Problems with the type itself are thrown, while problems with its fields are all reported before giving up.
+     * @return source, or {@code null} if there were problems with the fields
+     */
+    String generate() throws UnsupportedTypeException {
+        if (type.getKind() != ElementKind.CLASS && !record)
+            throw new UnsupportedTypeException("@NbtSerializable can only be used on classes and records", type);
+        if (type.getModifiers().contains(Modifier.ABSTRACT))
+            throw new UnsupportedTypeException("@NbtSerializable classes can't be abstract", type);
+        if (type.getModifiers().contains(Modifier.PRIVATE))
+            throw new UnsupportedTypeException("@NbtSerializable types can't be private", type);
+        if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC) && !record)
+            throw new UnsupportedTypeException("Nested @NbtSerializable classes must be static", type);
+        if (!type.getTypeParameters().isEmpty())
+            throw new UnsupportedTypeException("@NbtSerializable types can't be generic", type);
+        if (!record)
+            checkConstructor();
+
+        boolean failed = false;
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.TRANSIENT))
+                continue;
+            try {
+                properties.add(property(field));
+            } catch (UnsupportedTypeException e) {
+                messager.printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+                failed = true;
+            }
+        }
+        if (failed)
+            return null;
+
+        StringBuilder sb = new StringBuilder();
+        if (!packageName.isEmpty())
+            sb.append("package ").append(packageName).append(";\n\n");
+        sb.append("import io.github.speedbridgemc.nibblet.NbtType;\n");
+        sb.append("import io.github.speedbridgemc.nibblet.codec.NbtCodec;\n");
+        sb.append("import io.github.speedbridgemc.nibblet.stream.NbtKey;\n");
+        sb.append("import io.github.speedbridgemc.nibblet.stream.NbtKeySet;\n");
+        sb.append("import io.github.speedbridgemc.nibblet.stream.NbtReader;\n");
+        sb.append("import io.github.speedbridgemc.nibblet.stream.NbtWriter;\n\n");
+        sb.append("import java.io.IOException;\n\n");
+        sb.append("/**\n * {@link NbtCodec} for {@link ").append(typeName).append("}. Generated by nibblet-processor, do not edit.\n */\n");
+        if (type.getModifiers().contains(Modifier.PUBLIC))
+            sb.append("public ");
+        sb.append("final class ").append(simpleCodecName).append(" implements NbtCodec<").append(typeName).append("> {\n");
+        sb.append("    public static final ").append(simpleCodecName).append(" INSTANCE = new ").append(simpleCodecName).append("();\n\n");
+        sb.append("    private static final NbtKey[] KEYS = {\n");
+        for (Property property : properties)
+            sb.append("            NbtKey.of(").append(elements.getConstantExpression(property.name)).append("),\n");
+        sb.append("    };\n");
+        sb.append("    private static final NbtKeySet KEY_SET = NbtKeySet.of(KEYS);\n\n");
+        sb.append("    private ").append(simpleCodecName).append("() { }\n\n");
+        generateWrite(sb);
+        sb.append('\n');
+        generateRead(sb);
+        sb.append(helpers);
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private void checkConstructor() throws UnsupportedTypeException {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE))
+                return;
+        }
+        throw new UnsupportedTypeException("@NbtSerializable classes need a non-private no-arg constructor", type);
+    }
+
+    private void generateWrite(StringBuilder sb) {
+        sb.append("    @Override\n");
+        sb.append("    public void writeEntries(NbtWriter writer, ").append(typeName).append(" value) throws IOException {\n");
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            String local = "p" + i;
+            if (property.presence == Presence.ALWAYS) {
+                sb.append("        writer.name(KEYS[").append(i).append("]);\n");
+                sb.append("        ").append(property.valueType.write(property.getter)).append(";\n");
+                continue;
+            }
+            sb.append("        ").append(property.javaType).append(' ').append(local).append(" = ").append(property.getter).append(";\n");
+            sb.append("        if (").append(local).append(" != null");
+            String value;
+            switch (property.presence) {
+            case OPTIONAL:
+                sb.append(" && ").append(local).append(".isPresent()");
+                value = local + ".get()";
+                break;
+            case OPTIONAL_INT:
+                sb.append(" && ").append(local).append(".isPresent()");
+                value = local + ".getAsInt()";
+                break;
+            case OPTIONAL_LONG:
+                sb.append(" && ").append(local).append(".isPresent()");
+                value = local + ".getAsLong()";
+                break;
+            case OPTIONAL_DOUBLE:
+                sb.append(" && ").append(local).append(".isPresent()");
+                value = local + ".getAsDouble()";
+                break;
+            default:
+                value = local;
+                break;
+            }
+            sb.append(") {\n");
+            sb.append("            writer.name(KEYS[").append(i).append("]);\n");
+            sb.append("            ").append(property.valueType.write(value)).append(";\n");
+            sb.append("        }\n");
+        }
+        sb.append("    }\n");
+    }
+
+    private void generateRead(StringBuilder sb) {
+        sb.append("    @Override\n");
+        sb.append("    public ").append(typeName).append(" readEntries(NbtReader reader) throws IOException {\n");
+        if (record) {
+            for (int i = 0; i < properties.size(); i++) {
+                Property property = properties.get(i);
+                sb.append("        ").append(property.javaType).append(" p").append(i).append(" = ").append(property.defaultValue()).append(";\n");
+            }
+        } else
+            sb.append("        ").append(typeName).append(" value = new ").append(typeName).append("();\n");
+        sb.append("        NbtType type;\n");
+        sb.append("        while ((type = reader.nextType()) != NbtType.END) {\n");
+        sb.append("            switch (reader.nextNameMatches(KEY_SET)) {\n");
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            ValueType valueType = property.valueType;
+            sb.append("            case ").append(i).append(":\n");
+            // entries of some other type are skipped like unknown ones, so data saved with an older type still loads
+            sb.append("                if (type != NbtType.").append(valueType.nbtType).append(") {\n");
+            sb.append("                    reader.skipValue();\n");
+            sb.append("                    break;\n");
+            sb.append("                }\n");
+            if (valueType.mayMismatch) {
+                String local = "v" + i;
+                sb.append("                ").append(valueType.javaType).append(' ').append(local).append(" = ").append(valueType.read()).append(";\n");
+                sb.append("                if (").append(local).append(" != null)\n");
+                sb.append("    ").append(assignment(i, property, property.wrap(local)));
+            } else
+                sb.append(assignment(i, property, property.wrap(valueType.read())));
+            sb.append("                break;\n");
+        }
+        sb.append("            default:\n");
+        sb.append("                reader.skipValue();\n");
+        sb.append("                break;\n");
+        sb.append("            }\n");
+        sb.append("        }\n");
+        if (record) {
+            sb.append("        return new ").append(typeName).append('(');
+            for (int i = 0; i < properties.size(); i++) {
+                if (i > 0)
+                    sb.append(", ");
+                sb.append('p').append(i);
+            }
+            sb.append(");\n");
+        } else
+            sb.append("        return value;\n");
+        sb.append("    }\n");
+    }
+
+    // statement that sets a property to a value, indented for a switch case
+    private String assignment(int i, Property property, String value) {
+        if (record)
+            return "                p" + i + " = " + value + ";\n";
+        else if (property.setter.endsWith("="))
+            return "                " + property.setter + ' ' + value + ";\n";
+        else
+            return "                " + property.setter + '(' + value + ");\n";
+    }
+
+    // whether a property is always written, or only if it's non-null/present
+    private enum Presence {
+        ALWAYS, NULLABLE, OPTIONAL, OPTIONAL_INT, OPTIONAL_LONG, OPTIONAL_DOUBLE
+    }
+
+    private static final class Property {
+        final String name;
+        final String javaType;
+        final Presence presence;
+        final ValueType valueType;
+        // expression that gets the value from "value"
+        final String getter;
+        // either an assignment target ending with "=", or a setter method to call (unused for records)
+        final String setter;
+
+        Property(String name, String javaType, Presence presence, ValueType valueType, String getter, String setter) {
+            this.name = name;
+            this.javaType = javaType;
+            this.presence = presence;
+            this.valueType = valueType;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        // expression that wraps a value that was read in the property's optional type, if any
+        String wrap(String value) {
+            switch (presence) {
+            case OPTIONAL:
+                return "java.util.Optional.of(" + value + ")";
+            case OPTIONAL_INT:
+                return "java.util.OptionalInt.of(" + value + ")";
+            case OPTIONAL_LONG:
+                return "java.util.OptionalLong.of(" + value + ")";
+            case OPTIONAL_DOUBLE:
+                return "java.util.OptionalDouble.of(" + value + ")";
+            default:
+                return value;
+            }
+        }
+
+        String defaultValue() {
+            switch (presence) {
+            case ALWAYS:
+                switch (javaType) {
+                case "boolean":
+                    return "false";
+                case "float":
+                    return "0.0F";
+                case "double":
+                    return "0.0";
+                case "long":
+                    return "0L";
+                default:
+                    return "(" + javaType + ") 0";
+                }
+            case OPTIONAL:
+                return "java.util.Optional.empty()";
+            case OPTIONAL_INT:
+                return "java.util.OptionalInt.empty()";
+            case OPTIONAL_LONG:
+                return "java.util.OptionalLong.empty()";
+            case OPTIONAL_DOUBLE:
+                return "java.util.OptionalDouble.empty()";
+            default:
+                return "null";
+            }
+        }
+    }
+
+    private Property property(VariableElement field) throws UnsupportedTypeException {
+        String fieldName = field.getSimpleName().toString();
+        TypeMirror fieldType = field.asType();
+        Presence presence;
+        ValueType valueType;
+        if (fieldType.getKind().isPrimitive()) {
+            presence = Presence.ALWAYS;
+            valueType = valueType(fieldType, field);
+        } else {
+            String erasure = fieldType.getKind() == TypeKind.DECLARED
+                    ? ((TypeElement) ((DeclaredType) fieldType).asElement()).getQualifiedName().toString() : "";
+            switch (erasure) {
+            case "java.util.Optional": {
+                List<? extends TypeMirror> args = ((DeclaredType) fieldType).getTypeArguments();
+                if (args.size() != 1)
+                    throw new UnsupportedTypeException("Raw Optionals aren't supported", field);
+                presence = Presence.OPTIONAL;
+                valueType = valueType(args.get(0), field);
+                break;
+            }
+            case "java.util.OptionalInt":
+                presence = Presence.OPTIONAL_INT;
+                valueType = ValueType.scalar("int", "INT", "intValue", "nextInt");
+                break;
+            case "java.util.OptionalLong":
+                presence = Presence.OPTIONAL_LONG;
+                valueType = ValueType.scalar("long", "LONG", "longValue", "nextLong");
+                break;
+            case "java.util.OptionalDouble":
+                presence = Presence.OPTIONAL_DOUBLE;
+                valueType = ValueType.scalar("double", "DOUBLE", "doubleValue", "nextDouble");
+                break;
+            default:
+                presence = Presence.NULLABLE;
+                valueType = valueType(fieldType, field);
+                break;
+            }
+        }
+        String javaType = presence == Presence.ALWAYS || presence == Presence.NULLABLE ? valueType.javaType : sourceName(fieldType, field);
+
+        String getter, setter;
+        if (record) {
+            getter = "value." + fieldName + "()";
+            setter = null;
+        } else if (!field.getModifiers().contains(Modifier.PRIVATE)) {
+            if (field.getModifiers().contains(Modifier.FINAL))
+                throw new UnsupportedTypeException("Final fields of @NbtSerializable classes can't be set - make them non-final, or transient to skip them", field);
+            getter = "value." + fieldName;
+            setter = "value." + fieldName + " =";
+        } else {
+            String capitalized = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+            ExecutableElement getterMethod = accessor("get" + capitalized, 0);
+            if (getterMethod == null && fieldType.getKind() == TypeKind.BOOLEAN)
+                getterMethod = accessor("is" + capitalized, 0);
+            ExecutableElement setterMethod = accessor("set" + capitalized, 1);
+            if (getterMethod == null || setterMethod == null)
+                throw new UnsupportedTypeException("Private fields of @NbtSerializable classes need a non-private getter and setter"
+                        + " - or make them transient to skip them", field);
+            getter = "value." + getterMethod.getSimpleName() + "()";
+            setter = "value." + setterMethod.getSimpleName();
+        }
+        return new Property(entryName(field), javaType, presence, valueType, getter, setter);
+    }
+
+    private ExecutableElement accessor(String name, int parameters) {
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == parameters
+                    && !method.getModifiers().contains(Modifier.PRIVATE) && !method.getModifiers().contains(Modifier.STATIC))
+                return method;
+        }
+        return null;
+    }
+
+    // builds the source form of a type ourselves, since TypeMirror.toString() includes type annotations
+    private String sourceName(TypeMirror type, Element element) throws UnsupportedTypeException {
+        switch (type.getKind()) {
+        case BOOLEAN:
+        case BYTE:
+        case SHORT:
+        case INT:
+        case LONG:
+        case FLOAT:
+        case DOUBLE:
+            return type.getKind().name().toLowerCase(java.util.Locale.ROOT);
+        case ARRAY:
+            return sourceName(((ArrayType) type).getComponentType(), element) + "[]";
+        case DECLARED: {
+            DeclaredType declaredType = (DeclaredType) type;
+            StringBuilder sb = new StringBuilder(((TypeElement) declaredType.asElement()).getQualifiedName());
+            List<? extends TypeMirror> args = declaredType.getTypeArguments();
+            if (!args.isEmpty()) {
+                sb.append('<');
+                for (int i = 0; i < args.size(); i++) {
+                    if (i > 0)
+                        sb.append(", ");
+                    sb.append(sourceName(args.get(i), element));
+                }
+                sb.append('>');
+            }
+            return sb.toString();
+        }
+        default:
+            throw new UnsupportedTypeException("Unsupported type " + type, element);
+        }
+    }
+
+    private ValueType valueType(TypeMirror type, Element element) throws UnsupportedTypeException {
+        switch (type.getKind()) {
+        case BOOLEAN:
+            return ValueType.scalar("boolean", "BYTE", "booleanValue", "nextBoolean");
+        case BYTE:
+            return ValueType.scalar("byte", "BYTE", "byteValue", "nextByte");
+        case SHORT:
+            return ValueType.scalar("short", "SHORT", "shortValue", "nextShort");
+        case INT:
+            return ValueType.scalar("int", "INT", "intValue", "nextInt");
+        case LONG:
+            return ValueType.scalar("long", "LONG", "longValue", "nextLong");
+        case FLOAT:
+            return ValueType.scalar("float", "FLOAT", "floatValue", "nextFloat");
+        case DOUBLE:
+            return ValueType.scalar("double", "DOUBLE", "doubleValue", "nextDouble");
+        case ARRAY:
+            switch (((ArrayType) type).getComponentType().getKind()) {
+            case BYTE:
+                return ValueType.scalar("byte[]", "BYTE_ARRAY", "byteArray", "nextByteArray");
+            case INT:
+                return ValueType.scalar("int[]", "INT_ARRAY", "intArray", "nextIntArray");
+            case LONG:
+                return ValueType.scalar("long[]", "LONG_ARRAY", "longArray", "nextLongArray");
+            default:
+                throw new UnsupportedTypeException("Only byte[], int[] and long[] arrays are supported, got " + type, element);
+            }
+        case DECLARED:
+            break;
+        default:
+            throw new UnsupportedTypeException("Unsupported type " + type, element);
+        }
+
+        DeclaredType declaredType = (DeclaredType) type;
+        TypeElement typeElement = (TypeElement) declaredType.asElement();
+        List<? extends TypeMirror> args = declaredType.getTypeArguments();
+        switch (typeElement.getQualifiedName().toString()) {
+        case "java.lang.Boolean":
+            return ValueType.scalar("java.lang.Boolean", "BYTE", "booleanValue", "nextBoolean");
+        case "java.lang.Byte":
+            return ValueType.scalar("java.lang.Byte", "BYTE", "byteValue", "nextByte");
+        case "java.lang.Short":
+            return ValueType.scalar("java.lang.Short", "SHORT", "shortValue", "nextShort");
+        case "java.lang.Integer":
+            return ValueType.scalar("java.lang.Integer", "INT", "intValue", "nextInt");
+        case "java.lang.Long":
+            return ValueType.scalar("java.lang.Long", "LONG", "longValue", "nextLong");
+        case "java.lang.Float":
+            return ValueType.scalar("java.lang.Float", "FLOAT", "floatValue", "nextFloat");
+        case "java.lang.Double":
+            return ValueType.scalar("java.lang.Double", "DOUBLE", "doubleValue", "nextDouble");
+        case "java.lang.String":
+            return ValueType.scalar("java.lang.String", "STRING", "stringValue", "nextString");
+        case "java.util.List":
+            if (args.size() != 1)
+                throw new UnsupportedTypeException("Raw Lists aren't supported", element);
+            return listType(sourceName(type, element), valueType(args.get(0), element));
+        case "java.util.Map":
+            if (args.size() != 2)
+                throw new UnsupportedTypeException("Raw Maps aren't supported", element);
+            if (args.get(0).getKind() != TypeKind.DECLARED
+                    || !((TypeElement) ((DeclaredType) args.get(0)).asElement()).getQualifiedName().contentEquals("java.lang.String"))
+                throw new UnsupportedTypeException("Only Maps with String keys are supported, got " + type, element);
+            return mapType(sourceName(type, element), valueType(args.get(1), element));
+        default:
+            if (!isSerializable(typeElement))
+                throw new UnsupportedTypeException("Unsupported type " + type + " - only types annotated with @NbtSerializable can be nested", element);
+            String codec = codecSimpleName(typeElement);
+            String codecPackage = elements.getPackageOf(typeElement).getQualifiedName().toString();
+            if (!codecPackage.isEmpty())
+                codec = codecPackage + "." + codec;
+            return ValueType.codec(sourceName(type, element), codec);
+        }
+    }
+
+    private ValueType listType(String javaType, ValueType itemType) {
+        ValueType helperType = helperTypes.get(javaType);
+        if (helperType != null)
+            return helperType;
+        int index = helperTypes.size();
+        helperType = ValueType.helper(javaType, "LIST", index, true);
+        helperTypes.put(javaType, helperType);
+
+        helpers.append('\n');
+        helpers.append("    private static void write").append(index).append("(NbtWriter writer, ").append(javaType).append(" value) throws IOException {\n");
+        helpers.append("        writer.beginList(NbtType.").append(itemType.nbtType).append(", value.size());\n");
+        helpers.append("        for (").append(itemType.javaType).append(" item : value)\n");
+        helpers.append("            ").append(itemType.write("item")).append(";\n");
+        helpers.append("        writer.endList();\n");
+        helpers.append("    }\n\n");
+        helpers.append("    private static ").append(javaType).append(" read").append(index).append("(NbtReader reader) throws IOException {\n");
+        helpers.append("        reader.beginList();\n");
+        // lists of some other item type are skipped, like entries of some other type - empty lists may not have one
+        helpers.append("        if (reader.listItemType() != NbtType.").append(itemType.nbtType).append(" && reader.listSize() > 0) {\n");
+        helpers.append("            reader.skipRemainingItems();\n");
+        helpers.append("            reader.endList();\n");
+        helpers.append("            return null;\n");
+        helpers.append("        }\n");
+        helpers.append("        java.util.ArrayList<").append(boxed(itemType.javaType)).append("> value = new java.util.ArrayList<>(reader.listSize());\n");
+        if (itemType.mayMismatch) {
+            helpers.append("        while (reader.listHasNext()) {\n");
+            helpers.append("            ").append(itemType.javaType).append(" item = ").append(itemType.read()).append(";\n");
+            helpers.append("            if (item != null)\n");
+            helpers.append("                value.add(item);\n");
+            helpers.append("        }\n");
+        } else {
+            helpers.append("        while (reader.listHasNext())\n");
+            helpers.append("            value.add(").append(itemType.read()).append(");\n");
+        }
+        helpers.append("        reader.endList();\n");
+        helpers.append("        return value;\n");
+        helpers.append("    }\n");
+        return helperType;
+    }
+
+    private ValueType mapType(String javaType, ValueType valueType) {
+        ValueType helperType = helperTypes.get(javaType);
+        if (helperType != null)
+            return helperType;
+        int index = helperTypes.size();
+        helperType = ValueType.helper(javaType, "OBJECT", index, false);
+        helperTypes.put(javaType, helperType);
+
+        String boxedValueType = boxed(valueType.javaType);
+        helpers.append('\n');
+        helpers.append("    private static void write").append(index).append("(NbtWriter writer, ").append(javaType).append(" value) throws IOException {\n");
+        helpers.append("        writer.beginObject();\n");
+        helpers.append("        for (java.util.Map.Entry<java.lang.String, ").append(boxedValueType).append("> entry : value.entrySet()) {\n");
+        helpers.append("            writer.name(entry.getKey());\n");
+        helpers.append("            ").append(valueType.write("entry.getValue()")).append(";\n");
+        helpers.append("        }\n");
+        helpers.append("        writer.endObject();\n");
+        helpers.append("    }\n\n");
+        helpers.append("    private static ").append(javaType).append(" read").append(index).append("(NbtReader reader) throws IOException {\n");
+        helpers.append("        reader.beginObject();\n");
+        helpers.append("        java.util.LinkedHashMap<java.lang.String, ").append(boxedValueType).append("> value = new java.util.LinkedHashMap<>();\n");
+        helpers.append("        NbtType type;\n");
+        helpers.append("        while ((type = reader.nextType()) != NbtType.END) {\n");
+        helpers.append("            java.lang.String name = reader.nextName();\n");
+        helpers.append("            if (type != NbtType.").append(valueType.nbtType).append(") {\n");
+        helpers.append("                reader.skipValue();\n");
+        helpers.append("                continue;\n");
+        helpers.append("            }\n");
+        if (valueType.mayMismatch) {
+            helpers.append("            ").append(valueType.javaType).append(" item = ").append(valueType.read()).append(";\n");
+            helpers.append("            if (item != null)\n");
+            helpers.append("                value.put(name, item);\n");
+        } else
+            helpers.append("            value.put(name, ").append(valueType.read()).append(");\n");
+        helpers.append("        }\n");
+        helpers.append("        reader.endObject();\n");
+        helpers.append("        return value;\n");
+        helpers.append("    }\n");
+        return helperType;
+    }
+
+    // value types of lists and maps are always declared types, so this only sees boxed types - but be safe anyway
+    private static String boxed(String javaType) {
+        switch (javaType) {
+        case "boolean":
+            return "java.lang.Boolean";
+        case "byte":
+            return "java.lang.Byte";
+        case "short":
+            return "java.lang.Short";
+        case "int":
+            return "java.lang.Integer";
+        case "long":
+            return "java.lang.Long";
+        case "float":
+            return "java.lang.Float";
+        case "double":
+            return "java.lang.Double";
+        default:
+            return javaType;
+        }
+    }
+
+    /**
+     * How a value of some Java type is written and read, given that its name (if any) was already handled.
+     */
+    private static final class ValueType {
+        final String javaType;
+        // NbtType constant
+        final String nbtType;
+        // whether reading gives null instead of a value, for lists of some other item type
+        final boolean mayMismatch;
+        private final String writePrefix, writeSuffix, read;
+
+        private ValueType(String javaType, String nbtType, boolean mayMismatch, String writePrefix, String writeSuffix, String read) {
+            this.javaType = javaType;
+            this.nbtType = nbtType;
+            this.mayMismatch = mayMismatch;
+            this.writePrefix = writePrefix;
+            this.writeSuffix = writeSuffix;
+            this.read = read;
+        }
+
+        static ValueType scalar(String javaType, String nbtType, String writeMethod, String readMethod) {
+            return new ValueType(javaType, nbtType, false, "writer." + writeMethod + "(", ")", "reader." + readMethod + "()");
+        }
+
+        static ValueType codec(String javaType, String codec) {
+            return new ValueType(javaType, "OBJECT", false, codec + ".INSTANCE.write(writer, ", ")", codec + ".INSTANCE.read(reader)");
+        }
+
+        static ValueType helper(String javaType, String nbtType, int index, boolean mayMismatch) {
+            return new ValueType(javaType, nbtType, mayMismatch, "write" + index + "(writer, ", ")", "read" + index + "(reader)");
+        }
+
+        // statement (without a semicolon) that writes the value of an expression
+        String write(String expr) {
+            return writePrefix + expr + writeSuffix;
+        }
+
+        // expression that reads a value
+        String read() {
+            return read;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.speedbridgemc.nibblet.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+/**
+ * Generates {@code NbtCodec}s for types annotated with {@code @NbtSerializable}.<p>
+ * The generated codecs call {@code NbtWriter}/{@code NbtReader} directly - they don't use reflection, and don't build
+ * {@code NbtObject}s. See {@code NbtSerializable} for what's supported.
+ */
+@SupportedAnnotationTypes({NbtCodecProcessor.SERIALIZABLE, NbtCodecProcessor.NAME})
+public final class NbtCodecProcessor extends AbstractProcessor {
+    static final String SERIALIZABLE = "io.github.speedbridgemc.nibblet.codec.NbtSerializable";
+    static final String NAME = "io.github.speedbridgemc.nibblet.codec.NbtName";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement serializable = processingEnv.getElementUtils().getTypeElement(SERIALIZABLE);
+        if (serializable == null)
+            return false;
+        for (Element element : roundEnv.getElementsAnnotatedWith(serializable)) {
+            try {
+                CodecGenerator generator = new CodecGenerator(processingEnv, (TypeElement) element);
+                String source = generator.generate();
+                if (source == null)
+                    continue;
+                JavaFileObject file = processingEnv.getFiler().createSourceFile(generator.codecName(), element);
+                try (Writer writer = file.openWriter()) {
+                    writer.write(source);
+                }
+            } catch (UnsupportedTypeException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write codec: " + e, element);
+            }
+        }
+        return true;
+    }
+}
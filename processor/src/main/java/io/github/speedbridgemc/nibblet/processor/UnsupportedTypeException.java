@@ -0,0 +1,18 @@
+package io.github.speedbridgemc.nibblet.processor;
+
+import javax.lang.model.element.Element;
+
+/**
+ * Thrown when a codec can't be generated for a type, and reported as a compilation error on the offending element.
+ */
+final class UnsupportedTypeException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    // only used while processing, so it's never serialized
+    final transient Element element;
+
+    UnsupportedTypeException(String message, Element element) {
+        super(message);
+        this.element = element;
+    }
+}
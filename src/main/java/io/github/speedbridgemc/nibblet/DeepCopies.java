@@ -0,0 +1,31 @@
+package io.github.speedbridgemc.nibblet;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Helpers shared by the copy-on-write deep copies of {@link NbtObject} and {@link NbtList}.
+ */
+final class DeepCopies {
+    private DeepCopies() { }
+
+    /**
+     * Checks if {@code deepCopy()} shares an element with the copy, instead of copying it right away.<p>
+     * Frozen elements can't change, so copying them is put off until they're accessed through the copy - every other
+     * element is either copied right away, or immutable (and its own deep copy) anyway.
+     * @param value value to check
+     * @return {@code true} if the value is a frozen element, {@code false} otherwise
+     */
+    static boolean isDeferred(@Nullable Object value) {
+        if (value instanceof NbtObject)
+            return ((NbtObject) value).isFrozen();
+        if (value instanceof NbtList)
+            return ((NbtList) value).isFrozen();
+        if (value instanceof NbtByteArray)
+            return ((NbtByteArray) value).isFrozen();
+        if (value instanceof NbtIntArray)
+            return ((NbtIntArray) value).isFrozen();
+        if (value instanceof NbtLongArray)
+            return ((NbtLongArray) value).isFrozen();
+        return false;
+    }
+}
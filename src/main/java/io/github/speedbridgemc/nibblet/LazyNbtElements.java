@@ -0,0 +1,50 @@
+package io.github.speedbridgemc.nibblet;
+
+import io.github.speedbridgemc.nibblet.stream.NbtReader;
+import io.github.speedbridgemc.nibblet.stream.NbtStreamHandler;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Helpers shared by {@link LazyNbtObject} and {@link LazyNbtList}.
+ */
+final class LazyNbtElements {
+    private LazyNbtElements() { }
+
+    static @NotNull NbtReader reader(@NotNull NbtStreamHandler streamHandler, @NotNull ByteBuffer data, int offset,
+                                     @NotNull NbtType type) throws IOException {
+        ByteBuffer buf = data.duplicate();
+        buf.position(offset);
+        NbtReader reader = new NbtReader(streamHandler, buf);
+        reader.setNameCache(NbtIO.nameCache());
+        reader.expectValue(type);
+        return reader;
+    }
+
+    static @NotNull NbtElement decode(@NotNull NbtStreamHandler streamHandler, @NotNull ByteBuffer data, int offset,
+                                      @NotNull NbtType type) throws IOException {
+        switch (type) {
+        case OBJECT:
+            return LazyNbtObject.read(streamHandler, data, offset);
+        case LIST:
+            return LazyNbtList.read(streamHandler, data, offset);
+        default:
+            try (NbtReader reader = reader(streamHandler, data, offset, type)) {
+                return NbtIO.readElement(reader, type).view();
+            }
+        }
+    }
+
+    // used by element getters, which can't throw IOException
+    static @NotNull NbtElement decodeUnchecked(@NotNull NbtStreamHandler streamHandler, @NotNull ByteBuffer data, int offset,
+                                               @NotNull NbtType type) {
+        try {
+            return decode(streamHandler, data, offset, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode lazily read " + type, e);
+        }
+    }
+}
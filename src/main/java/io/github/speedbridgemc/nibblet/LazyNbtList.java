@@ -0,0 +1,137 @@
+package io.github.speedbridgemc.nibblet;
+
+import io.github.speedbridgemc.nibblet.stream.NbtReader;
+import io.github.speedbridgemc.nibblet.stream.NbtStreamHandler;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An {@link NbtListView} that decodes its items from an encoded buffer on demand.<p>
+ * Only lists of strings, arrays, lists and objects are read lazily - lists of numbers are cheap enough to decode in
+ * bulk, so they're always read eagerly.
+ */
+final class LazyNbtList implements NbtListView, SizeCachingElement {
+    private final @NotNull NbtStreamHandler streamHandler;
+    private final @NotNull ByteBuffer data;
+    private final @NotNull NbtType itemType;
+    private final int @NotNull [] offsets;
+    private final @Nullable NbtElement @NotNull [] elements;
+    // starts out as the size of the encoded list, since that's known from reading it
+    private @Nullable CachedSize cachedSize;
+    // the values never change, so the hash code is computed once (0 until then)
+    private int hash;
+
+    private LazyNbtList(@NotNull NbtStreamHandler streamHandler, @NotNull ByteBuffer data,
+                        @NotNull NbtType itemType, int @NotNull [] offsets, int size) {
+        this.streamHandler = streamHandler;
+        this.data = data;
+        this.itemType = itemType;
+        this.offsets = offsets;
+        elements = new NbtElement[offsets.length];
+        cachedSize = new CachedSize(streamHandler, size);
+    }
+
+    static @NotNull NbtListView read(@NotNull NbtStreamHandler streamHandler, @NotNull ByteBuffer data, int offset)
+            throws IOException {
+        try (NbtReader reader = LazyNbtElements.reader(streamHandler, data, offset, NbtType.LIST)) {
+            reader.beginList();
+            NbtType itemType = reader.listItemType();
+            if (itemType.isNumber() || reader.listSize() == 0) {
+                NbtListView result = NbtIO.readList(reader).view();
+                reader.endList();
+                return result;
+            }
+            int[] offsets = new int[reader.listSize()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = offset + (int) reader.position();
+                reader.skipValue();
+            }
+            reader.endList();
+            return new LazyNbtList(streamHandler, data, itemType, offsets, (int) reader.position());
+        }
+    }
+
+    @Override
+    public @NotNull NbtType itemType() {
+        return itemType;
+    }
+
+    @Override
+    public int size() {
+        return offsets.length;
+    }
+
+    @Override
+    public @NotNull NbtElement get(int i) {
+        if (i < 0 || i >= offsets.length)
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + offsets.length);
+        NbtElement nbt = elements[i];
+        if (nbt == null)
+            elements[i] = nbt = LazyNbtElements.decodeUnchecked(streamHandler, data, offsets[i], itemType);
+        return nbt;
+    }
+
+    @Override
+    public @NotNull Iterator<@NotNull NbtElement> iterator() {
+        return new Iterator<NbtElement>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < offsets.length;
+            }
+
+            @Override
+            public NbtElement next() {
+                if (i >= offsets.length)
+                    throw new NoSuchElementException();
+                return get(i++);
+            }
+        };
+    }
+
+    @Override
+    public long cachedPayloadSize(@NotNull NbtStreamHandler streamHandler) {
+        return CachedSize.get(cachedSize, streamHandler);
+    }
+
+    @Override
+    public void cachePayloadSize(@NotNull NbtStreamHandler streamHandler, long size) {
+        cachedSize = new CachedSize(streamHandler, size);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this)
+            return true;
+        if (!(obj instanceof NbtListView))
+            return false;
+        NbtListView other = (NbtListView) obj;
+        if (size() != other.size() || itemType != other.itemType())
+            return false;
+        Iterator<NbtElement> it = other.iterator();
+        for (int i = 0; i < offsets.length; i++) {
+            if (!get(i).equals(it.next()))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            // same as NbtList's hash code (which hashes a list of its items)
+            int listHash = 1;
+            for (int i = 0; i < offsets.length; i++)
+                listHash = 31 * listHash + get(i).hashCode();
+            hash = h = 31 * (31 + NbtType.LIST.hashCode()) + listHash;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,223 @@
+package io.github.speedbridgemc.nibblet;
+
+import io.github.speedbridgemc.nibblet.stream.NbtReader;
+import io.github.speedbridgemc.nibblet.stream.NbtStreamHandler;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * An {@link NbtObjectView} that decodes its entries from an encoded buffer on demand.<p>
+ * The entries are indexed once, when the object is read, by skipping over their values. Each value is only decoded
+ * the first time it's accessed - nested objects and lists are lazy themselves.
+ */
+final class LazyNbtObject implements NbtObjectView, SizeCachingElement {
+    // objects with more entries than this get a hash index, smaller ones are scanned linearly
+    private static final int LINEAR_SCAN_THRESHOLD = 8;
+
+    private final @NotNull NbtStreamHandler streamHandler;
+    private final @NotNull ByteBuffer data;
+    private final @NotNull String @NotNull [] names;
+    private final @NotNull NbtType @NotNull [] types;
+    private final int @NotNull [] offsets;
+    private final @Nullable NbtElement @NotNull [] elements;
+    private final @Nullable HashMap<String, Integer> index;
+    // starts out as the size of the encoded object, since that's known from reading it (unless it had duplicate names)
+    private @Nullable CachedSize cachedSize;
+    // the values never change, so the hash code is computed once (0 until then)
+    private int hash;
+
+    private LazyNbtObject(@NotNull NbtStreamHandler streamHandler, @NotNull ByteBuffer data,
+                          @NotNull String @NotNull [] names, @NotNull NbtType @NotNull [] types, int @NotNull [] offsets,
+                          @Nullable HashMap<String, Integer> index, int size) {
+        this.streamHandler = streamHandler;
+        this.data = data;
+        this.names = names;
+        this.types = types;
+        this.offsets = offsets;
+        elements = new NbtElement[names.length];
+        this.index = index;
+        if (size >= 0)
+            cachedSize = new CachedSize(streamHandler, size);
+    }
+
+    static @NotNull LazyNbtObject read(@NotNull NbtStreamHandler streamHandler, @NotNull ByteBuffer data, int offset)
+            throws IOException {
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<NbtType> types = new ArrayList<>();
+        int[] offsets = new int[8];
+        HashMap<String, Integer> index = null;
+        boolean duplicates = false;
+        int size;
+        try (NbtReader reader = LazyNbtElements.reader(streamHandler, data, offset, NbtType.OBJECT)) {
+            reader.beginObject();
+            NbtType type = reader.nextType();
+            while (type != NbtType.END) {
+                String name = reader.nextName();
+                int valueOffset = offset + (int) reader.position();
+                // like NbtObject.put, a duplicate name keeps the position of the first entry, but gets the last value
+                int i = index != null ? index.getOrDefault(name, -1) : names.indexOf(name);
+                if (i >= 0) {
+                    types.set(i, type);
+                    offsets[i] = valueOffset;
+                    duplicates = true;
+                } else {
+                    i = names.size();
+                    names.add(name);
+                    types.add(type);
+                    if (offsets.length == i)
+                        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                    offsets[i] = valueOffset;
+                    if (index != null)
+                        index.put(name, i);
+                    else if (names.size() > LINEAR_SCAN_THRESHOLD) {
+                        index = new HashMap<>();
+                        for (int j = 0; j < names.size(); j++)
+                            index.put(names.get(j), j);
+                    }
+                }
+                reader.skipValue();
+                type = reader.nextType();
+            }
+            reader.endObject();
+            // the skipped duplicates aren't written back out, so the encoded size isn't this object's size
+            size = duplicates ? -1 : (int) reader.position();
+        }
+        return new LazyNbtObject(streamHandler, data,
+                names.toArray(new String[0]), types.toArray(new NbtType[0]), Arrays.copyOf(offsets, types.size()), index, size);
+    }
+
+    private int indexOf(@NotNull String name) {
+        if (index != null) {
+            Integer i = index.get(name);
+            return i == null ? -1 : i;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name))
+                return i;
+        }
+        return -1;
+    }
+
+    private @NotNull NbtElement element(int i) {
+        NbtElement nbt = elements[i];
+        if (nbt == null)
+            elements[i] = nbt = LazyNbtElements.decodeUnchecked(streamHandler, data, offsets[i], types[i]);
+        return nbt;
+    }
+
+    @Override
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return names.length == 0;
+    }
+
+    @Override
+    public @Nullable NbtElement get(@NotNull String name) {
+        int i = indexOf(name);
+        if (i < 0)
+            return null;
+        return element(i);
+    }
+
+    @Override
+    public boolean contains(@NotNull String name, @NotNull NbtType type) {
+        // doesn't need to decode the element
+        int i = indexOf(name);
+        return i >= 0 && types[i] == type;
+    }
+
+    @Override
+    public boolean containsNumber(@NotNull String name) {
+        int i = indexOf(name);
+        return i >= 0 && types[i].isNumber();
+    }
+
+    @Override
+    public boolean containsName(@NotNull String name) {
+        return indexOf(name) >= 0;
+    }
+
+    @Override
+    public boolean containsElement(@NotNull NbtElement element) {
+        for (int i = 0; i < names.length; i++) {
+            if (types[i] == element.type() && element(i).equals(element))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public @NotNull Iterable<@NotNull String> names() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    @Override
+    public @NotNull Iterable<@NotNull Entry> entries() {
+        return () -> new Iterator<Entry>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < names.length;
+            }
+
+            @Override
+            public Entry next() {
+                if (i >= names.length)
+                    throw new NoSuchElementException();
+                Entry entry = new Entry(names[i], element(i));
+                i++;
+                return entry;
+            }
+        };
+    }
+
+    @Override
+    public long cachedPayloadSize(@NotNull NbtStreamHandler streamHandler) {
+        return CachedSize.get(cachedSize, streamHandler);
+    }
+
+    @Override
+    public void cachePayloadSize(@NotNull NbtStreamHandler streamHandler, long size) {
+        cachedSize = new CachedSize(streamHandler, size);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof NbtObjectView))
+            return false;
+        NbtObjectView other = (NbtObjectView) obj;
+        if (size() != other.size())
+            return false;
+        for (int i = 0; i < names.length; i++) {
+            NbtElement otherElem = other.get(names[i]);
+            // check the type first, so mismatches don't need decoding
+            if (otherElem == null || otherElem.type() != types[i] || !element(i).equals(otherElem))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            // same as NbtObject's hash code (which hashes a map of its entries)
+            int mapHash = 0;
+            for (int i = 0; i < names.length; i++)
+                mapHash += names[i].hashCode() ^ element(i).hashCode();
+            hash = h = 31 * (31 + NbtType.OBJECT.hashCode()) + mapHash;
+        }
+        return h;
+    }
+}
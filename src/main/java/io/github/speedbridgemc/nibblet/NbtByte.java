@@ -2,9 +2,17 @@ package io.github.speedbridgemc.nibblet;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Objects;
-
+/**
+ * A byte element. Every possible value is cached, so {@link #of(byte)} never allocates.
+ */
 public final class NbtByte implements NbtNumber {
+    private static final NbtByte[] CACHE = new NbtByte[256];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++)
+            CACHE[i] = new NbtByte((byte) i);
+    }
+
     private final byte value;
 
     private NbtByte(byte value) {
@@ -12,7 +20,7 @@ public final class NbtByte implements NbtNumber {
     }
 
     public static @NotNull NbtByte of(byte value) {
-        return new NbtByte(value);
+        return CACHE[value & 0xFF];
     }
 
     public byte value() {
@@ -43,6 +51,7 @@ public final class NbtByte implements NbtNumber {
 
     @Override
     public int hashCode() {
-        return Objects.hash(NbtType.BYTE, value);
+        // same as Objects.hash(NbtType.BYTE, value), without boxing
+        return 31 * (31 + NbtType.BYTE.hashCode()) + Byte.hashCode(value);
     }
 }
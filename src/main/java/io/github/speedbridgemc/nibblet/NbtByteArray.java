@@ -1,34 +1,44 @@
 package io.github.speedbridgemc.nibblet;
 
+import io.github.speedbridgemc.nibblet.stream.NbtStreamHandler;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 
-public final class NbtByteArray implements NbtElement, NbtByteArrayView {
+public final class NbtByteArray implements NbtElement, SizeCachingElement, NbtByteArrayView {
     public static final class Builder {
-        private final ArrayList<Byte> backingList;
+        private byte[] values;
+        private int length;
 
         private Builder() {
-            backingList = new ArrayList<>();
+            this(PrimitiveArrays.DEFAULT_CAPACITY);
         }
 
         private Builder(int initialCapacity) {
-            backingList = new ArrayList<>(initialCapacity);
+            values = new byte[initialCapacity];
+        }
+
+        private void ensureCapacity(int minCapacity) {
+            if (minCapacity > values.length)
+                values = Arrays.copyOf(values, PrimitiveArrays.grow(values.length, minCapacity));
         }
 
         public @NotNull Builder add(byte value) {
-            backingList.add(value);
+            ensureCapacity(length + 1);
+            values[length++] = value;
             return this;
         }
 
         public @NotNull Builder add(byte @NotNull ... values) {
-            for (byte value : values)
-                backingList.add(value);
+            ensureCapacity(length + values.length);
+            System.arraycopy(values, 0, this.values, length, values.length);
+            length += values.length;
             return this;
         }
 
         public @NotNull NbtByteArray build() {
-            return new NbtByteArray(new ArrayList<>(backingList));
+            return new NbtByteArray(Arrays.copyOf(values, length), length);
         }
     }
 
@@ -40,51 +50,31 @@ public final class NbtByteArray implements NbtElement, NbtByteArrayView {
         return new Builder(initialCapacity);
     }
 
-    private final ArrayList<Byte> backingList;
-    private final List<Byte> backingListU;
-    private final NbtByteArrayView view;
-
-    private NbtByteArray(ArrayList<Byte> backingList) {
-        this.backingList = backingList;
-        backingListU = Collections.unmodifiableList(backingList);
-        view = new NbtByteArrayView() {
-            @Override
-            public int length() {
-                return NbtByteArray.this.length();
-            }
-
-            @Override
-            public byte get(int i) {
-                return NbtByteArray.this.get(i);
-            }
-
-            @Override
-            public @NotNull Iterator<@NotNull Byte> iterator() {
-                return NbtByteArray.this.iterator();
-            }
-
-            @Override
-            public boolean equals(Object obj) {
-                if (obj == this)
-                    return true;
-                if (!(obj instanceof NbtByteArrayView))
-                    return false;
-                return NbtByteArray.this.equals(obj);
-            }
-
-            @Override
-            public int hashCode() {
-                return NbtByteArray.this.hashCode();
-            }
-        };
+    private byte[] values;
+    private int length;
+    // the values are shared with copies of this array (or with the array this is a copy of), so they're copied before
+    // they're modified
+    private boolean shared;
+    // the values are an array passed to wrap(), which its caller may still change
+    private boolean wrapped;
+    private boolean frozen;
+    // the hash code of a frozen array, once it's been computed (0 until then)
+    private int hash;
+    // the payload size of a frozen array, once it's been computed
+    private @Nullable CachedSize cachedSize;
+    private @Nullable NbtByteArrayView view;
+
+    private NbtByteArray(byte @NotNull [] values, int length) {
+        this.values = values;
+        this.length = length;
     }
 
     private NbtByteArray() {
-        this(new ArrayList<>());
+        this(PrimitiveArrays.DEFAULT_CAPACITY);
     }
 
     private NbtByteArray(int initialCapacity) {
-        this(new ArrayList<>(initialCapacity));
+        this(new byte[initialCapacity], 0);
     }
 
     public static @NotNull NbtByteArray create() {
@@ -96,51 +86,167 @@ public final class NbtByteArray implements NbtElement, NbtByteArrayView {
     }
 
     public static @NotNull NbtByteArray copyOf(byte @NotNull ... values) {
-        ArrayList<Byte> backingList = new ArrayList<>(values.length);
-        for (byte value : values)
-            backingList.add(value);
-        return new NbtByteArray(backingList);
+        return new NbtByteArray(values.clone(), values.length);
+    }
+
+    /**
+     * Creates a byte array element that's backed by an existing array, without copying it.<p>
+     * Changes to the array are visible through the element and vice versa, until the element's length changes - at that
+     * point, the element may move its values to a new array.
+     * @param values values to wrap
+     * @return byte array element
+     */
+    public static @NotNull NbtByteArray wrap(byte @NotNull [] values) {
+        NbtByteArray array = new NbtByteArray(values, values.length);
+        array.wrapped = true;
+        return array;
+    }
+
+    /**
+     * Freezes this array, so that its values can't be modified anymore.<p>
+     * If this array {@linkplain #wrap(byte[]) wraps} an existing array, that array must not be modified after this.
+     * @return this array
+     */
+    @Override
+    public @NotNull NbtByteArray freeze() {
+        if (!frozen) {
+            if (length != values.length)
+                values = Arrays.copyOf(values, length);
+            frozen = true;
+        }
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkMutable() {
+        if (frozen)
+            throw new UnsupportedOperationException("Array is frozen");
+    }
+
+    // called before the values are modified, so that arrays sharing them aren't affected
+    private void unshare() {
+        if (shared) {
+            values = values.clone();
+            shared = false;
+        }
     }
 
     @Override
     public @NotNull NbtByteArrayView view() {
+        if (frozen)
+            return this;
+        NbtByteArrayView view = this.view;
+        if (view == null)
+            this.view = view = new View();
         return view;
     }
 
     @Override
     public int length() {
-        return backingList.size();
+        return length;
     }
 
     @Override
     public byte get(int i) {
-        return backingList.get(i);
+        PrimitiveArrays.checkIndex(i, length);
+        return values[i];
     }
 
     @Override
     public @NotNull Iterator<@NotNull Byte> iterator() {
-        return backingListU.iterator();
+        // there's no PrimitiveIterator for bytes, but boxing them doesn't allocate since every Byte is cached
+        return new Iterator<Byte>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < length;
+            }
+
+            @Override
+            public @NotNull Byte next() {
+                if (i >= length)
+                    throw new NoSuchElementException();
+                return values[i++];
+            }
+        };
+    }
+
+    @Override
+    public byte @NotNull [] toArray() {
+        return Arrays.copyOf(values, length);
+    }
+
+    @Override
+    public void copyInto(byte @NotNull [] dest, int offset) {
+        System.arraycopy(values, 0, dest, offset, length);
+    }
+
+    // the backing array, which may be longer than this element - only to be read from, up to length()
+    byte @NotNull [] backingArray() {
+        return values;
     }
 
     public byte set(int i, byte v) {
-        return backingList.set(i, v);
+        checkMutable();
+        PrimitiveArrays.checkIndex(i, length);
+        unshare();
+        byte old = values[i];
+        values[i] = v;
+        return old;
     }
 
     public boolean add(byte v) {
-        return backingList.add(v);
+        checkMutable();
+        if (length == values.length) {
+            values = Arrays.copyOf(values, PrimitiveArrays.grow(values.length, length + 1));
+            // the new array is this array's own
+            shared = false;
+            wrapped = false;
+        } else
+            unshare();
+        values[length++] = v;
+        return true;
     }
 
     public byte removeAt(int i) {
-        return backingList.remove(i);
+        checkMutable();
+        PrimitiveArrays.checkIndex(i, length);
+        unshare();
+        byte old = values[i];
+        System.arraycopy(values, i + 1, values, i, length - i - 1);
+        length--;
+        return old;
     }
 
     public boolean remove(byte v) {
-        return backingList.remove((Byte) v);
+        for (int i = 0; i < length; i++) {
+            if (values[i] == v) {
+                removeAt(i);
+                return true;
+            }
+        }
+        return false;
     }
 
+    /**
+     * Creates a copy of this array, which shares its values with this array until either of them is modified.
+     * @return copy of array
+     */
     @Override
     public @NotNull NbtByteArray copy() {
-        return new NbtByteArray(new ArrayList<>(backingList));
+        if (wrapped && !frozen)
+            // the wrapped array may still change, so the copy can't share it
+            return new NbtByteArray(toArray(), length);
+        NbtByteArray copy = new NbtByteArray(values, length);
+        copy.shared = true;
+        // frozen arrays are never modified (and may be read by other threads), so they're left alone
+        if (!frozen)
+            shared = true;
+        return copy;
     }
 
     @Override
@@ -149,19 +255,94 @@ public final class NbtByteArray implements NbtElement, NbtByteArrayView {
             return true;
         if (!(obj instanceof NbtByteArrayView))
             return false;
-        Iterator<Byte> e1 = iterator();
-        Iterator<Byte> e2 = ((NbtByteArrayView) obj).iterator();
-        while (e1.hasNext() && e2.hasNext()) {
-            byte o1 = e1.next();
-            byte o2 = e2.next();
-            if (o1 != o2)
+        if (obj instanceof NbtByteArray) {
+            NbtByteArray other = (NbtByteArray) obj;
+            if (other.length != length)
+                return false;
+            // both hash codes are cached once they're computed, so comparing them is cheap from then on
+            if (frozen && other.frozen && hashCode() != other.hashCode())
+                return false;
+            byte[] otherValues = other.values;
+            for (int i = 0; i < length; i++) {
+                if (values[i] != otherValues[i])
+                    return false;
+            }
+            return true;
+        }
+        NbtByteArrayView other = (NbtByteArrayView) obj;
+        if (other.length() != length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (values[i] != other.get(i))
                 return false;
         }
-        return !(e1.hasNext() || e2.hasNext());
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(NbtType.BYTE_ARRAY, backingList);
+        int h = hash;
+        if (h == 0) {
+            int arrayHash = 1;
+            for (int i = 0; i < length; i++)
+                arrayHash = 31 * arrayHash + values[i];
+            h = 31 * NbtType.BYTE_ARRAY.hashCode() + arrayHash;
+            if (frozen)
+                hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public long cachedPayloadSize(@NotNull NbtStreamHandler streamHandler) {
+        return frozen ? CachedSize.get(cachedSize, streamHandler) : -1;
+    }
+
+    @Override
+    public void cachePayloadSize(@NotNull NbtStreamHandler streamHandler, long size) {
+        // mutable elements may change size
+        if (frozen)
+            cachedSize = new CachedSize(streamHandler, size);
+    }
+
+    private final class View implements NbtByteArrayView {
+        @Override
+        public int length() {
+            return NbtByteArray.this.length();
+        }
+
+        @Override
+        public byte get(int i) {
+            return NbtByteArray.this.get(i);
+        }
+
+        @Override
+        public @NotNull Iterator<@NotNull Byte> iterator() {
+            return NbtByteArray.this.iterator();
+        }
+
+        @Override
+        public byte @NotNull [] toArray() {
+            return NbtByteArray.this.toArray();
+        }
+
+        @Override
+        public void copyInto(byte @NotNull [] dest, int offset) {
+            NbtByteArray.this.copyInto(dest, offset);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this)
+                return true;
+            if (!(obj instanceof NbtByteArrayView))
+                return false;
+            return NbtByteArray.this.equals(obj);
+        }
+
+        @Override
+        public int hashCode() {
+            return NbtByteArray.this.hashCode();
+        }
     }
 }
@@ -24,6 +24,20 @@ public interface NbtByteArrayView extends NbtElement, Iterable<@NotNull Byte> {
         return array;
     }
 
+    /**
+     * Copies this array's values into another array.
+     * @param dest array to copy to
+     * @param offset index in {@code dest} to copy the first value to
+     * @throws IndexOutOfBoundsException if {@code dest} is too short to hold every value from {@code offset}.
+     */
+    default void copyInto(byte @NotNull [] dest, int offset) {
+        int length = length();
+        if (offset < 0 || offset > dest.length - length)
+            throw new IndexOutOfBoundsException("Can't copy " + length + " values into array of length " + dest.length + " at offset " + offset);
+        for (int i = 0; i < length; i++)
+            dest[offset + i] = get(i);
+    }
+
     @Override
     default @NotNull NbtByteArrayView view() {
         return this;
@@ -33,4 +47,9 @@ public interface NbtByteArrayView extends NbtElement, Iterable<@NotNull Byte> {
     default @NotNull NbtByteArrayView copy() {
         return this;
     }
+
+    @Override
+    default @NotNull NbtByteArrayView freeze() {
+        return NbtByteArray.wrap(toArray()).freeze();
+    }
 }
@@ -2,8 +2,6 @@ package io.github.speedbridgemc.nibblet;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Objects;
-
 public final class NbtDouble implements NbtNumber {
     private final double value;
 
@@ -36,13 +34,15 @@ public final class NbtDouble implements NbtNumber {
 
     @Override
     public boolean equals(Object obj) {
+        // compared like Double.equals, so that 0.0 and -0.0 differ and NaN equals itself, consistent with hashCode
         if (obj instanceof NbtDouble)
-            return ((NbtDouble) obj).value == value;
+            return Double.doubleToLongBits(((NbtDouble) obj).value) == Double.doubleToLongBits(value);
         return false;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(NbtType.DOUBLE, value);
+        // same as Objects.hash(NbtType.DOUBLE, value), without boxing
+        return 31 * (31 + NbtType.DOUBLE.hashCode()) + Double.hashCode(value);
     }
 }
@@ -52,6 +52,21 @@ public interface NbtElement {
         return this;
     }
 
+    /**
+     * Gets a deeply immutable version of this NBT element - neither it nor any of its children can be modified.<p>
+     * Mutable elements are frozen in place (along with their children), and return themselves. Views of mutable
+     * elements can't freeze the elements behind them, so they return a frozen copy instead.<p>
+     * Frozen elements are their own {@linkplain #view() views}, and can be shared between threads without copying, as
+     * long as they're safely published (for example, through a {@code final} or {@code volatile} field).
+     *
+     * @implNote Implementations may simply return {@code this} if the NBT element is immutable.
+     *
+     * @return deeply immutable NBT element
+     */
+    default @NotNull NbtElement freeze() {
+        return this;
+    }
+
     /**
      * Checks if the specified object is equal to this NBT element.
      * @param obj object to check against
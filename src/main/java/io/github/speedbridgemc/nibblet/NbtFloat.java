@@ -2,8 +2,6 @@ package io.github.speedbridgemc.nibblet;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Objects;
-
 public final class NbtFloat implements NbtNumber {
     private final float value;
 
@@ -36,13 +34,15 @@ public final class NbtFloat implements NbtNumber {
 
     @Override
     public boolean equals(Object obj) {
+        // compared like Float.equals, so that 0.0 and -0.0 differ and NaN equals itself, consistent with hashCode
         if (obj instanceof NbtFloat)
-            return ((NbtFloat) obj).value == value;
+            return Float.floatToIntBits(((NbtFloat) obj).value) == Float.floatToIntBits(value);
         return false;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(NbtType.FLOAT, value);
+        // same as Objects.hash(NbtType.FLOAT, value), without boxing
+        return 31 * (31 + NbtType.FLOAT.hashCode()) + Float.hashCode(value);
     }
 }
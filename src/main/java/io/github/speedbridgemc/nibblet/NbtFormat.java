@@ -8,6 +8,7 @@ import org.jetbrains.annotations.NotNull;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 /**
@@ -75,6 +76,71 @@ public enum NbtFormat implements NbtStreamHandler {
         return delegate.readUTFLength(in);
     }
 
+    @Override
+    public short readShort(@NotNull ByteBuffer buf) throws IOException {
+        return delegate.readShort(buf);
+    }
+
+    @Override
+    public int readInt(@NotNull ByteBuffer buf) throws IOException {
+        return delegate.readInt(buf);
+    }
+
+    @Override
+    public long readLong(@NotNull ByteBuffer buf) throws IOException {
+        return delegate.readLong(buf);
+    }
+
+    @Override
+    public float readFloat(@NotNull ByteBuffer buf) throws IOException {
+        return delegate.readFloat(buf);
+    }
+
+    @Override
+    public double readDouble(@NotNull ByteBuffer buf) throws IOException {
+        return delegate.readDouble(buf);
+    }
+
+    @Override
+    public int readUTFLength(@NotNull ByteBuffer buf) throws IOException {
+        return delegate.readUTFLength(buf);
+    }
+
+    @Override
+    public void readShorts(@NotNull ByteBuffer buf, short @NotNull [] dst, int off, int len) throws IOException {
+        delegate.readShorts(buf, dst, off, len);
+    }
+
+    @Override
+    public void readInts(@NotNull ByteBuffer buf, int @NotNull [] dst, int off, int len) throws IOException {
+        delegate.readInts(buf, dst, off, len);
+    }
+
+    @Override
+    public void readLongs(@NotNull ByteBuffer buf, long @NotNull [] dst, int off, int len) throws IOException {
+        delegate.readLongs(buf, dst, off, len);
+    }
+
+    @Override
+    public void readFloats(@NotNull ByteBuffer buf, float @NotNull [] dst, int off, int len) throws IOException {
+        delegate.readFloats(buf, dst, off, len);
+    }
+
+    @Override
+    public void readDoubles(@NotNull ByteBuffer buf, double @NotNull [] dst, int off, int len) throws IOException {
+        delegate.readDoubles(buf, dst, off, len);
+    }
+
+    @Override
+    public void skipInts(@NotNull ByteBuffer buf, int count) throws IOException {
+        delegate.skipInts(buf, count);
+    }
+
+    @Override
+    public void skipLongs(@NotNull ByteBuffer buf, int count) throws IOException {
+        delegate.skipLongs(buf, count);
+    }
+
     @Override
     public void writeShort(@NotNull OutputStream out, short value) throws IOException {
         delegate.writeShort(out, value);
@@ -105,6 +171,41 @@ public enum NbtFormat implements NbtStreamHandler {
         delegate.writeUTFLength(out, utflen);
     }
 
+    @Override
+    public void writeInts(@NotNull OutputStream out, int @NotNull [] src, int off, int len) throws IOException {
+        delegate.writeInts(out, src, off, len);
+    }
+
+    @Override
+    public void writeLongs(@NotNull OutputStream out, long @NotNull [] src, int off, int len) throws IOException {
+        delegate.writeLongs(out, src, off, len);
+    }
+
+    @Override
+    public int sizeOfInt(int value) throws IOException {
+        return delegate.sizeOfInt(value);
+    }
+
+    @Override
+    public int sizeOfLong(long value) throws IOException {
+        return delegate.sizeOfLong(value);
+    }
+
+    @Override
+    public int sizeOfUTFLength(int utflen) throws IOException {
+        return delegate.sizeOfUTFLength(utflen);
+    }
+
+    @Override
+    public int reservedLengthSize() {
+        return delegate.reservedLengthSize();
+    }
+
+    @Override
+    public void writeReservedLength(@NotNull OutputStream out, int length) throws IOException {
+        delegate.writeReservedLength(out, length);
+    }
+
     @Override
     public void skipShort(@NotNull InputStream in) throws IOException {
         delegate.skipShort(in);
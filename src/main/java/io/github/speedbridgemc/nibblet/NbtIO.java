@@ -1,14 +1,23 @@
 package io.github.speedbridgemc.nibblet;
 
+import io.github.speedbridgemc.nibblet.stream.ByteBufferOutputStream;
 import io.github.speedbridgemc.nibblet.stream.MalformedNbtDataException;
+import io.github.speedbridgemc.nibblet.stream.NbtNameCache;
 import io.github.speedbridgemc.nibblet.stream.NbtReader;
 import io.github.speedbridgemc.nibblet.stream.NbtStreamHandler;
+import io.github.speedbridgemc.nibblet.stream.NbtVisitor;
 import io.github.speedbridgemc.nibblet.stream.NbtWriter;
+import io.github.speedbridgemc.nibblet.util.MUTF8Strings;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Provides methods to read and write NBT binaries.
@@ -16,6 +25,13 @@ import java.io.OutputStream;
 public final class NbtIO {
     private NbtIO() { }
 
+    // element trees share their entry names, instead of holding a copy per occurrence
+    private static final ThreadLocal<NbtNameCache> TL_NAME_CACHE = ThreadLocal.withInitial(NbtNameCache::new);
+
+    static @NotNull NbtNameCache nameCache() {
+        return TL_NAME_CACHE.get();
+    }
+
     /**
      * Represents a named {@link NbtRootElement}.
      * @param <T> NBT element type
@@ -90,6 +106,31 @@ public final class NbtIO {
         }
     }
 
+    private static final class NamedView<T extends NbtRootElement> implements Named<T> {
+        private final @NotNull T element;
+        private final @NotNull String name;
+
+        private NamedView(@NotNull T element, @NotNull String name) {
+            this.element = element;
+            this.name = name;
+        }
+
+        @Override
+        public @NotNull T element() {
+            return element;
+        }
+
+        @Override
+        public @NotNull String name() {
+            return name;
+        }
+
+        @Override
+        public @NotNull NbtType elementType() {
+            return element.type();
+        }
+    }
+
     /**
      * Reads an NBT structure from a stream.
      * @param streamHandler stream handler
@@ -100,33 +141,235 @@ public final class NbtIO {
      */
     public static @NotNull Named<? extends NbtRootElement> read(@NotNull NbtStreamHandler streamHandler, @NotNull InputStream in) throws IOException {
         try (NbtReader reader = new NbtReader(streamHandler, in)) {
+            return read(reader, null);
+        }
+    }
+
+    /**
+     * Reads an NBT structure from a stream, interning its string values in a string table.
+     * @param streamHandler stream handler
+     * @param in input stream
+     * @param strings string table to intern string values in
+     * @return named element that was read
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if an I/O error occurred.
+     * @see NbtStringTable
+     */
+    public static @NotNull Named<? extends NbtRootElement> read(@NotNull NbtStreamHandler streamHandler, @NotNull InputStream in,
+                                                                @NotNull NbtStringTable strings) throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, in)) {
+            return read(reader, strings);
+        }
+    }
+
+    /**
+     * Reads an NBT structure from a byte array.
+     * @param streamHandler stream handler
+     * @param data byte array to read from
+     * @return named element that was read
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if the data ends prematurely.
+     */
+    public static @NotNull Named<? extends NbtRootElement> read(@NotNull NbtStreamHandler streamHandler, byte @NotNull [] data) throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, data)) {
+            return read(reader, null);
+        }
+    }
+
+    /**
+     * Reads an NBT structure from a byte array, interning its string values in a string table.
+     * @param streamHandler stream handler
+     * @param data byte array to read from
+     * @param strings string table to intern string values in
+     * @return named element that was read
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if the data ends prematurely.
+     * @see NbtStringTable
+     */
+    public static @NotNull Named<? extends NbtRootElement> read(@NotNull NbtStreamHandler streamHandler, byte @NotNull [] data,
+                                                                @NotNull NbtStringTable strings) throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, data)) {
+            return read(reader, strings);
+        }
+    }
+
+    /**
+     * Reads an NBT structure from a buffer, starting at its position.<p>
+     * The buffer's position is <em>not</em> modified.
+     * @param streamHandler stream handler
+     * @param buf buffer to read from
+     * @return named element that was read
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if the data ends prematurely.
+     */
+    public static @NotNull Named<? extends NbtRootElement> read(@NotNull NbtStreamHandler streamHandler, @NotNull ByteBuffer buf) throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, buf)) {
+            return read(reader, null);
+        }
+    }
+
+    /**
+     * Reads an NBT structure from a buffer, starting at its position, interning its string values in a string table.
+     * @param streamHandler stream handler
+     * @param buf buffer to read from
+     * @param strings string table to intern string values in
+     * @return named element that was read
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if the data ends prematurely.
+     * @see NbtStringTable
+     */
+    public static @NotNull Named<? extends NbtRootElement> read(@NotNull NbtStreamHandler streamHandler, @NotNull ByteBuffer buf,
+                                                                @NotNull NbtStringTable strings) throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, buf)) {
+            return read(reader, strings);
+        }
+    }
+
+    /**
+     * Reads an NBT structure from a file by memory-mapping it.<p>
+     * The file must contain uncompressed NBT data. This is the preferred way to read very large files,
+     * since their contents don't have to be copied through an {@link InputStream}'s buffers.
+     * @param streamHandler stream handler
+     * @param path path of file to read from
+     * @return named element that was read
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static @NotNull Named<? extends NbtRootElement> read(@NotNull NbtStreamHandler streamHandler, @NotNull Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             NbtReader reader = new NbtReader(streamHandler, channel)) {
+            return read(reader, null);
+        }
+    }
+
+    /**
+     * Reads an NBT structure from a file by memory-mapping it, interning its string values in a string table.
+     * @param streamHandler stream handler
+     * @param path path of file to read from
+     * @param strings string table to intern string values in
+     * @return named element that was read
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if an I/O error occurs.
+     * @see #read(NbtStreamHandler, Path)
+     * @see NbtStringTable
+     */
+    public static @NotNull Named<? extends NbtRootElement> read(@NotNull NbtStreamHandler streamHandler, @NotNull Path path,
+                                                                @NotNull NbtStringTable strings) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             NbtReader reader = new NbtReader(streamHandler, channel)) {
+            return read(reader, strings);
+        }
+    }
+
+    /**
+     * Lazily reads an NBT structure from a byte array.
+     * @param streamHandler stream handler
+     * @param data byte array to read from
+     * @return named element that was read
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if the data ends prematurely.
+     * @see #readLazy(NbtStreamHandler, ByteBuffer)
+     */
+    public static @NotNull Named<? extends NbtRootElement> readLazy(@NotNull NbtStreamHandler streamHandler, byte @NotNull [] data)
+            throws IOException {
+        return readLazy(streamHandler, ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Lazily reads an NBT structure from a buffer, starting at its position.<p>
+     * Instead of building the entire element tree up front, each object is only indexed (by skipping over its values),
+     * and a value is only decoded the first time it's accessed. This is much cheaper if only a few values are ever
+     * accessed. The returned element is an immutable view, and keeps a reference to the buffer -
+     * the buffer's contents must not be modified while it's in use.<p>
+     * If a value fails to decode when accessed, an {@link java.io.UncheckedIOException} is thrown.<p>
+     * The buffer's position is <em>not</em> modified.
+     * @param streamHandler stream handler
+     * @param buf buffer to read from
+     * @return named element that was read
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if the data ends prematurely.
+     */
+    public static @NotNull Named<? extends NbtRootElement> readLazy(@NotNull NbtStreamHandler streamHandler, @NotNull ByteBuffer buf)
+            throws IOException {
+        ByteBuffer data = buf.slice();
+        try (NbtReader reader = new NbtReader(streamHandler, data)) {
+            reader.setNameCache(nameCache());
             NbtType rootType = reader.nextType();
-            if (rootType == NbtType.ROOT_LIST)
-                return readRootList(reader);
-            else if (rootType == NbtType.OBJECT)
-                return readRootCompound(reader);
-            else
+            if (rootType == NbtType.ROOT_LIST) {
+                String rootName = reader.nextName();
+                reader.beginRootList();
+                NbtType itemType = reader.listItemType();
+                int offset = (int) reader.position();
+                reader.skipValue();
+                reader.endRootList();
+                NbtListView listElem = NbtList.of(LazyNbtElements.decode(streamHandler, data, offset, itemType)).view();
+                return new NamedView<>(listElem, rootName);
+            } else if (rootType == NbtType.OBJECT) {
+                String rootName = reader.nextName();
+                NbtObjectView objElem = LazyNbtObject.read(streamHandler, data, (int) reader.position());
+                return new NamedView<>(objElem, rootName);
+            } else
                 throw new MalformedNbtDataException("Unsupported root element type " + rootType);
         }
     }
 
-    private static @NotNull NbtIO.NamedNbtList readRootList(@NotNull NbtReader reader) throws IOException {
+    /**
+     * Lazily reads an NBT structure from a file by memory-mapping it.<p>
+     * The file must contain uncompressed NBT data, and may not be larger than 2 GiB.
+     * @param streamHandler stream handler
+     * @param path path of file to read from
+     * @return named element that was read
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if an I/O error occurs.
+     * @see #readLazy(NbtStreamHandler, ByteBuffer)
+     */
+    public static @NotNull Named<? extends NbtRootElement> readLazy(@NotNull NbtStreamHandler streamHandler, @NotNull Path path)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("File is too large to read lazily (" + size + " bytes)");
+            // the mapping stays valid after the channel is closed
+            return readLazy(streamHandler, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    private static @NotNull Named<? extends NbtRootElement> read(@NotNull NbtReader reader, @Nullable NbtStringTable strings)
+            throws IOException {
+        reader.setNameCache(nameCache());
+        NbtType rootType = reader.nextType();
+        if (rootType == NbtType.ROOT_LIST)
+            return readRootList(reader, strings);
+        else if (rootType == NbtType.OBJECT)
+            return readRootCompound(reader, strings);
+        else
+            throw new MalformedNbtDataException("Unsupported root element type " + rootType);
+    }
+
+    private static @NotNull NbtIO.NamedNbtList readRootList(@NotNull NbtReader reader, @Nullable NbtStringTable strings)
+            throws IOException {
         String rootName = reader.nextName();
         reader.beginRootList();
-        NbtList listElem = NbtList.of(readElement(reader, reader.listItemType()));
+        NbtList listElem = NbtList.of(readElement(reader, reader.listItemType(), strings));
         reader.endRootList();
         return new NamedNbtList(listElem, rootName);
     }
 
-    private static @NotNull NbtIO.NamedNbtObject readRootCompound(@NotNull NbtReader reader) throws IOException {
+    private static @NotNull NbtIO.NamedNbtObject readRootCompound(@NotNull NbtReader reader, @Nullable NbtStringTable strings)
+            throws IOException {
         reader.beginObject();
         String rootName = reader.nextName();
-        NbtObject objElem = readObject(reader);
+        NbtObject objElem = readObject(reader, strings);
         reader.endObject();
         return new NamedNbtObject(objElem, rootName);
     }
 
-    private static @NotNull NbtElement readElement(@NotNull NbtReader reader, @NotNull NbtType type) throws IOException {
+    static @NotNull NbtElement readElement(@NotNull NbtReader reader, @NotNull NbtType type) throws IOException {
+        return readElement(reader, type, null);
+    }
+
+    private static @NotNull NbtElement readElement(@NotNull NbtReader reader, @NotNull NbtType type,
+                                                   @Nullable NbtStringTable strings) throws IOException {
         switch (type) {
         case BYTE:
             return NbtByte.of(reader.nextByte());
@@ -141,54 +384,313 @@ public final class NbtIO {
         case DOUBLE:
             return NbtDouble.of(reader.nextDouble());
         case BYTE_ARRAY:
-            reader.beginByteArray();
-            byte[] byteArr = new byte[reader.listSize()];
-            for (int i = 0; reader.listHasNext(); i++)
-                byteArr[i] = reader.nextByte();
-            reader.endByteArray();
-            return NbtByteArray.copyOf(byteArr);
+            return NbtByteArray.wrap(reader.nextByteArray());
         case STRING:
-            return NbtString.of(reader.nextString());
+            return strings == null ? NbtString.of(reader.nextString()) : strings.intern(reader.nextString());
         case LIST:
             reader.beginList();
-            NbtList.Builder listBuilder = NbtList.builder(reader.listSize());
-            while (reader.listHasNext())
-                listBuilder.add(readElement(reader, reader.listItemType()));
+            NbtList listElem = readList(reader, strings);
             reader.endList();
-            return listBuilder.build();
+            return listElem;
         case OBJECT:
             reader.beginObject();
-            NbtObject objElem = readObject(reader);
+            NbtObject objElem = readObject(reader, strings);
             reader.endObject();
             return objElem;
         case INT_ARRAY:
-            reader.beginIntArray();
-            int[] intArr = new int[reader.listSize()];
-            for (int i = 0; reader.listHasNext(); i++)
-                intArr[i] = reader.nextInt();
-            reader.endIntArray();
-            return NbtIntArray.copyOf(intArr);
+            return NbtIntArray.wrap(reader.nextIntArray());
         case LONG_ARRAY:
-            reader.beginLongArray();
-            long[] longArr = new long[reader.listSize()];
-            for (int i = 0; reader.listHasNext(); i++)
-                longArr[i] = reader.nextLong();
-            reader.endLongArray();
-            return NbtLongArray.copyOf(longArr);
+            return NbtLongArray.wrap(reader.nextLongArray());
         default:
             throw new MalformedNbtDataException("Unreadable element type " + type);
         }
     }
 
-    private static @NotNull NbtObject readObject(@NotNull NbtReader reader) throws IOException {
-        NbtObject.Builder builder = NbtObject.builder();
+    static @NotNull NbtList readList(@NotNull NbtReader reader) throws IOException {
+        return readList(reader, null);
+    }
+
+    private static @NotNull NbtList readList(@NotNull NbtReader reader, @Nullable NbtStringTable strings) throws IOException {
+        final int size = reader.listSize();
+        final NbtType itemType = reader.listItemType();
+        // lists of numbers are decoded in bulk, straight into the list's storage
+        switch (itemType) {
+        case BYTE:
+            byte[] bytes = new byte[size];
+            reader.nextBytes(bytes, 0, size);
+            return NbtList.wrapItems(itemType, bytes, size);
+        case SHORT:
+            short[] shorts = new short[size];
+            reader.nextShorts(shorts, 0, size);
+            return NbtList.wrapItems(itemType, shorts, size);
+        case INT:
+            int[] ints = new int[size];
+            reader.nextInts(ints, 0, size);
+            return NbtList.wrapItems(itemType, ints, size);
+        case LONG:
+            long[] longs = new long[size];
+            reader.nextLongs(longs, 0, size);
+            return NbtList.wrapItems(itemType, longs, size);
+        case FLOAT:
+            float[] floats = new float[size];
+            reader.nextFloats(floats, 0, size);
+            return NbtList.wrapItems(itemType, floats, size);
+        case DOUBLE:
+            double[] doubles = new double[size];
+            reader.nextDoubles(doubles, 0, size);
+            return NbtList.wrapItems(itemType, doubles, size);
+        default:
+            NbtElement[] elements = new NbtElement[size];
+            for (int i = 0; reader.listHasNext(); i++)
+                elements[i] = readElement(reader, itemType, strings);
+            return NbtList.wrapItems(itemType, elements, size);
+        }
+    }
+
+    private static @NotNull NbtObject readObject(@NotNull NbtReader reader, @Nullable NbtStringTable strings) throws IOException {
+        NbtObject object = NbtObject.create(NbtObject.READ_CAPACITY);
         NbtType type = reader.nextType();
         while (type != NbtType.END) {
             String name = reader.nextName();
-            builder.put(name, readElement(reader, type));
+            // numbers are stored unboxed, so don't create elements for them
+            switch (type) {
+            case BYTE:
+                object.putByte(name, reader.nextByte());
+                break;
+            case SHORT:
+                object.putShort(name, reader.nextShort());
+                break;
+            case INT:
+                object.putInt(name, reader.nextInt());
+                break;
+            case LONG:
+                object.putLong(name, reader.nextLong());
+                break;
+            case FLOAT:
+                object.putFloat(name, reader.nextFloat());
+                break;
+            case DOUBLE:
+                object.putDouble(name, reader.nextDouble());
+                break;
+            default:
+                object.put(name, readElement(reader, type, strings));
+                break;
+            }
             type = reader.nextType();
         }
-        return builder.build();
+        // copying the arrays of every object again just to drop a few unused entries slows reading down noticeably
+        object.trimSlack();
+        return object;
+    }
+
+    /**
+     * Walks an NBT structure in a stream, passing its values to a visitor.
+     * @param streamHandler stream handler
+     * @param in input stream
+     * @param visitor visitor
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void accept(@NotNull NbtStreamHandler streamHandler, @NotNull InputStream in, @NotNull NbtVisitor visitor)
+            throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, in)) {
+            accept(reader, visitor);
+        }
+    }
+
+    /**
+     * Walks an NBT structure in a byte array, passing its values to a visitor.
+     * @param streamHandler stream handler
+     * @param data byte array to read from
+     * @param visitor visitor
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if the data ends prematurely.
+     */
+    public static void accept(@NotNull NbtStreamHandler streamHandler, byte @NotNull [] data, @NotNull NbtVisitor visitor)
+            throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, data)) {
+            accept(reader, visitor);
+        }
+    }
+
+    /**
+     * Walks an NBT structure in a buffer, starting at its position, passing its values to a visitor.<p>
+     * The buffer's position is <em>not</em> modified.
+     * @param streamHandler stream handler
+     * @param buf buffer to read from
+     * @param visitor visitor
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if the data ends prematurely.
+     */
+    public static void accept(@NotNull NbtStreamHandler streamHandler, @NotNull ByteBuffer buf, @NotNull NbtVisitor visitor)
+            throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, buf)) {
+            accept(reader, visitor);
+        }
+    }
+
+    /**
+     * Walks the NBT structure a reader is positioned at, passing its values to a visitor.<p>
+     * If the visitor stops, the reader is left in the middle of the structure.
+     * @param reader reader to read from
+     * @param visitor visitor
+     * @return {@code false} if the visitor stopped, {@code true} otherwise
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static boolean accept(@NotNull NbtReader reader, @NotNull NbtVisitor visitor) throws IOException {
+        return new VisitorWalker(reader, visitor).walkRoot();
+    }
+
+    // also used by NbtSchema, to walk the values it doesn't have a schema for
+    static final class VisitorWalker {
+        private final @NotNull NbtReader reader;
+        private final @NotNull NbtVisitor visitor;
+        // scratch arrays handed to the visitor, grown as needed
+        private byte @NotNull [] bytes = new byte[0];
+        private int @NotNull [] ints = new int[0];
+        private long @NotNull [] longs = new long[0];
+
+        VisitorWalker(@NotNull NbtReader reader, @NotNull NbtVisitor visitor) {
+            this.reader = reader;
+            this.visitor = visitor;
+        }
+
+        // these all return false if the visitor stopped
+
+        public boolean walkRoot() throws IOException {
+            NbtType rootType = reader.nextType();
+            String rootName = reader.nextName();
+            if (rootType == NbtType.ROOT_LIST) {
+                reader.beginRootList();
+                if (!walkList(rootName))
+                    return false;
+                reader.endRootList();
+                return true;
+            } else if (rootType == NbtType.OBJECT)
+                return walkValue(NbtType.OBJECT, rootName);
+            else
+                throw new MalformedNbtDataException("Unsupported root element type " + rootType);
+        }
+
+        boolean walkValue(@NotNull NbtType type, @Nullable String name) throws IOException {
+            switch (type) {
+            case BYTE:
+                visitor.visitByte(name, reader.nextByte());
+                return true;
+            case SHORT:
+                visitor.visitShort(name, reader.nextShort());
+                return true;
+            case INT:
+                visitor.visitInt(name, reader.nextInt());
+                return true;
+            case LONG:
+                visitor.visitLong(name, reader.nextLong());
+                return true;
+            case FLOAT:
+                visitor.visitFloat(name, reader.nextFloat());
+                return true;
+            case DOUBLE:
+                visitor.visitDouble(name, reader.nextDouble());
+                return true;
+            case STRING:
+                visitor.visitString(name, reader.nextString());
+                return true;
+            case OBJECT:
+                switch (visitor.visitBeginObject(name)) {
+                case SKIP:
+                    reader.skipValue();
+                    return true;
+                case STOP:
+                    return false;
+                }
+                reader.beginObject();
+                NbtType entryType = reader.nextType();
+                while (entryType != NbtType.END) {
+                    if (!walkValue(entryType, reader.nextName()))
+                        return false;
+                    entryType = reader.nextType();
+                }
+                reader.endObject();
+                visitor.visitEndObject();
+                return true;
+            case LIST:
+                reader.beginList();
+                if (!walkList(name))
+                    return false;
+                reader.endList();
+                return true;
+            case BYTE_ARRAY:
+                reader.beginByteArray();
+                if (!walkArray(type, name))
+                    return false;
+                reader.endByteArray();
+                return true;
+            case INT_ARRAY:
+                reader.beginIntArray();
+                if (!walkArray(type, name))
+                    return false;
+                reader.endIntArray();
+                return true;
+            case LONG_ARRAY:
+                reader.beginLongArray();
+                if (!walkArray(type, name))
+                    return false;
+                reader.endLongArray();
+                return true;
+            default:
+                throw new MalformedNbtDataException("Unreadable element type " + type);
+            }
+        }
+
+        private boolean walkList(@Nullable String name) throws IOException {
+            NbtType itemType = reader.listItemType();
+            switch (visitor.visitBeginList(name, itemType, reader.listSize())) {
+            case SKIP:
+                reader.skipRemainingItems();
+                return true;
+            case STOP:
+                return false;
+            }
+            while (reader.listHasNext()) {
+                if (!walkValue(itemType, null))
+                    return false;
+            }
+            visitor.visitEndList();
+            return true;
+        }
+
+        private boolean walkArray(@NotNull NbtType type, @Nullable String name) throws IOException {
+            final int length = reader.listSize();
+            switch (visitor.visitBeginArray(name, type, length)) {
+            case SKIP:
+                reader.skipRemainingItems();
+                return true;
+            case STOP:
+                return false;
+            }
+            switch (type) {
+            case BYTE_ARRAY:
+                if (bytes.length < length)
+                    bytes = new byte[length];
+                reader.nextBytes(bytes, 0, length);
+                visitor.visitByteArray(name, bytes, length);
+                break;
+            case INT_ARRAY:
+                if (ints.length < length)
+                    ints = new int[length];
+                reader.nextInts(ints, 0, length);
+                visitor.visitIntArray(name, ints, length);
+                break;
+            case LONG_ARRAY:
+                if (longs.length < length)
+                    longs = new long[length];
+                reader.nextLongs(longs, 0, length);
+                visitor.visitLongArray(name, longs, length);
+                break;
+            }
+            return true;
+        }
     }
 
     /**
@@ -216,19 +718,253 @@ public final class NbtIO {
         }
     }
 
+    /**
+     * Writes an NBT structure to a byte array.
+     * @param rootName root element name
+     * @param rootElement root element, either a {@link NbtObject} or a {@link NbtList}
+     * @param streamHandler stream handler
+     * @return encoded NBT structure
+     * @throws IOException if the element can't be encoded.
+     * @see ByteBufferOutputStream
+     */
+    public static byte @NotNull [] write(@NotNull String rootName, @NotNull NbtRootElement rootElement, @NotNull NbtStreamHandler streamHandler)
+            throws IOException {
+        ByteBufferOutputStream out = new ByteBufferOutputStream();
+        write(rootName, rootElement, streamHandler, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Computes the exact size of an NBT structure, as written by {@link #write(String, NbtRootElement, NbtStreamHandler, OutputStream)},
+     * without encoding it.
+     * @param rootName root element name
+     * @param rootElement root element, either a {@link NbtObject} or a {@link NbtList}
+     * @param streamHandler stream handler
+     * @return size in bytes
+     * @throws IOException if the element can't be encoded.
+     */
+    public static long sizeOf(@NotNull String rootName, @NotNull NbtRootElement rootElement, @NotNull NbtStreamHandler streamHandler)
+            throws IOException {
+        long size = 1 + sizeOfString(streamHandler, rootName);
+        switch (rootElement.type()) {
+        case OBJECT:
+            return size + sizeOf(rootElement, streamHandler);
+        case LIST:
+            // root lists are written as a list with a single item, without a size
+            return size + 1 + sizeOf(rootElement, streamHandler);
+        default:
+            throw new MalformedNbtDataException("Unsupported root element type " + rootElement.type());
+        }
+    }
+
+    /**
+     * Computes the exact size of an element's payload - that is, not including its type ID and name.<p>
+     * Accounts for variable-length encodings, like the VarInts of {@link NbtFormat#BEDROCK_NETWORK}.
+     * Lazily read objects and lists, and frozen elements, remember their size, so sizing them again is cheap.
+     * @param element element
+     * @param streamHandler stream handler
+     * @return size in bytes
+     * @throws IOException if the element can't be encoded.
+     */
+    public static long sizeOf(@NotNull NbtElement element, @NotNull NbtStreamHandler streamHandler) throws IOException {
+        if (element instanceof SizeCachingElement) {
+            SizeCachingElement cachingElement = (SizeCachingElement) element;
+            long size = cachingElement.cachedPayloadSize(streamHandler);
+            if (size < 0) {
+                size = computeSizeOf(element, streamHandler);
+                cachingElement.cachePayloadSize(streamHandler, size);
+            }
+            return size;
+        }
+        return computeSizeOf(element, streamHandler);
+    }
+
+    private static long computeSizeOf(@NotNull NbtElement element, @NotNull NbtStreamHandler streamHandler) throws IOException {
+        switch (element.type()) {
+        case BYTE:
+            return 1;
+        case SHORT:
+        case FLOAT:
+        case DOUBLE:
+            return fixedSizeOf(streamHandler, element.type());
+        case INT:
+            return streamHandler.sizeOfInt(((NbtInt) element).value());
+        case LONG:
+            return streamHandler.sizeOfLong(((NbtLong) element).value());
+        case BYTE_ARRAY: {
+            int length = ((NbtByteArrayView) element).length();
+            return streamHandler.sizeOfInt(length) + (long) length;
+        }
+        case INT_ARRAY: {
+            NbtIntArrayView array = (NbtIntArrayView) element;
+            int length = array.length();
+            long size = streamHandler.sizeOfInt(length);
+            long itemSize = streamHandler.payloadSize(NbtType.INT);
+            if (itemSize >= 0)
+                return size + itemSize * length;
+            for (int i = 0; i < length; i++)
+                size += streamHandler.sizeOfInt(array.get(i));
+            return size;
+        }
+        case LONG_ARRAY: {
+            NbtLongArrayView array = (NbtLongArrayView) element;
+            int length = array.length();
+            long size = streamHandler.sizeOfInt(length);
+            long itemSize = streamHandler.payloadSize(NbtType.LONG);
+            if (itemSize >= 0)
+                return size + itemSize * length;
+            for (int i = 0; i < length; i++)
+                size += streamHandler.sizeOfLong(array.get(i));
+            return size;
+        }
+        case STRING:
+            return sizeOfString(streamHandler, ((NbtString) element).value());
+        case LIST: {
+            NbtListView list = (NbtListView) element;
+            long size = 1 + streamHandler.sizeOfInt(list.size());
+            NbtType itemType = list.itemType();
+            // fixed-size items don't need to be looked at
+            long itemSize = itemType == NbtType.BYTE ? 1 : itemType == NbtType.SHORT || itemType == NbtType.FLOAT
+                    || itemType == NbtType.DOUBLE ? streamHandler.payloadSize(itemType) : -1;
+            if (itemSize >= 0)
+                return size + itemSize * list.size();
+            if (itemType == NbtType.INT) {
+                for (int i = 0, n = list.size(); i < n; i++)
+                    size += streamHandler.sizeOfInt(list.getInt(i, 0));
+                return size;
+            }
+            if (itemType == NbtType.LONG) {
+                for (int i = 0, n = list.size(); i < n; i++)
+                    size += streamHandler.sizeOfLong(list.getLong(i, 0));
+                return size;
+            }
+            if (list instanceof NbtList) {
+                // reads the items as they're stored, instead of copying deep copies' deferred copies just to size them
+                NbtList backed = (NbtList) list;
+                for (int i = 0, n = backed.size(); i < n; i++)
+                    size += sizeOf(backed.elementAt(i), streamHandler);
+                return size;
+            }
+            for (NbtElement item : list)
+                size += sizeOf(item, streamHandler);
+            return size;
+        }
+        case OBJECT: {
+            long size = 1; // END
+            if (element instanceof NbtObject) {
+                // same as for lists
+                NbtObject backed = (NbtObject) element;
+                for (int i = 0, n = backed.size(); i < n; i++)
+                    size += 1 + sizeOfString(streamHandler, backed.nameAt(i)) + sizeOf(backed.elementAt(i), streamHandler);
+                return size;
+            }
+            for (NbtObjectView.Entry entry : ((NbtObjectView) element).entries())
+                size += 1 + sizeOfString(streamHandler, entry.name()) + sizeOf(entry.element(), streamHandler);
+            return size;
+        }
+        default:
+            throw new MalformedNbtDataException("Unwritable element type " + element.type());
+        }
+    }
+
+    private static long sizeOfString(@NotNull NbtStreamHandler streamHandler, @NotNull String value) throws IOException {
+        int utflen = MUTF8Strings.encodedLength(value);
+        return streamHandler.sizeOfUTFLength(utflen) + (long) utflen;
+    }
+
+    private static long fixedSizeOf(@NotNull NbtStreamHandler streamHandler, @NotNull NbtType type) throws IOException {
+        long size = streamHandler.payloadSize(type);
+        if (size < 0)
+            throw new IOException("Can't determine size of " + type + " - it doesn't have a constant size in " + streamHandler);
+        return size;
+    }
+
     private static void writeObject(@NotNull NbtWriter writer, @NotNull NbtObjectView element) throws IOException {
         writer.beginObject();
-        for (NbtObjectView.Entry entry : element.entries()) {
-            writer.name(entry.name());
-            writeElement(writer, entry.element());
+        if (element instanceof NbtObject) {
+            // reads the entries as they're stored, instead of copying deep copies' deferred copies just to write them
+            NbtObject backed = (NbtObject) element;
+            for (int i = 0, n = backed.size(); i < n; i++) {
+                writer.name(backed.nameAt(i));
+                writeElement(writer, backed.elementAt(i));
+            }
+        } else {
+            for (NbtObjectView.Entry entry : element.entries()) {
+                writer.name(entry.name());
+                writeElement(writer, entry.element());
+            }
         }
         writer.endObject();
     }
 
+    private static void writeByteArray(@NotNull NbtWriter writer, @NotNull NbtByteArrayView array) throws IOException {
+        if (array instanceof NbtByteArray) {
+            // write straight from the backing array, instead of copying it with toArray()
+            NbtByteArray backed = (NbtByteArray) array;
+            writer.beginByteArray(backed.length()).byteValues(backed.backingArray(), 0, backed.length()).endByteArray();
+        } else
+            writer.byteArray(array.toArray());
+    }
+
+    private static void writeIntArray(@NotNull NbtWriter writer, @NotNull NbtIntArrayView array) throws IOException {
+        if (array instanceof NbtIntArray) {
+            // write straight from the backing array, instead of copying it with toArray()
+            NbtIntArray backed = (NbtIntArray) array;
+            writer.beginIntArray(backed.length()).intValues(backed.backingArray(), 0, backed.length()).endIntArray();
+        } else
+            writer.intArray(array.toArray());
+    }
+
+    private static void writeLongArray(@NotNull NbtWriter writer, @NotNull NbtLongArrayView array) throws IOException {
+        if (array instanceof NbtLongArray) {
+            // write straight from the backing array, instead of copying it with toArray()
+            NbtLongArray backed = (NbtLongArray) array;
+            writer.beginLongArray(backed.length()).longValues(backed.backingArray(), 0, backed.length()).endLongArray();
+        } else
+            writer.longArray(array.toArray());
+    }
+
     private static void writeList(@NotNull NbtWriter writer, @NotNull NbtListView element) throws IOException {
-        writer.beginList();
-        for (NbtElement item : element)
-            writeElement(writer, item);
+        final int size = element.size();
+        writer.beginList(element.itemType(), size);
+        // the primitive getters don't create elements for lists of numbers
+        switch (element.itemType()) {
+        case BYTE:
+            for (int i = 0; i < size; i++)
+                writer.byteValue(element.getByte(i, (byte) 0));
+            break;
+        case SHORT:
+            for (int i = 0; i < size; i++)
+                writer.shortValue(element.getShort(i, (short) 0));
+            break;
+        case INT:
+            for (int i = 0; i < size; i++)
+                writer.intValue(element.getInt(i, 0));
+            break;
+        case LONG:
+            for (int i = 0; i < size; i++)
+                writer.longValue(element.getLong(i, 0));
+            break;
+        case FLOAT:
+            for (int i = 0; i < size; i++)
+                writer.floatValue(element.getFloat(i, 0));
+            break;
+        case DOUBLE:
+            for (int i = 0; i < size; i++)
+                writer.doubleValue(element.getDouble(i, 0));
+            break;
+        default:
+            if (element instanceof NbtList) {
+                // same as for objects
+                NbtList backed = (NbtList) element;
+                for (int i = 0; i < size; i++)
+                    writeElement(writer, backed.elementAt(i));
+            } else {
+                for (NbtElement item : element)
+                    writeElement(writer, item);
+            }
+            break;
+        }
         writer.endList();
     }
 
@@ -253,11 +989,7 @@ public final class NbtIO {
             writer.doubleValue(((NbtDouble) element).value());
             break;
         case BYTE_ARRAY:
-            NbtByteArrayView byteArrElem = (NbtByteArrayView) element;
-            writer.beginByteArray();
-            for (int i = 0, size = byteArrElem.length(); i < size; i++)
-                writer.byteValue(byteArrElem.get(i));
-            writer.endByteArray();
+            writeByteArray(writer, (NbtByteArrayView) element);
             break;
         case STRING:
             writer.stringValue(((NbtString) element).value());
@@ -269,18 +1001,10 @@ public final class NbtIO {
             writeObject(writer, (NbtObjectView) element);
             break;
         case INT_ARRAY:
-            NbtIntArrayView intArrElem = (NbtIntArrayView) element;
-            writer.beginIntArray();
-            for (int i = 0, size = intArrElem.length(); i < size; i++)
-                writer.intValue(intArrElem.get(i));
-            writer.endIntArray();
+            writeIntArray(writer, (NbtIntArrayView) element);
             break;
         case LONG_ARRAY:
-            NbtLongArrayView longArrElem = (NbtLongArrayView) element;
-            writer.beginLongArray();
-            for (int i = 0, size = longArrElem.length(); i < size; i++)
-                writer.longValue(longArrElem.get(i));
-            writer.endLongArray();
+            writeLongArray(writer, (NbtLongArrayView) element);
             break;
         default:
             throw new MalformedNbtDataException("Unwritable element type " + element.type());
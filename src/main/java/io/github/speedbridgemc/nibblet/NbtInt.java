@@ -2,9 +2,31 @@ package io.github.speedbridgemc.nibblet;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Objects;
-
+/**
+ * An int element. Values between {@literal -128} and {@literal 1023} are cached, so {@link #of(int)} returns the same
+ * instance for them every time.<p>
+ * The upper bound of the cached range can be changed with the {@value #CACHE_HIGH_PROPERTY} system property, which
+ * must be set before this class is initialized.
+ */
 public final class NbtInt implements NbtNumber {
+    public static final String CACHE_HIGH_PROPERTY = "io.github.speedbridgemc.nibblet.NbtInt.cache.high";
+    private static final int CACHE_LOW = -128;
+    private static final NbtInt[] CACHE;
+
+    static {
+        int high = 1023;
+        String prop = System.getProperty(CACHE_HIGH_PROPERTY);
+        if (prop != null) {
+            try {
+                // like Integer's cache, the range always covers [-128, 127], and is capped to keep the array sane
+                high = Math.min(Math.max(Integer.parseInt(prop.trim()), 127), (1 << 20) - 1);
+            } catch (NumberFormatException ignored) { }
+        }
+        CACHE = new NbtInt[high - CACHE_LOW + 1];
+        for (int i = 0; i < CACHE.length; i++)
+            CACHE[i] = new NbtInt(i + CACHE_LOW);
+    }
+
     private final int value;
 
     private NbtInt(int value) {
@@ -12,6 +34,9 @@ public final class NbtInt implements NbtNumber {
     }
 
     public static @NotNull NbtInt of(int value) {
+        int i = value - CACHE_LOW;
+        if (i >= 0 && i < CACHE.length)
+            return CACHE[i];
         return new NbtInt(value);
     }
 
@@ -43,6 +68,7 @@ public final class NbtInt implements NbtNumber {
 
     @Override
     public int hashCode() {
-        return Objects.hash(NbtType.INT, value);
+        // same as Objects.hash(NbtType.INT, value), without boxing
+        return 31 * (31 + NbtType.INT.hashCode()) + Integer.hashCode(value);
     }
 }
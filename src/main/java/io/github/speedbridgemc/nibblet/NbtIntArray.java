@@ -1,34 +1,44 @@
 package io.github.speedbridgemc.nibblet;
 
+import io.github.speedbridgemc.nibblet.stream.NbtStreamHandler;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 
-public final class NbtIntArray implements NbtElement, NbtIntArrayView {
+public final class NbtIntArray implements NbtElement, SizeCachingElement, NbtIntArrayView {
     public static final class Builder {
-        private final ArrayList<Integer> backingList;
+        private int[] values;
+        private int length;
 
         private Builder() {
-            backingList = new ArrayList<>();
+            this(PrimitiveArrays.DEFAULT_CAPACITY);
         }
 
         private Builder(int initialCapacity) {
-            backingList = new ArrayList<>(initialCapacity);
+            values = new int[initialCapacity];
+        }
+
+        private void ensureCapacity(int minCapacity) {
+            if (minCapacity > values.length)
+                values = Arrays.copyOf(values, PrimitiveArrays.grow(values.length, minCapacity));
         }
 
         public @NotNull Builder add(int value) {
-            backingList.add(value);
+            ensureCapacity(length + 1);
+            values[length++] = value;
             return this;
         }
 
         public @NotNull Builder add(int @NotNull ... values) {
-            for (int value : values)
-                backingList.add(value);
+            ensureCapacity(length + values.length);
+            System.arraycopy(values, 0, this.values, length, values.length);
+            length += values.length;
             return this;
         }
 
         public @NotNull NbtIntArray build() {
-            return new NbtIntArray(new ArrayList<>(backingList));
+            return new NbtIntArray(Arrays.copyOf(values, length), length);
         }
     }
 
@@ -40,51 +50,31 @@ public final class NbtIntArray implements NbtElement, NbtIntArrayView {
         return new Builder(initialCapacity);
     }
 
-    private final ArrayList<Integer> backingList;
-    private final List<Integer> backingListU;
-    private final NbtIntArrayView view;
-
-    private NbtIntArray(@NotNull ArrayList<@NotNull Integer> backingList) {
-        this.backingList = backingList;
-        backingListU = Collections.unmodifiableList(backingList);
-        view = new NbtIntArrayView() {
-            @Override
-            public int length() {
-                return NbtIntArray.this.length();
-            }
-
-            @Override
-            public int get(int i) {
-                return NbtIntArray.this.get(i);
-            }
-
-            @Override
-            public @NotNull Iterator<@NotNull Integer> iterator() {
-                return NbtIntArray.this.iterator();
-            }
-
-            @Override
-            public boolean equals(Object obj) {
-                if (obj == this)
-                    return true;
-                if (!(obj instanceof NbtIntArrayView))
-                    return false;
-                return NbtIntArray.this.equals(obj);
-            }
-
-            @Override
-            public int hashCode() {
-                return NbtIntArray.this.hashCode();
-            }
-        };
+    private int[] values;
+    private int length;
+    // the values are shared with copies of this array (or with the array this is a copy of), so they're copied before
+    // they're modified
+    private boolean shared;
+    // the values are an array passed to wrap(), which its caller may still change
+    private boolean wrapped;
+    private boolean frozen;
+    // the hash code of a frozen array, once it's been computed (0 until then)
+    private int hash;
+    // the payload size of a frozen array, once it's been computed
+    private @Nullable CachedSize cachedSize;
+    private @Nullable NbtIntArrayView view;
+
+    private NbtIntArray(int @NotNull [] values, int length) {
+        this.values = values;
+        this.length = length;
     }
 
     private NbtIntArray() {
-        this(new ArrayList<>());
+        this(PrimitiveArrays.DEFAULT_CAPACITY);
     }
 
     private NbtIntArray(int initialCapacity) {
-        this(new ArrayList<>(initialCapacity));
+        this(new int[initialCapacity], 0);
     }
 
     public static @NotNull NbtIntArray create() {
@@ -96,51 +86,166 @@ public final class NbtIntArray implements NbtElement, NbtIntArrayView {
     }
 
     public static @NotNull NbtIntArray copyOf(int @NotNull ... values) {
-        ArrayList<Integer> list = new ArrayList<>(values.length);
-        for (int v : values)
-            list.add(v);
-        return new NbtIntArray(list);
+        return new NbtIntArray(values.clone(), values.length);
+    }
+
+    /**
+     * Creates a int array element that's backed by an existing array, without copying it.<p>
+     * Changes to the array are visible through the element and vice versa, until the element's length changes - at that
+     * point, the element may move its values to a new array.
+     * @param values values to wrap
+     * @return int array element
+     */
+    public static @NotNull NbtIntArray wrap(int @NotNull [] values) {
+        NbtIntArray array = new NbtIntArray(values, values.length);
+        array.wrapped = true;
+        return array;
+    }
+
+    /**
+     * Freezes this array, so that its values can't be modified anymore.<p>
+     * If this array {@linkplain #wrap(int[]) wraps} an existing array, that array must not be modified after this.
+     * @return this array
+     */
+    @Override
+    public @NotNull NbtIntArray freeze() {
+        if (!frozen) {
+            if (length != values.length)
+                values = Arrays.copyOf(values, length);
+            frozen = true;
+        }
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkMutable() {
+        if (frozen)
+            throw new UnsupportedOperationException("Array is frozen");
+    }
+
+    // called before the values are modified, so that arrays sharing them aren't affected
+    private void unshare() {
+        if (shared) {
+            values = values.clone();
+            shared = false;
+        }
     }
 
     @Override
     public @NotNull NbtIntArrayView view() {
+        if (frozen)
+            return this;
+        NbtIntArrayView view = this.view;
+        if (view == null)
+            this.view = view = new View();
         return view;
     }
 
     @Override
     public int length() {
-        return backingList.size();
+        return length;
     }
 
     @Override
     public int get(int i) {
-        return backingList.get(i);
+        PrimitiveArrays.checkIndex(i, length);
+        return values[i];
+    }
+
+    @Override
+    public @NotNull PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (i >= length)
+                    throw new NoSuchElementException();
+                return values[i++];
+            }
+        };
+    }
+
+    @Override
+    public int @NotNull [] toArray() {
+        return Arrays.copyOf(values, length);
     }
 
     @Override
-    public @NotNull Iterator<@NotNull Integer> iterator() {
-        return backingListU.iterator();
+    public void copyInto(int @NotNull [] dest, int offset) {
+        System.arraycopy(values, 0, dest, offset, length);
+    }
+
+    // the backing array, which may be longer than this element - only to be read from, up to length()
+    int @NotNull [] backingArray() {
+        return values;
     }
 
     public int set(int i, int v) {
-        return backingList.set(i, v);
+        checkMutable();
+        PrimitiveArrays.checkIndex(i, length);
+        unshare();
+        int old = values[i];
+        values[i] = v;
+        return old;
     }
 
     public boolean add(int v) {
-        return backingList.add(v);
+        checkMutable();
+        if (length == values.length) {
+            values = Arrays.copyOf(values, PrimitiveArrays.grow(values.length, length + 1));
+            // the new array is this array's own
+            shared = false;
+            wrapped = false;
+        } else
+            unshare();
+        values[length++] = v;
+        return true;
     }
 
     public int removeAt(int i) {
-        return backingList.remove(i);
+        checkMutable();
+        PrimitiveArrays.checkIndex(i, length);
+        unshare();
+        int old = values[i];
+        System.arraycopy(values, i + 1, values, i, length - i - 1);
+        length--;
+        return old;
     }
 
     public boolean remove(int v) {
-        return backingList.remove((Integer) v);
+        for (int i = 0; i < length; i++) {
+            if (values[i] == v) {
+                removeAt(i);
+                return true;
+            }
+        }
+        return false;
     }
 
+    /**
+     * Creates a copy of this array, which shares its values with this array until either of them is modified.
+     * @return copy of array
+     */
     @Override
     public @NotNull NbtIntArray copy() {
-        return new NbtIntArray(new ArrayList<>(backingList));
+        if (wrapped && !frozen)
+            // the wrapped array may still change, so the copy can't share it
+            return new NbtIntArray(toArray(), length);
+        NbtIntArray copy = new NbtIntArray(values, length);
+        copy.shared = true;
+        // frozen arrays are never modified (and may be read by other threads), so they're left alone
+        if (!frozen)
+            shared = true;
+        return copy;
     }
 
     @Override
@@ -149,19 +254,94 @@ public final class NbtIntArray implements NbtElement, NbtIntArrayView {
             return true;
         if (!(obj instanceof NbtIntArrayView))
             return false;
-        Iterator<Integer> e1 = iterator();
-        Iterator<Integer> e2 = ((NbtIntArrayView) obj).iterator();
-        while (e1.hasNext() && e2.hasNext()) {
-            int o1 = e1.next();
-            int o2 = e2.next();
-            if (o1 != o2)
+        if (obj instanceof NbtIntArray) {
+            NbtIntArray other = (NbtIntArray) obj;
+            if (other.length != length)
+                return false;
+            // both hash codes are cached once they're computed, so comparing them is cheap from then on
+            if (frozen && other.frozen && hashCode() != other.hashCode())
+                return false;
+            int[] otherValues = other.values;
+            for (int i = 0; i < length; i++) {
+                if (values[i] != otherValues[i])
+                    return false;
+            }
+            return true;
+        }
+        NbtIntArrayView other = (NbtIntArrayView) obj;
+        if (other.length() != length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (values[i] != other.get(i))
                 return false;
         }
-        return !(e1.hasNext() || e2.hasNext());
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(NbtType.INT_ARRAY, backingList);
+        int h = hash;
+        if (h == 0) {
+            int arrayHash = 1;
+            for (int i = 0; i < length; i++)
+                arrayHash = 31 * arrayHash + Integer.hashCode(values[i]);
+            h = 31 * NbtType.INT_ARRAY.hashCode() + arrayHash;
+            if (frozen)
+                hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public long cachedPayloadSize(@NotNull NbtStreamHandler streamHandler) {
+        return frozen ? CachedSize.get(cachedSize, streamHandler) : -1;
+    }
+
+    @Override
+    public void cachePayloadSize(@NotNull NbtStreamHandler streamHandler, long size) {
+        // mutable elements may change size
+        if (frozen)
+            cachedSize = new CachedSize(streamHandler, size);
+    }
+
+    private final class View implements NbtIntArrayView {
+        @Override
+        public int length() {
+            return NbtIntArray.this.length();
+        }
+
+        @Override
+        public int get(int i) {
+            return NbtIntArray.this.get(i);
+        }
+
+        @Override
+        public @NotNull PrimitiveIterator.OfInt iterator() {
+            return NbtIntArray.this.iterator();
+        }
+
+        @Override
+        public int @NotNull [] toArray() {
+            return NbtIntArray.this.toArray();
+        }
+
+        @Override
+        public void copyInto(int @NotNull [] dest, int offset) {
+            NbtIntArray.this.copyInto(dest, offset);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this)
+                return true;
+            if (!(obj instanceof NbtIntArrayView))
+                return false;
+            return NbtIntArray.this.equals(obj);
+        }
+
+        @Override
+        public int hashCode() {
+            return NbtIntArray.this.hashCode();
+        }
     }
 }
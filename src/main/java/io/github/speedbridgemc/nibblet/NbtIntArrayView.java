@@ -3,7 +3,7 @@ package io.github.speedbridgemc.nibblet;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Iterator;
+import java.util.PrimitiveIterator;
 
 public interface NbtIntArrayView extends NbtElement, Iterable<@NotNull Integer> {
     @ApiStatus.NonExtendable
@@ -15,7 +15,7 @@ public interface NbtIntArrayView extends NbtElement, Iterable<@NotNull Integer>
     int length();
     int get(int i);
     @Override
-    @NotNull Iterator<@NotNull Integer> iterator();
+    @NotNull PrimitiveIterator.OfInt iterator();
 
     default int @NotNull [] toArray() {
         int[] array = new int[length()];
@@ -24,6 +24,20 @@ public interface NbtIntArrayView extends NbtElement, Iterable<@NotNull Integer>
         return array;
     }
 
+    /**
+     * Copies this array's values into another array.
+     * @param dest array to copy to
+     * @param offset index in {@code dest} to copy the first value to
+     * @throws IndexOutOfBoundsException if {@code dest} is too short to hold every value from {@code offset}.
+     */
+    default void copyInto(int @NotNull [] dest, int offset) {
+        int length = length();
+        if (offset < 0 || offset > dest.length - length)
+            throw new IndexOutOfBoundsException("Can't copy " + length + " values into array of length " + dest.length + " at offset " + offset);
+        for (int i = 0; i < length; i++)
+            dest[offset + i] = get(i);
+    }
+
     @Override
     default @NotNull NbtIntArrayView view() {
         return this;
@@ -33,4 +47,9 @@ public interface NbtIntArrayView extends NbtElement, Iterable<@NotNull Integer>
     default @NotNull NbtIntArrayView copy() {
         return this;
     }
+
+    @Override
+    default @NotNull NbtIntArrayView freeze() {
+        return NbtIntArray.wrap(toArray()).freeze();
+    }
 }
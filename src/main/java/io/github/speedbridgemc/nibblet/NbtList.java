@@ -1,30 +1,38 @@
 package io.github.speedbridgemc.nibblet;
 
+import io.github.speedbridgemc.nibblet.stream.NbtStreamHandler;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.lang.reflect.Array;
 import java.util.*;
 
-public final class NbtList implements NbtElement, NbtListView {
+/**
+ * A mutable list element.<p>
+ * Lists of numbers store their items in an array of the item type's primitive ({@code double[]} for lists of doubles,
+ * {@code int[]} for lists of ints, and so on), and only create elements for them when they're accessed as elements.
+ * The primitive accessors ({@link #getDouble(int, double)}, {@link #setDouble(int, double)},
+ * {@link #toDoubleArray()}...) never create elements.<p>
+ * Once {@linkplain #freeze() frozen}, a list can't be modified anymore, and neither can its items. Frozen lists are
+ * their own views, and create every item's element once, instead of on each access. They also remember their hash
+ * code and {@linkplain NbtIO#sizeOf(NbtElement, NbtStreamHandler) size}.<p>
+ * Like {@link NbtObject}s, copies share their items with the list they're copied from until either of them is
+ * modified, and deep copies only copy frozen items once they're accessed through the copy.
+ */
+public final class NbtList implements NbtElement, SizeCachingElement, NbtListView {
     public static final class Builder {
-        private final ArrayList<NbtElement> backingList;
-        private NbtType itemType;
+        private final NbtList list;
 
         private Builder() {
-            backingList = new ArrayList<>();
-            itemType = NbtType.END;
+            list = new NbtList();
         }
 
         private Builder(int initialCapacity) {
-            backingList = new ArrayList<>(initialCapacity);
-            itemType = NbtType.END;
+            list = new NbtList(initialCapacity);
         }
 
         public @NotNull Builder add(@NotNull NbtElement value) {
-            if (itemType == NbtType.END)
-                itemType = value.type();
-            else if (!value.isOf(itemType))
-                throw new IllegalArgumentException("Tried to add tag of type " + value.type() + " to list of type " + itemType + "!");
-            backingList.add(value);
+            list.add(value);
             return this;
         }
 
@@ -36,31 +44,38 @@ public final class NbtList implements NbtElement, NbtListView {
         }
 
         public @NotNull Builder addByte(byte value) {
-            return add(NbtByte.of(value));
+            list.addByte(value);
+            return this;
         }
 
         public @NotNull Builder addBoolean(boolean value) {
-            return add(NbtByte.of((byte) (value ? 1 : 0)));
+            list.addBoolean(value);
+            return this;
         }
 
         public @NotNull Builder addShort(short value) {
-            return add(NbtShort.of(value));
+            list.addShort(value);
+            return this;
         }
 
         public @NotNull Builder addInt(int value) {
-            return add(NbtInt.of(value));
+            list.addInt(value);
+            return this;
         }
 
         public @NotNull Builder addLong(long value) {
-            return add(NbtLong.of(value));
+            list.addLong(value);
+            return this;
         }
 
         public @NotNull Builder addFloat(float value) {
-            return add(NbtFloat.of(value));
+            list.addFloat(value);
+            return this;
         }
 
         public @NotNull Builder addDouble(double value) {
-            return add(NbtDouble.of(value));
+            list.addDouble(value);
+            return this;
         }
 
         public @NotNull Builder addByteArray(byte @NotNull ... values) {
@@ -80,7 +95,7 @@ public final class NbtList implements NbtElement, NbtListView {
         }
 
         public @NotNull NbtList build() {
-            return new NbtList(itemType, new ArrayList<>(backingList));
+            return list.copy();
         }
     }
 
@@ -92,70 +107,48 @@ public final class NbtList implements NbtElement, NbtListView {
         return new Builder(initialCapacity);
     }
 
-    private final ArrayList<NbtElement> backingList;
-    private final List<NbtElement> backingListU;
-    private NbtType itemType;
-    private final NbtListView view;
-
-    private NbtList(@NotNull NbtType itemType, @NotNull ArrayList<@NotNull NbtElement> backingList) {
-        this.backingList = backingList;
-        backingListU = Collections.unmodifiableList(backingList);
+    private static final @NotNull NbtElement @NotNull [] NO_ELEMENTS = new NbtElement[0];
+
+    private @NotNull NbtType itemType;
+    // an array of the item type's primitive for lists of numbers, or an NbtElement[] for everything else
+    // (including empty lists without an item type)
+    private @NotNull Object items;
+    private int size;
+    // the items are shared with copies of this list (or with the list this is a copy of), so they're copied before
+    // they're modified
+    private boolean shared;
+    // some of the items are frozen elements shared with the list this is a deep copy of, which stand in for their own
+    // deep copies - each is replaced with its deep copy the first time it's accessed
+    private boolean deferredCopies;
+    private boolean frozen;
+    // the hash code of a frozen list, once it's been computed (0 until then)
+    private int hash;
+    // the payload size of a frozen list, once it's been computed
+    private @Nullable CachedSize cachedSize;
+    private @Nullable NbtListView view;
+    // the items of a frozen list of numbers, created the first time they're iterated over
+    private volatile @NotNull NbtElement @Nullable [] frozenElements;
+
+    private NbtList(@NotNull NbtType itemType, @NotNull Object items, int size) {
         this.itemType = itemType;
-        view = new NbtListView() {
-            @Override
-            public @NotNull NbtType itemType() {
-                return NbtList.this.itemType();
-            }
-
-            @Override
-            public int size() {
-                return NbtList.this.size();
-            }
-
-            @Override
-            public @NotNull NbtElement get(int i) {
-                return NbtList.this.get(i).view();
-            }
-
-            @Override
-            public @NotNull Iterator<@NotNull NbtElement> iterator() {
-                return new Iterator<NbtElement>() {
-                    private final Iterator<NbtElement> delegate = NbtList.this.iterator();
-
-                    @Override
-                    public boolean hasNext() {
-                        return delegate.hasNext();
-                    }
-
-                    @Override
-                    public NbtElement next() {
-                        NbtElement next = delegate.next();
-                        if (next == null)
-                            return null;
-                        return next.view();
-                    }
-                };
-            }
+        this.items = items;
+        this.size = size;
+    }
 
-            @SuppressWarnings("EqualsWhichDoesntCheckParameterClass")
-            @Override
-            public boolean equals(Object obj) {
-                return NbtList.this.equals(obj);
-            }
+    private NbtList() {
+        this(NbtType.END, NO_ELEMENTS, 0);
+    }
 
-            @Override
-            public int hashCode() {
-                return NbtList.this.hashCode();
-            }
-        };
+    private NbtList(int initialCapacity) {
+        this(NbtType.END, new NbtElement[initialCapacity], 0);
     }
 
     public static @NotNull NbtList create() {
-        return new NbtList(NbtType.END, new ArrayList<>());
+        return new NbtList();
     }
 
     public static @NotNull NbtList create(int initialCapacity) {
-        return new NbtList(NbtType.END, new ArrayList<>(initialCapacity));
+        return new NbtList(initialCapacity);
     }
 
     @SafeVarargs
@@ -173,8 +166,264 @@ public final class NbtList implements NbtElement, NbtListView {
         return builder.build();
     }
 
+    public static @NotNull NbtList ofBytes(byte @NotNull ... values) {
+        return new NbtList(NbtType.BYTE, values.clone(), values.length);
+    }
+
+    public static @NotNull NbtList ofShorts(short @NotNull ... values) {
+        return new NbtList(NbtType.SHORT, values.clone(), values.length);
+    }
+
+    public static @NotNull NbtList ofInts(int @NotNull ... values) {
+        return new NbtList(NbtType.INT, values.clone(), values.length);
+    }
+
+    public static @NotNull NbtList ofLongs(long @NotNull ... values) {
+        return new NbtList(NbtType.LONG, values.clone(), values.length);
+    }
+
+    public static @NotNull NbtList ofFloats(float @NotNull ... values) {
+        return new NbtList(NbtType.FLOAT, values.clone(), values.length);
+    }
+
+    public static @NotNull NbtList ofDoubles(double @NotNull ... values) {
+        return new NbtList(NbtType.DOUBLE, values.clone(), values.length);
+    }
+
+    // a list that takes ownership of an array of the item type's primitive (or of elements), holding size items
+    static @NotNull NbtList wrapItems(@NotNull NbtType itemType, @NotNull Object items, int size) {
+        if (size == 0)
+            return new NbtList();
+        return new NbtList(itemType, items, size);
+    }
+
+    // a frozen copy of a view, whose items are frozen as well - copying them if they're views themselves
+    static @NotNull NbtList frozenCopyOf(@NotNull NbtListView view) {
+        NbtType itemType = view.itemType();
+        NbtList list = new NbtList(itemType, newItems(itemType, view.size()), 0);
+        for (NbtElement item : view)
+            list.add(item.freeze());
+        return list.freeze();
+    }
+
+    private static @NotNull Object newItems(@NotNull NbtType itemType, int capacity) {
+        switch (itemType) {
+        case BYTE:
+            return new byte[capacity];
+        case SHORT:
+            return new short[capacity];
+        case INT:
+            return new int[capacity];
+        case LONG:
+            return new long[capacity];
+        case FLOAT:
+            return new float[capacity];
+        case DOUBLE:
+            return new double[capacity];
+        default:
+            return new NbtElement[capacity];
+        }
+    }
+
+    private void resize(int capacity) {
+        Object newItems = newItems(itemType, capacity);
+        System.arraycopy(items, 0, newItems, 0, size);
+        items = newItems;
+        shared = false;
+    }
+
+    // called before the items are modified, so that lists sharing them aren't affected
+    private void unshare() {
+        if (shared)
+            resize(Array.getLength(items));
+    }
+
+    // the items, for modifying them
+    private @NotNull Object writableItems() {
+        unshare();
+        return items;
+    }
+
+    // makes room for more items - which also makes sure they aren't shared
+    private void ensureCapacity(int minCapacity) {
+        int capacity = Array.getLength(items);
+        if (minCapacity > capacity)
+            resize(PrimitiveArrays.grow(capacity, Math.max(minCapacity, PrimitiveArrays.DEFAULT_CAPACITY)));
+        else
+            unshare();
+    }
+
+    // the element of item i to be handed out - a deferred copy is replaced with its deep copy first
+    private @NotNull NbtElement exposedElementAt(int i) {
+        NbtElement element = elementAt(i);
+        if (deferredCopies && DeepCopies.isDeferred(element)) {
+            element = element.deepCopy();
+            ((NbtElement[]) writableItems())[i] = element;
+        }
+        return element;
+    }
+
+    // replaces all deferred copies with their deep copies
+    private void copyDeferred() {
+        if (!deferredCopies)
+            return;
+        NbtElement[] elements = (NbtElement[]) writableItems();
+        for (int i = 0; i < size; i++) {
+            if (DeepCopies.isDeferred(elements[i]))
+                elements[i] = elements[i].deepCopy();
+        }
+        deferredCopies = false;
+    }
+
+    // the element of item i as it's stored - only for reading it, since it may be a deferred copy
+    @NotNull NbtElement elementAt(int i) {
+        switch (itemType) {
+        case BYTE:
+            return NbtByte.of(((byte[]) items)[i]);
+        case SHORT:
+            return NbtShort.of(((short[]) items)[i]);
+        case INT:
+            return NbtInt.of(((int[]) items)[i]);
+        case LONG:
+            return NbtLong.of(((long[]) items)[i]);
+        case FLOAT:
+            return NbtFloat.of(((float[]) items)[i]);
+        case DOUBLE:
+            return NbtDouble.of(((double[]) items)[i]);
+        default:
+            //noinspection ConstantConditions - elements are set up to size
+            return ((NbtElement[]) items)[i];
+        }
+    }
+
+    // stores an item, which must be of the item type
+    private void store(int i, @NotNull NbtElement item) {
+        switch (itemType) {
+        case BYTE:
+            ((byte[]) items)[i] = ((NbtByte) item).value();
+            break;
+        case SHORT:
+            ((short[]) items)[i] = ((NbtShort) item).value();
+            break;
+        case INT:
+            ((int[]) items)[i] = ((NbtInt) item).value();
+            break;
+        case LONG:
+            ((long[]) items)[i] = ((NbtLong) item).value();
+            break;
+        case FLOAT:
+            ((float[]) items)[i] = ((NbtFloat) item).value();
+            break;
+        case DOUBLE:
+            ((double[]) items)[i] = ((NbtDouble) item).value();
+            break;
+        default:
+            ((NbtElement[]) items)[i] = item;
+            break;
+        }
+    }
+
+    private boolean itemEquals(int i, @NotNull NbtElement item) {
+        switch (itemType) {
+        case BYTE:
+            return item instanceof NbtByte && ((NbtByte) item).value() == ((byte[]) items)[i];
+        case SHORT:
+            return item instanceof NbtShort && ((NbtShort) item).value() == ((short[]) items)[i];
+        case INT:
+            return item instanceof NbtInt && ((NbtInt) item).value() == ((int[]) items)[i];
+        case LONG:
+            return item instanceof NbtLong && ((NbtLong) item).value() == ((long[]) items)[i];
+        case FLOAT:
+            return item instanceof NbtFloat
+                    && Float.floatToIntBits(((NbtFloat) item).value()) == Float.floatToIntBits(((float[]) items)[i]);
+        case DOUBLE:
+            return item instanceof NbtDouble
+                    && Double.doubleToLongBits(((NbtDouble) item).value()) == Double.doubleToLongBits(((double[]) items)[i]);
+        default:
+            NbtElement element = ((NbtElement[]) items)[i];
+            //noinspection ConstantConditions - elements are set up to size
+            return element == item || element.equals(item);
+        }
+    }
+
+    // same as the hash code of the item's element
+    private int itemHashCode(int i) {
+        switch (itemType) {
+        case BYTE:
+            return 31 * (31 + NbtType.BYTE.hashCode()) + Byte.hashCode(((byte[]) items)[i]);
+        case SHORT:
+            return 31 * (31 + NbtType.SHORT.hashCode()) + Short.hashCode(((short[]) items)[i]);
+        case INT:
+            return 31 * (31 + NbtType.INT.hashCode()) + Integer.hashCode(((int[]) items)[i]);
+        case LONG:
+            return 31 * (31 + NbtType.LONG.hashCode()) + Long.hashCode(((long[]) items)[i]);
+        case FLOAT:
+            return 31 * (31 + NbtType.FLOAT.hashCode()) + Float.hashCode(((float[]) items)[i]);
+        case DOUBLE:
+            return 31 * (31 + NbtType.DOUBLE.hashCode()) + Double.hashCode(((double[]) items)[i]);
+        default:
+            //noinspection ConstantConditions - elements are set up to size
+            return ((NbtElement[]) items)[i].hashCode();
+        }
+    }
+
+    /**
+     * Freezes this list and all of its items, so that none of them can be modified anymore.<p>
+     * Items that are views of other elements are replaced with frozen copies, since the elements behind them can't be
+     * frozen through their views.
+     * @return this list
+     */
+    @Override
+    public @NotNull NbtList freeze() {
+        if (frozen)
+            return this;
+        if (Array.getLength(items) != size)
+            resize(size);
+        if (items instanceof NbtElement[]) {
+            for (int i = 0; i < size; i++) {
+                NbtElement element = ((NbtElement[]) items)[i];
+                NbtElement frozenElement = element.freeze();
+                if (frozenElement != element)
+                    ((NbtElement[]) writableItems())[i] = frozenElement;
+            }
+        }
+        // deferred copies are frozen already, so they can stay as they are
+        deferredCopies = false;
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkMutable() {
+        if (frozen)
+            throw new UnsupportedOperationException("List is frozen");
+    }
+
+    private @NotNull NbtElement @NotNull [] frozenElements() {
+        if (items instanceof NbtElement[])
+            // already trimmed to size by freeze()
+            return (NbtElement[]) items;
+        NbtElement[] elements = frozenElements;
+        if (elements == null) {
+            // racing threads may each create the elements, but they're all equal
+            elements = new NbtElement[size];
+            for (int i = 0; i < size; i++)
+                elements[i] = elementAt(i);
+            frozenElements = elements;
+        }
+        return elements;
+    }
+
     @Override
     public @NotNull NbtListView view() {
+        if (frozen)
+            return this;
+        NbtListView view = this.view;
+        if (view == null)
+            this.view = view = new View();
         return view;
     }
 
@@ -185,54 +434,336 @@ public final class NbtList implements NbtElement, NbtListView {
 
     @Override
     public int size() {
-        return backingList.size();
+        return size;
     }
 
     @Override
     public @NotNull NbtElement get(int i) {
-        return backingList.get(i);
+        PrimitiveArrays.checkIndex(i, size);
+        if (frozen) {
+            // reuse the item's element, if it's been created already
+            NbtElement[] elements = items instanceof NbtElement[] ? (NbtElement[]) items : frozenElements;
+            if (elements != null)
+                return elements[i];
+        }
+        return exposedElementAt(i);
+    }
+
+    @Override
+    public byte getByte(int i, byte defaultValue) {
+        PrimitiveArrays.checkIndex(i, size);
+        switch (itemType) {
+        case BYTE:
+            return ((byte[]) items)[i];
+        case SHORT:
+            return (byte) ((short[]) items)[i];
+        case INT:
+            return (byte) ((int[]) items)[i];
+        case LONG:
+            return (byte) ((long[]) items)[i];
+        case FLOAT:
+            return (byte) ((float[]) items)[i];
+        case DOUBLE:
+            return (byte) ((double[]) items)[i];
+        default:
+            return NbtListView.super.getByte(i, defaultValue);
+        }
+    }
+
+    @Override
+    public boolean getBoolean(int i, boolean defaultValue) {
+        if (itemType.isNumber())
+            return getByte(i, (byte) 0) > 0;
+        return NbtListView.super.getBoolean(i, defaultValue);
+    }
+
+    @Override
+    public short getShort(int i, short defaultValue) {
+        PrimitiveArrays.checkIndex(i, size);
+        switch (itemType) {
+        case BYTE:
+            return ((byte[]) items)[i];
+        case SHORT:
+            return ((short[]) items)[i];
+        case INT:
+            return (short) ((int[]) items)[i];
+        case LONG:
+            return (short) ((long[]) items)[i];
+        case FLOAT:
+            return (short) ((float[]) items)[i];
+        case DOUBLE:
+            return (short) ((double[]) items)[i];
+        default:
+            return NbtListView.super.getShort(i, defaultValue);
+        }
+    }
+
+    @Override
+    public int getInt(int i, int defaultValue) {
+        PrimitiveArrays.checkIndex(i, size);
+        switch (itemType) {
+        case BYTE:
+            return ((byte[]) items)[i];
+        case SHORT:
+            return ((short[]) items)[i];
+        case INT:
+            return ((int[]) items)[i];
+        case LONG:
+            return (int) ((long[]) items)[i];
+        case FLOAT:
+            return (int) ((float[]) items)[i];
+        case DOUBLE:
+            return (int) ((double[]) items)[i];
+        default:
+            return NbtListView.super.getInt(i, defaultValue);
+        }
+    }
+
+    @Override
+    public long getLong(int i, long defaultValue) {
+        PrimitiveArrays.checkIndex(i, size);
+        switch (itemType) {
+        case BYTE:
+            return ((byte[]) items)[i];
+        case SHORT:
+            return ((short[]) items)[i];
+        case INT:
+            return ((int[]) items)[i];
+        case LONG:
+            return ((long[]) items)[i];
+        case FLOAT:
+            return (long) ((float[]) items)[i];
+        case DOUBLE:
+            return (long) ((double[]) items)[i];
+        default:
+            return NbtListView.super.getLong(i, defaultValue);
+        }
+    }
+
+    @Override
+    public float getFloat(int i, float defaultValue) {
+        PrimitiveArrays.checkIndex(i, size);
+        switch (itemType) {
+        case BYTE:
+            return ((byte[]) items)[i];
+        case SHORT:
+            return ((short[]) items)[i];
+        case INT:
+            return ((int[]) items)[i];
+        case LONG:
+            return ((long[]) items)[i];
+        case FLOAT:
+            return ((float[]) items)[i];
+        case DOUBLE:
+            return (float) ((double[]) items)[i];
+        default:
+            return NbtListView.super.getFloat(i, defaultValue);
+        }
+    }
+
+    @Override
+    public double getDouble(int i, double defaultValue) {
+        PrimitiveArrays.checkIndex(i, size);
+        switch (itemType) {
+        case BYTE:
+            return ((byte[]) items)[i];
+        case SHORT:
+            return ((short[]) items)[i];
+        case INT:
+            return ((int[]) items)[i];
+        case LONG:
+            return ((long[]) items)[i];
+        case FLOAT:
+            return ((float[]) items)[i];
+        case DOUBLE:
+            return ((double[]) items)[i];
+        default:
+            return NbtListView.super.getDouble(i, defaultValue);
+        }
+    }
+
+    private void checkNumbers() {
+        if (size > 0 && !itemType.isNumber())
+            throw new IllegalStateException("List of " + itemType + " doesn't hold numbers");
+    }
+
+    /**
+     * Gets the values of this list's items, converted to bytes.
+     * @return values
+     * @throws IllegalStateException if the list holds items that aren't numbers.
+     */
+    public byte @NotNull [] toByteArray() {
+        checkNumbers();
+        if (itemType == NbtType.BYTE)
+            return Arrays.copyOf((byte[]) items, size);
+        byte[] values = new byte[size];
+        for (int i = 0; i < size; i++)
+            values[i] = getByte(i, (byte) 0);
+        return values;
+    }
+
+    /**
+     * Gets the values of this list's items, converted to shorts.
+     * @return values
+     * @throws IllegalStateException if the list holds items that aren't numbers.
+     */
+    public short @NotNull [] toShortArray() {
+        checkNumbers();
+        if (itemType == NbtType.SHORT)
+            return Arrays.copyOf((short[]) items, size);
+        short[] values = new short[size];
+        for (int i = 0; i < size; i++)
+            values[i] = getShort(i, (short) 0);
+        return values;
+    }
+
+    /**
+     * Gets the values of this list's items, converted to ints.
+     * @return values
+     * @throws IllegalStateException if the list holds items that aren't numbers.
+     */
+    public int @NotNull [] toIntArray() {
+        checkNumbers();
+        if (itemType == NbtType.INT)
+            return Arrays.copyOf((int[]) items, size);
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++)
+            values[i] = getInt(i, 0);
+        return values;
+    }
+
+    /**
+     * Gets the values of this list's items, converted to longs.
+     * @return values
+     * @throws IllegalStateException if the list holds items that aren't numbers.
+     */
+    public long @NotNull [] toLongArray() {
+        checkNumbers();
+        if (itemType == NbtType.LONG)
+            return Arrays.copyOf((long[]) items, size);
+        long[] values = new long[size];
+        for (int i = 0; i < size; i++)
+            values[i] = getLong(i, 0);
+        return values;
+    }
+
+    /**
+     * Gets the values of this list's items, converted to floats.
+     * @return values
+     * @throws IllegalStateException if the list holds items that aren't numbers.
+     */
+    public float @NotNull [] toFloatArray() {
+        checkNumbers();
+        if (itemType == NbtType.FLOAT)
+            return Arrays.copyOf((float[]) items, size);
+        float[] values = new float[size];
+        for (int i = 0; i < size; i++)
+            values[i] = getFloat(i, 0);
+        return values;
+    }
+
+    /**
+     * Gets the values of this list's items, converted to doubles.
+     * @return values
+     * @throws IllegalStateException if the list holds items that aren't numbers.
+     */
+    public double @NotNull [] toDoubleArray() {
+        checkNumbers();
+        if (itemType == NbtType.DOUBLE)
+            return Arrays.copyOf((double[]) items, size);
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++)
+            values[i] = getDouble(i, 0);
+        return values;
     }
 
     private void checkItem(@NotNull NbtElement nbt) {
+        checkMutable();
         if (nbt == this)
             throw new IllegalArgumentException("Can't add list to itself!");
         if (itemType == NbtType.END)
-            itemType = nbt.type();
+            setItemType(nbt.type());
         else if (!nbt.isOf(itemType))
             throw new IllegalArgumentException("Tried to add tag of type " + nbt.type() + " to list of type " + itemType + "!");
+        if (deferredCopies && DeepCopies.isDeferred(nbt))
+            // it would pass for a deferred copy otherwise
+            copyDeferred();
+    }
+
+    // checks if a number can be stored as is - if it can't, it's added/set as an element, which fails the usual way
+    private boolean checkItemType(@NotNull NbtType type) {
+        checkMutable();
+        if (itemType == NbtType.END)
+            setItemType(type);
+        return itemType == type;
+    }
+
+    // only called while the list is empty - switches to the item type's storage
+    private void setItemType(@NotNull NbtType type) {
+        itemType = type;
+        if (type.isNumber())
+            items = newItems(type, Array.getLength(items));
     }
 
     public @NotNull NbtElement set(int i, @NotNull NbtElement v) {
+        PrimitiveArrays.checkIndex(i, size);
         checkItem(v);
-        return backingList.set(i, v);
+        NbtElement old = exposedElementAt(i);
+        unshare();
+        store(i, v);
+        return old;
     }
 
     public void setByte(int i, byte value) {
-        set(i, NbtByte.of(value));
+        PrimitiveArrays.checkIndex(i, size);
+        if (checkItemType(NbtType.BYTE))
+            ((byte[]) writableItems())[i] = value;
+        else
+            set(i, NbtByte.of(value));
     }
 
     public void setBoolean(int i, boolean value) {
-        set(i, NbtByte.of((byte) (value ? 1 : 0)));
+        setByte(i, (byte) (value ? 1 : 0));
     }
 
     public void setShort(int i, short value) {
-        set(i, NbtShort.of(value));
+        PrimitiveArrays.checkIndex(i, size);
+        if (checkItemType(NbtType.SHORT))
+            ((short[]) writableItems())[i] = value;
+        else
+            set(i, NbtShort.of(value));
     }
 
     public void setInt(int i, int value) {
-        set(i, NbtInt.of(value));
+        PrimitiveArrays.checkIndex(i, size);
+        if (checkItemType(NbtType.INT))
+            ((int[]) writableItems())[i] = value;
+        else
+            set(i, NbtInt.of(value));
     }
 
     public void setLong(int i, long value) {
-        set(i, NbtLong.of(value));
+        PrimitiveArrays.checkIndex(i, size);
+        if (checkItemType(NbtType.LONG))
+            ((long[]) writableItems())[i] = value;
+        else
+            set(i, NbtLong.of(value));
     }
 
     public void setFloat(int i, float value) {
-        set(i, NbtFloat.of(value));
+        PrimitiveArrays.checkIndex(i, size);
+        if (checkItemType(NbtType.FLOAT))
+            ((float[]) writableItems())[i] = value;
+        else
+            set(i, NbtFloat.of(value));
     }
 
     public void setDouble(int i, double value) {
-        set(i, NbtDouble.of(value));
+        PrimitiveArrays.checkIndex(i, size);
+        if (checkItemType(NbtType.DOUBLE))
+            ((double[]) writableItems())[i] = value;
+        else
+            set(i, NbtDouble.of(value));
     }
 
     public void setByteArray(int i, byte @NotNull ... values) {
@@ -253,35 +784,67 @@ public final class NbtList implements NbtElement, NbtListView {
 
     public boolean add(@NotNull NbtElement v) {
         checkItem(v);
-        return backingList.add(v);
+        ensureCapacity(size + 1);
+        store(size++, v);
+        return true;
     }
 
     public void addByte(byte value) {
-        add(NbtByte.of(value));
+        if (!checkItemType(NbtType.BYTE)) {
+            add(NbtByte.of(value));
+            return;
+        }
+        ensureCapacity(size + 1);
+        ((byte[]) items)[size++] = value;
     }
 
     public void addBoolean(boolean value) {
-        add(NbtByte.of((byte) (value ? 1 : 0)));
+        addByte((byte) (value ? 1 : 0));
     }
 
     public void addShort(short value) {
-        add(NbtShort.of(value));
+        if (!checkItemType(NbtType.SHORT)) {
+            add(NbtShort.of(value));
+            return;
+        }
+        ensureCapacity(size + 1);
+        ((short[]) items)[size++] = value;
     }
 
     public void addInt(int value) {
-        add(NbtInt.of(value));
+        if (!checkItemType(NbtType.INT)) {
+            add(NbtInt.of(value));
+            return;
+        }
+        ensureCapacity(size + 1);
+        ((int[]) items)[size++] = value;
     }
 
     public void addLong(long value) {
-        add(NbtLong.of(value));
+        if (!checkItemType(NbtType.LONG)) {
+            add(NbtLong.of(value));
+            return;
+        }
+        ensureCapacity(size + 1);
+        ((long[]) items)[size++] = value;
     }
 
     public void addFloat(float value) {
-        add(NbtFloat.of(value));
+        if (!checkItemType(NbtType.FLOAT)) {
+            add(NbtFloat.of(value));
+            return;
+        }
+        ensureCapacity(size + 1);
+        ((float[]) items)[size++] = value;
     }
 
     public void addDouble(double value) {
-        add(NbtDouble.of(value));
+        if (!checkItemType(NbtType.DOUBLE)) {
+            add(NbtDouble.of(value));
+            return;
+        }
+        ensureCapacity(size + 1);
+        ((double[]) items)[size++] = value;
     }
 
     public void addByteArray(byte @NotNull ... values) {
@@ -301,11 +864,26 @@ public final class NbtList implements NbtElement, NbtListView {
     }
 
     public @NotNull NbtElement removeAt(int i) {
-        return backingList.remove(i);
+        checkMutable();
+        PrimitiveArrays.checkIndex(i, size);
+        NbtElement old = exposedElementAt(i);
+        unshare();
+        System.arraycopy(items, i + 1, items, i, size - i - 1);
+        size--;
+        if (items instanceof NbtElement[])
+            ((NbtElement[]) items)[size] = null;
+        return old;
     }
 
     public boolean remove(@NotNull NbtElement v) {
-        return backingList.remove(v);
+        checkMutable();
+        for (int i = 0; i < size; i++) {
+            if (itemEquals(i, v)) {
+                removeAt(i);
+                return true;
+            }
+        }
+        return false;
     }
 
     public <T extends NbtElement> boolean addAll(@NotNull Iterable<@NotNull T> values) {
@@ -316,26 +894,83 @@ public final class NbtList implements NbtElement, NbtListView {
     }
 
     public void clear() {
-        backingList.clear();
+        checkMutable();
+        items = NO_ELEMENTS;
+        size = 0;
         itemType = NbtType.END;
+        shared = false;
+        deferredCopies = false;
     }
 
     @Override
     public @NotNull Iterator<@NotNull NbtElement> iterator() {
-        return backingListU.iterator();
+        final NbtElement[] elements = frozen ? frozenElements() : null;
+        return new Iterator<NbtElement>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < size;
+            }
+
+            @Override
+            public NbtElement next() {
+                if (i >= size)
+                    throw new NoSuchElementException();
+                return elements != null ? elements[i++] : exposedElementAt(i++);
+            }
+        };
+    }
+
+    // a copy holding the given items, which are shared with this list if they're its own items
+    private @NotNull NbtList copyWith(@NotNull Object items) {
+        NbtList copy = new NbtList(itemType, items, size);
+        if (items == this.items) {
+            copy.shared = true;
+            // frozen lists are never modified (and may be read by other threads), so they're left alone
+            if (!frozen)
+                shared = true;
+        }
+        return copy;
     }
 
     @Override
     public @NotNull NbtList copy() {
-        return new NbtList(itemType, backingList);
+        // both lists hold the same elements, so deferred copies have to become elements of their own first
+        copyDeferred();
+        return copyWith(items);
     }
 
     @Override
     public @NotNull NbtList deepCopy() {
-        NbtList.Builder builder = builder(backingList.size());
-        for (NbtElement nbt : this)
-            builder.add(nbt.deepCopy());
-        return builder.build();
+        Object items = this.items;
+        boolean deferred = false;
+        if (items instanceof NbtElement[]) {
+            // the items of frozen lists are all frozen or immutable, so they can all be shared
+            deferred = frozen;
+            if (!frozen) {
+                NbtElement[] elements = (NbtElement[]) items;
+                NbtElement[] copiedElements = null;
+                for (int i = 0; i < size; i++) {
+                    NbtElement element = elements[i];
+                    if (DeepCopies.isDeferred(element)) {
+                        deferred = true;
+                        continue;
+                    }
+                    NbtElement copy = element.deepCopy();
+                    if (copy != element) {
+                        if (copiedElements == null)
+                            copiedElements = elements.clone();
+                        copiedElements[i] = copy;
+                    }
+                }
+                if (copiedElements != null)
+                    items = copiedElements;
+            }
+        }
+        NbtList copy = copyWith(items);
+        copy.deferredCopies = deferred;
+        return copy;
     }
 
     @Override
@@ -344,19 +979,163 @@ public final class NbtList implements NbtElement, NbtListView {
             return true;
         if (!(obj instanceof NbtListView))
             return false;
-        Iterator<NbtElement> e1 = iterator();
-        Iterator<NbtElement> e2 = ((NbtListView) obj).iterator();
-        while (e1.hasNext() && e2.hasNext()) {
-            NbtElement o1 = e1.next();
-            NbtElement o2 = e2.next();
-            if (!Objects.equals(o1, o2))
+        NbtListView other = (NbtListView) obj;
+        if (other.size() != size)
+            return false;
+        if (other instanceof NbtList) {
+            NbtList otherList = (NbtList) other;
+            // both hash codes are cached once they're computed, so comparing them is cheap from then on
+            if (frozen && otherList.frozen && hashCode() != otherList.hashCode())
+                return false;
+        }
+        if (other instanceof NbtList && ((NbtList) other).itemType == itemType && itemType.isNumber()) {
+            // compare the values directly, the same way the number elements do (bitwise, for floats and doubles)
+            Object otherItems = ((NbtList) other).items;
+            for (int i = 0; i < size; i++) {
+                if (!sameValue(otherItems, i))
+                    return false;
+            }
+            return true;
+        }
+        if (other instanceof NbtList) {
+            // reads the other list's items as they're stored, without copying its deferred copies
+            NbtList otherList = (NbtList) other;
+            for (int i = 0; i < size; i++) {
+                if (!itemEquals(i, otherList.elementAt(i)))
+                    return false;
+            }
+            return true;
+        }
+        Iterator<NbtElement> it = other.iterator();
+        for (int i = 0; i < size; i++) {
+            if (!itemEquals(i, it.next()))
                 return false;
         }
-        return !(e1.hasNext() || e2.hasNext());
+        return true;
+    }
+
+    // checks if the items of another list of the same number type hold the same value at i
+    private boolean sameValue(@NotNull Object otherItems, int i) {
+        switch (itemType) {
+        case BYTE:
+            return ((byte[]) items)[i] == ((byte[]) otherItems)[i];
+        case SHORT:
+            return ((short[]) items)[i] == ((short[]) otherItems)[i];
+        case INT:
+            return ((int[]) items)[i] == ((int[]) otherItems)[i];
+        case LONG:
+            return ((long[]) items)[i] == ((long[]) otherItems)[i];
+        case FLOAT:
+            return Float.floatToIntBits(((float[]) items)[i]) == Float.floatToIntBits(((float[]) otherItems)[i]);
+        default:
+            return Double.doubleToLongBits(((double[]) items)[i]) == Double.doubleToLongBits(((double[]) otherItems)[i]);
+        }
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(NbtType.LIST, backingList);
+        int h = hash;
+        if (h == 0) {
+            // same as the hash code of a List of the items
+            int listHash = 1;
+            for (int i = 0; i < size; i++)
+                listHash = 31 * listHash + itemHashCode(i);
+            h = 31 * (31 + NbtType.LIST.hashCode()) + listHash;
+            if (frozen)
+                hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public long cachedPayloadSize(@NotNull NbtStreamHandler streamHandler) {
+        return frozen ? CachedSize.get(cachedSize, streamHandler) : -1;
+    }
+
+    @Override
+    public void cachePayloadSize(@NotNull NbtStreamHandler streamHandler, long size) {
+        // mutable elements may change size
+        if (frozen)
+            cachedSize = new CachedSize(streamHandler, size);
+    }
+
+    private final class View implements NbtListView {
+        @Override
+        public @NotNull NbtType itemType() {
+            return NbtList.this.itemType();
+        }
+
+        @Override
+        public int size() {
+            return NbtList.this.size();
+        }
+
+        @Override
+        public @NotNull NbtElement get(int i) {
+            return NbtList.this.get(i).view();
+        }
+
+        @Override
+        public byte getByte(int i, byte defaultValue) {
+            return NbtList.this.getByte(i, defaultValue);
+        }
+
+        @Override
+        public boolean getBoolean(int i, boolean defaultValue) {
+            return NbtList.this.getBoolean(i, defaultValue);
+        }
+
+        @Override
+        public short getShort(int i, short defaultValue) {
+            return NbtList.this.getShort(i, defaultValue);
+        }
+
+        @Override
+        public int getInt(int i, int defaultValue) {
+            return NbtList.this.getInt(i, defaultValue);
+        }
+
+        @Override
+        public long getLong(int i, long defaultValue) {
+            return NbtList.this.getLong(i, defaultValue);
+        }
+
+        @Override
+        public float getFloat(int i, float defaultValue) {
+            return NbtList.this.getFloat(i, defaultValue);
+        }
+
+        @Override
+        public double getDouble(int i, double defaultValue) {
+            return NbtList.this.getDouble(i, defaultValue);
+        }
+
+        @Override
+        public @NotNull Iterator<@NotNull NbtElement> iterator() {
+            return new Iterator<NbtElement>() {
+                private final Iterator<NbtElement> delegate = NbtList.this.iterator();
+
+                @Override
+                public boolean hasNext() {
+                    return delegate.hasNext();
+                }
+
+                @Override
+                public NbtElement next() {
+                    return delegate.next().view();
+                }
+            };
+        }
+
+        @SuppressWarnings("EqualsWhichDoesntCheckParameterClass")
+        @Override
+        public boolean equals(Object obj) {
+            return NbtList.this.equals(obj);
+        }
+
+        @Override
+        public int hashCode() {
+            return NbtList.this.hashCode();
+        }
     }
 }
@@ -122,4 +122,9 @@ public interface NbtListView extends NbtRootElement, Iterable<NbtElement> {
     default @NotNull NbtListView copy() {
         return this;
     }
+
+    @Override
+    default @NotNull NbtListView freeze() {
+        return NbtList.frozenCopyOf(this);
+    }
 }
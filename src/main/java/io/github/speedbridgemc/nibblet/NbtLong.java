@@ -2,9 +2,18 @@ package io.github.speedbridgemc.nibblet;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Objects;
-
+/**
+ * A long element. Values between {@literal -128} and {@literal 127} are cached, so {@link #of(long)} returns the same
+ * instance for them every time.
+ */
 public final class NbtLong implements NbtNumber {
+    private static final NbtLong[] CACHE = new NbtLong[256];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++)
+            CACHE[i] = new NbtLong(i - 128);
+    }
+
     private final long value;
 
     private NbtLong(long value) {
@@ -12,6 +21,8 @@ public final class NbtLong implements NbtNumber {
     }
 
     public static @NotNull NbtLong of(long value) {
+        if (value >= -128 && value <= 127)
+            return CACHE[(int) value + 128];
         return new NbtLong(value);
     }
 
@@ -43,6 +54,7 @@ public final class NbtLong implements NbtNumber {
 
     @Override
     public int hashCode() {
-        return Objects.hash(NbtType.LONG, value);
+        // same as Objects.hash(NbtType.LONG, value), without boxing
+        return 31 * (31 + NbtType.LONG.hashCode()) + Long.hashCode(value);
     }
 }
@@ -1,34 +1,44 @@
 package io.github.speedbridgemc.nibblet;
 
+import io.github.speedbridgemc.nibblet.stream.NbtStreamHandler;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 
-public final class NbtLongArray implements NbtElement, NbtLongArrayView {
+public final class NbtLongArray implements NbtElement, SizeCachingElement, NbtLongArrayView {
     public static final class Builder {
-        private final ArrayList<Long> backingList;
+        private long[] values;
+        private int length;
 
         private Builder() {
-            backingList = new ArrayList<>();
+            this(PrimitiveArrays.DEFAULT_CAPACITY);
         }
 
         private Builder(int initialCapacity) {
-            backingList = new ArrayList<>(initialCapacity);
+            values = new long[initialCapacity];
+        }
+
+        private void ensureCapacity(int minCapacity) {
+            if (minCapacity > values.length)
+                values = Arrays.copyOf(values, PrimitiveArrays.grow(values.length, minCapacity));
         }
 
         public @NotNull Builder add(long value) {
-            backingList.add(value);
+            ensureCapacity(length + 1);
+            values[length++] = value;
             return this;
         }
 
         public @NotNull Builder add(long @NotNull ... values) {
-            for (long value : values)
-                backingList.add(value);
+            ensureCapacity(length + values.length);
+            System.arraycopy(values, 0, this.values, length, values.length);
+            length += values.length;
             return this;
         }
 
         public @NotNull NbtLongArray build() {
-            return new NbtLongArray(new ArrayList<>(backingList));
+            return new NbtLongArray(Arrays.copyOf(values, length), length);
         }
     }
 
@@ -40,51 +50,31 @@ public final class NbtLongArray implements NbtElement, NbtLongArrayView {
         return new Builder(initialCapacity);
     }
 
-    private final ArrayList<Long> backingList;
-    private final List<Long> backingListU;
-    private final NbtLongArrayView view;
-
-    private NbtLongArray(@NotNull ArrayList<@NotNull Long> backingList) {
-        this.backingList = backingList;
-        backingListU = Collections.unmodifiableList(backingList);
-        view = new NbtLongArrayView() {
-            @Override
-            public int length() {
-                return NbtLongArray.this.length();
-            }
-
-            @Override
-            public long get(int i) {
-                return NbtLongArray.this.get(i);
-            }
-
-            @Override
-            public @NotNull Iterator<@NotNull Long> iterator() {
-                return NbtLongArray.this.iterator();
-            }
-
-            @Override
-            public boolean equals(Object obj) {
-                if (obj == this)
-                    return true;
-                if (!(obj instanceof NbtLongArrayView))
-                    return false;
-                return NbtLongArray.this.equals(obj);
-            }
-
-            @Override
-            public int hashCode() {
-                return NbtLongArray.this.hashCode();
-            }
-        };
+    private long[] values;
+    private int length;
+    // the values are shared with copies of this array (or with the array this is a copy of), so they're copied before
+    // they're modified
+    private boolean shared;
+    // the values are an array passed to wrap(), which its caller may still change
+    private boolean wrapped;
+    private boolean frozen;
+    // the hash code of a frozen array, once it's been computed (0 until then)
+    private int hash;
+    // the payload size of a frozen array, once it's been computed
+    private @Nullable CachedSize cachedSize;
+    private @Nullable NbtLongArrayView view;
+
+    private NbtLongArray(long @NotNull [] values, int length) {
+        this.values = values;
+        this.length = length;
     }
 
     private NbtLongArray() {
-        this(new ArrayList<>()) ;
+        this(PrimitiveArrays.DEFAULT_CAPACITY);
     }
 
     private NbtLongArray(int initialCapacity) {
-        this(new ArrayList<>(initialCapacity));
+        this(new long[initialCapacity], 0);
     }
 
     public static @NotNull NbtLongArray create() {
@@ -96,51 +86,166 @@ public final class NbtLongArray implements NbtElement, NbtLongArrayView {
     }
 
     public static @NotNull NbtLongArray copyOf(long @NotNull ... values) {
-        ArrayList<Long> list = new ArrayList<>(values.length);
-        for (long v : values)
-            list.add(v);
-        return new NbtLongArray(list);
+        return new NbtLongArray(values.clone(), values.length);
+    }
+
+    /**
+     * Creates a long array element that's backed by an existing array, without copying it.<p>
+     * Changes to the array are visible through the element and vice versa, until the element's length changes - at that
+     * point, the element may move its values to a new array.
+     * @param values values to wrap
+     * @return long array element
+     */
+    public static @NotNull NbtLongArray wrap(long @NotNull [] values) {
+        NbtLongArray array = new NbtLongArray(values, values.length);
+        array.wrapped = true;
+        return array;
+    }
+
+    /**
+     * Freezes this array, so that its values can't be modified anymore.<p>
+     * If this array {@linkplain #wrap(long[]) wraps} an existing array, that array must not be modified after this.
+     * @return this array
+     */
+    @Override
+    public @NotNull NbtLongArray freeze() {
+        if (!frozen) {
+            if (length != values.length)
+                values = Arrays.copyOf(values, length);
+            frozen = true;
+        }
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkMutable() {
+        if (frozen)
+            throw new UnsupportedOperationException("Array is frozen");
+    }
+
+    // called before the values are modified, so that arrays sharing them aren't affected
+    private void unshare() {
+        if (shared) {
+            values = values.clone();
+            shared = false;
+        }
     }
 
     @Override
     public @NotNull NbtLongArrayView view() {
+        if (frozen)
+            return this;
+        NbtLongArrayView view = this.view;
+        if (view == null)
+            this.view = view = new View();
         return view;
     }
 
     @Override
     public int length() {
-        return backingList.size();
+        return length;
     }
 
     @Override
     public long get(int i) {
-        return backingList.get(i);
+        PrimitiveArrays.checkIndex(i, length);
+        return values[i];
+    }
+
+    @Override
+    public @NotNull PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < length;
+            }
+
+            @Override
+            public long nextLong() {
+                if (i >= length)
+                    throw new NoSuchElementException();
+                return values[i++];
+            }
+        };
+    }
+
+    @Override
+    public long @NotNull [] toArray() {
+        return Arrays.copyOf(values, length);
     }
 
     @Override
-    public @NotNull Iterator<@NotNull Long> iterator() {
-        return backingListU.iterator();
+    public void copyInto(long @NotNull [] dest, int offset) {
+        System.arraycopy(values, 0, dest, offset, length);
+    }
+
+    // the backing array, which may be longer than this element - only to be read from, up to length()
+    long @NotNull [] backingArray() {
+        return values;
     }
 
     public long set(int i, long v) {
-        return backingList.set(i, v);
+        checkMutable();
+        PrimitiveArrays.checkIndex(i, length);
+        unshare();
+        long old = values[i];
+        values[i] = v;
+        return old;
     }
 
     public boolean add(long v) {
-        return backingList.add(v);
+        checkMutable();
+        if (length == values.length) {
+            values = Arrays.copyOf(values, PrimitiveArrays.grow(values.length, length + 1));
+            // the new array is this array's own
+            shared = false;
+            wrapped = false;
+        } else
+            unshare();
+        values[length++] = v;
+        return true;
     }
 
     public long removeAt(int i) {
-        return backingList.remove(i);
+        checkMutable();
+        PrimitiveArrays.checkIndex(i, length);
+        unshare();
+        long old = values[i];
+        System.arraycopy(values, i + 1, values, i, length - i - 1);
+        length--;
+        return old;
     }
 
     public boolean remove(long v) {
-        return backingList.remove(v);
+        for (int i = 0; i < length; i++) {
+            if (values[i] == v) {
+                removeAt(i);
+                return true;
+            }
+        }
+        return false;
     }
 
+    /**
+     * Creates a copy of this array, which shares its values with this array until either of them is modified.
+     * @return copy of array
+     */
     @Override
     public @NotNull NbtLongArray copy() {
-        return new NbtLongArray(new ArrayList<>(backingList));
+        if (wrapped && !frozen)
+            // the wrapped array may still change, so the copy can't share it
+            return new NbtLongArray(toArray(), length);
+        NbtLongArray copy = new NbtLongArray(values, length);
+        copy.shared = true;
+        // frozen arrays are never modified (and may be read by other threads), so they're left alone
+        if (!frozen)
+            shared = true;
+        return copy;
     }
 
     @Override
@@ -149,19 +254,94 @@ public final class NbtLongArray implements NbtElement, NbtLongArrayView {
             return true;
         if (!(obj instanceof NbtLongArrayView))
             return false;
-        Iterator<Long> e1 = iterator();
-        Iterator<Long> e2 = ((NbtLongArrayView) obj).iterator();
-        while (e1.hasNext() && e2.hasNext()) {
-            long o1 = e1.next();
-            long o2 = e2.next();
-            if (o1 != o2)
+        if (obj instanceof NbtLongArray) {
+            NbtLongArray other = (NbtLongArray) obj;
+            if (other.length != length)
+                return false;
+            // both hash codes are cached once they're computed, so comparing them is cheap from then on
+            if (frozen && other.frozen && hashCode() != other.hashCode())
+                return false;
+            long[] otherValues = other.values;
+            for (int i = 0; i < length; i++) {
+                if (values[i] != otherValues[i])
+                    return false;
+            }
+            return true;
+        }
+        NbtLongArrayView other = (NbtLongArrayView) obj;
+        if (other.length() != length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (values[i] != other.get(i))
                 return false;
         }
-        return !(e1.hasNext() || e2.hasNext());
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(NbtType.LONG_ARRAY, backingList);
+        int h = hash;
+        if (h == 0) {
+            int arrayHash = 1;
+            for (int i = 0; i < length; i++)
+                arrayHash = 31 * arrayHash + Long.hashCode(values[i]);
+            h = 31 * NbtType.LONG_ARRAY.hashCode() + arrayHash;
+            if (frozen)
+                hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public long cachedPayloadSize(@NotNull NbtStreamHandler streamHandler) {
+        return frozen ? CachedSize.get(cachedSize, streamHandler) : -1;
+    }
+
+    @Override
+    public void cachePayloadSize(@NotNull NbtStreamHandler streamHandler, long size) {
+        // mutable elements may change size
+        if (frozen)
+            cachedSize = new CachedSize(streamHandler, size);
+    }
+
+    private final class View implements NbtLongArrayView {
+        @Override
+        public int length() {
+            return NbtLongArray.this.length();
+        }
+
+        @Override
+        public long get(int i) {
+            return NbtLongArray.this.get(i);
+        }
+
+        @Override
+        public @NotNull PrimitiveIterator.OfLong iterator() {
+            return NbtLongArray.this.iterator();
+        }
+
+        @Override
+        public long @NotNull [] toArray() {
+            return NbtLongArray.this.toArray();
+        }
+
+        @Override
+        public void copyInto(long @NotNull [] dest, int offset) {
+            NbtLongArray.this.copyInto(dest, offset);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this)
+                return true;
+            if (!(obj instanceof NbtLongArrayView))
+                return false;
+            return NbtLongArray.this.equals(obj);
+        }
+
+        @Override
+        public int hashCode() {
+            return NbtLongArray.this.hashCode();
+        }
     }
 }
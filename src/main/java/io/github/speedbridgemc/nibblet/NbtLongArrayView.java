@@ -2,7 +2,7 @@ package io.github.speedbridgemc.nibblet;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Iterator;
+import java.util.PrimitiveIterator;
 
 public interface NbtLongArrayView extends NbtElement, Iterable<@NotNull Long> {
     @Override
@@ -13,7 +13,7 @@ public interface NbtLongArrayView extends NbtElement, Iterable<@NotNull Long> {
     int length();
     long get(int i);
     @Override
-    @NotNull Iterator<@NotNull Long> iterator();
+    @NotNull PrimitiveIterator.OfLong iterator();
 
     default long @NotNull [] toArray() {
         long[] array = new long[length()];
@@ -22,6 +22,20 @@ public interface NbtLongArrayView extends NbtElement, Iterable<@NotNull Long> {
         return array;
     }
 
+    /**
+     * Copies this array's values into another array.
+     * @param dest array to copy to
+     * @param offset index in {@code dest} to copy the first value to
+     * @throws IndexOutOfBoundsException if {@code dest} is too short to hold every value from {@code offset}.
+     */
+    default void copyInto(long @NotNull [] dest, int offset) {
+        int length = length();
+        if (offset < 0 || offset > dest.length - length)
+            throw new IndexOutOfBoundsException("Can't copy " + length + " values into array of length " + dest.length + " at offset " + offset);
+        for (int i = 0; i < length; i++)
+            dest[offset + i] = get(i);
+    }
+
     @Override
     default @NotNull NbtLongArrayView view() {
         return this;
@@ -31,4 +45,9 @@ public interface NbtLongArrayView extends NbtElement, Iterable<@NotNull Long> {
     default @NotNull NbtLongArrayView copy() {
         return this;
     }
+
+    @Override
+    default @NotNull NbtLongArrayView freeze() {
+        return NbtLongArray.wrap(toArray()).freeze();
+    }
 }
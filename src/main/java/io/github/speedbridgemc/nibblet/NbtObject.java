@@ -1,53 +1,75 @@
 package io.github.speedbridgemc.nibblet;
 
+import io.github.speedbridgemc.nibblet.stream.NbtStreamHandler;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 
-public final class NbtObject implements NbtElement, NbtObjectView {
+/**
+ * A mutable object element, whose entries keep their insertion order.<p>
+ * Entries are stored in parallel name/value arrays, which are scanned linearly while the object is small, and indexed
+ * by an open addressing hash table once it grows past a few entries. Number values are stored unboxed, and their
+ * elements are only created when they're accessed as elements.<p>
+ * Once {@linkplain #freeze() frozen}, an object can't be modified anymore, and neither can its entries. Frozen objects
+ * are their own views, and create every entry's element once, instead of on each access. They also remember their
+ * hash code and {@linkplain NbtIO#sizeOf(NbtElement, NbtStreamHandler) size}, so hashing or sizing a frozen tree again
+ * (or a mutable tree made of frozen subtrees) doesn't walk it again.<p>
+ * Copies share their arrays with the object they're copied from, until either of them is modified. Deep copies also
+ * share frozen entries, and only copy them once they're accessed through the copy - so a deep copy of a frozen tree is
+ * created in constant time, and a deep copy of a mutable tree copies the objects, lists and arrays in it, but not the
+ * names, numbers and array values they hold.
+ */
+public final class NbtObject implements NbtElement, SizeCachingElement, NbtObjectView {
     public static final class Builder {
-        private final LinkedHashMap<String, NbtElement> backingMap;
+        private final NbtObject object;
 
         private Builder() {
-            backingMap = new LinkedHashMap<>();
+            object = new NbtObject();
         }
 
         private Builder(int initialCapacity) {
-            backingMap = new LinkedHashMap<>(initialCapacity);
+            object = new NbtObject(initialCapacity);
         }
 
         public @NotNull Builder put(@NotNull String name, @NotNull NbtElement value) {
-            backingMap.put(name, value);
+            object.put(name, value);
             return this;
         }
 
         public @NotNull Builder putByte(@NotNull String name, byte value) {
-            return put(name, NbtByte.of(value));
+            object.putByte(name, value);
+            return this;
         }
 
         public @NotNull Builder putBoolean(@NotNull String name, boolean value) {
-            return put(name, NbtByte.of((byte) (value ? 1 : 0)));
+            object.putBoolean(name, value);
+            return this;
         }
 
         public @NotNull Builder putShort(@NotNull String name, short value) {
-            return put(name, NbtShort.of(value));
+            object.putShort(name, value);
+            return this;
         }
 
         public @NotNull Builder putInt(@NotNull String name, int value) {
-            return put(name, NbtInt.of(value));
+            object.putInt(name, value);
+            return this;
         }
 
         public @NotNull Builder putLong(@NotNull String name, long value) {
-            return put(name, NbtLong.of(value));
+            object.putLong(name, value);
+            return this;
         }
 
         public @NotNull Builder putFloat(@NotNull String name, float value) {
-            return put(name, NbtFloat.of(value));
+            object.putFloat(name, value);
+            return this;
         }
 
         public @NotNull Builder putDouble(@NotNull String name, double value) {
-            return put(name, NbtDouble.of(value));
+            object.putDouble(name, value);
+            return this;
         }
 
         public @NotNull Builder putByteArray(@NotNull String name, byte @NotNull ... values) {
@@ -67,7 +89,7 @@ public final class NbtObject implements NbtElement, NbtObjectView {
         }
 
         public @NotNull NbtObject build() {
-            return new NbtObject(new LinkedHashMap<>(backingMap));
+            return object.copy();
         }
     }
 
@@ -79,90 +101,81 @@ public final class NbtObject implements NbtElement, NbtObjectView {
         return new Builder(initialCapacity);
     }
 
-    private final LinkedHashMap<String, NbtElement> backingMap;
-    private final Set<String> nameSet;
-    private final NbtObjectView view;
-    private Set<Entry> entrySet;
+    // objects with more entries than this get a hash index, smaller ones are scanned linearly
+    private static final int LINEAR_SCAN_THRESHOLD = 8;
+    private static final @NotNull String @NotNull [] NO_NAMES = new String[0];
+    private static final @NotNull Object @NotNull [] NO_VALUES = new Object[0];
+    private static final int @NotNull [] NO_HASHES = new int[0];
+    // objects read with NbtIO start out this small, since most of them only have a few entries
+    static final int READ_CAPACITY = 4;
+    // trimSlack() leaves fewer unused entries than this alone
+    private static final int MIN_TRIMMED_SLACK = 4;
 
-    private NbtObject(@NotNull LinkedHashMap<@NotNull String, @NotNull NbtElement> backingMap) {
-        this.backingMap = backingMap;
-        nameSet = Collections.unmodifiableSet(this.backingMap.keySet());
-        view = new NbtObjectView() {
-            @Override
-            public int size() {
-                return NbtObject.this.size();
-            }
-
-            @Override
-            public boolean isEmpty() {
-                return NbtObject.this.isEmpty();
-            }
-
-            @Override
-            public @Nullable NbtElement get(@NotNull String name) {
-                NbtElement nbt = NbtObject.this.get(name);
-                if (nbt == null)
-                    return null;
-                return nbt.view();
-            }
-
-            @Override
-            public boolean containsName(@NotNull String name) {
-                return NbtObject.this.containsName(name);
-            }
-
-            @Override
-            public boolean containsElement(@NotNull NbtElement element) {
-                return NbtObject.this.containsElement(element);
-            }
-
-            @Override
-            public @NotNull Iterable<@NotNull String> names() {
-                return NbtObject.this.names();
-            }
-
-            @Override
-            public @NotNull Iterable<@NotNull Entry> entries() {
-                return () -> new Iterator<Entry>() {
-                    private final Iterator<Entry> delegate = NbtObject.this.entries().iterator();
-
-                    @Override
-                    public boolean hasNext() {
-                        return delegate.hasNext();
-                    }
-
-                    @Override
-                    public Entry next() {
-                        Entry next = delegate.next();
-                        if (next == null)
-                            return null;
-                        if (next.element().view() == next.element())
-                            // element is already immutable, don't bother allocating new Entry
-                            return next;
-                        return new Entry(next.name(), next.element().view());
-                    }
-                };
-            }
+    private @Nullable String @NotNull [] names;
+    // hash codes of the names, checked before comparing names
+    private int @NotNull [] hashes;
+    // either an NbtElement, or the NbtType of a number that's stored unboxed in primitives
+    private @Nullable Object @NotNull [] values;
+    // unboxed numbers - integers are sign-extended, floats and doubles are stored as their raw bits.
+    // only allocated once the first number is put
+    private long @Nullable [] primitives;
+    // open addressing table of (entry index + 1, name hash) pairs, where an entry index of 0 marks a free slot.
+    // only built for objects past LINEAR_SCAN_THRESHOLD
+    private int @Nullable [] index;
+    // index slots are taken from the top bits of the hash, so this is 32 - log2(number of slots)
+    private int indexShift;
+    private int size;
+    // the name, hash and index arrays are shared with copies of this object (or with the object this is a copy of), so
+    // they're copied before they're modified. same for the value and primitive arrays
+    private boolean sharedKeys;
+    private boolean sharedValues;
+    // some of the values are frozen elements shared with the object this is a deep copy of, which stand in for their
+    // own deep copies - each is replaced with its deep copy the first time it's accessed
+    private boolean deferredCopies;
+    private boolean frozen;
+    // the hash code of a frozen object, once it's been computed (0 until then)
+    private int hash;
+    // the payload size of a frozen object, once it's been computed
+    private @Nullable CachedSize cachedSize;
+    private @Nullable NbtObjectView view;
+    // the entries of a frozen object, created the first time they're iterated over
+    private volatile @NotNull Entry @Nullable [] frozenEntries;
 
-            @SuppressWarnings("EqualsWhichDoesntCheckParameterClass")
-            @Override
-            public boolean equals(Object obj) {
-                return NbtObject.this.equals(obj);
-            }
-
-            @Override
-            public int hashCode() {
-                return NbtObject.this.hashCode();
-            }
-        };
+    private NbtObject(@NotNull String @NotNull [] names, int @NotNull [] hashes, @NotNull Object @NotNull [] values,
+                      long @Nullable [] primitives, int size) {
+        this.names = names;
+        this.hashes = hashes;
+        this.values = values;
+        this.primitives = primitives;
+        this.size = size;
+        rebuildIndex();
     }
 
     private NbtObject() {
-        this(new LinkedHashMap<>());
+        this(NO_NAMES, NO_HASHES, NO_VALUES, null, 0);
+    }
+
+    // a copy that shares its arrays with the source object (values may be the source's values, or a copy of them)
+    private NbtObject(@NotNull NbtObject source, @Nullable Object @NotNull [] values) {
+        names = source.names;
+        hashes = source.hashes;
+        index = source.index;
+        indexShift = source.indexShift;
+        this.values = values;
+        primitives = source.primitives;
+        size = source.size;
+        boolean sharesValues = values == source.values || primitives != null;
+        sharedKeys = true;
+        sharedValues = sharesValues;
+        // frozen objects are never modified (and may be read by other threads), so they're left alone
+        if (!source.frozen) {
+            source.sharedKeys = true;
+            source.sharedValues |= sharesValues;
+        }
     }
 
     private NbtObject(int initialCapacity) {
-        this(new LinkedHashMap<>(initialCapacity));
+        this(new String[initialCapacity], new int[initialCapacity], new Object[initialCapacity], null, 0);
     }
 
     public static @NotNull NbtObject create() {
@@ -174,66 +187,577 @@ public final class NbtObject implements NbtElement, NbtObjectView {
     }
 
     public static @NotNull NbtObject copyOf(@NotNull Map<@NotNull String, @NotNull NbtElement> entries) {
-        return new NbtObject(new LinkedHashMap<>(entries));
+        NbtObject object = new NbtObject(entries.size());
+        for (Map.Entry<String, NbtElement> entry : entries.entrySet())
+            object.put(entry.getKey(), entry.getValue());
+        return object;
+    }
+
+    // a frozen copy of a view, whose elements are frozen as well - copying them if they're views themselves
+    static @NotNull NbtObject frozenCopyOf(@NotNull NbtObjectView view) {
+        NbtObject object = new NbtObject(view.size());
+        for (Entry entry : view.entries())
+            object.put(entry.name(), entry.element().freeze());
+        return object.freeze();
+    }
+
+    // names that only differ in their last char (like "key1" and "key2") have consecutive hash codes, which would
+    // cluster in the index - multiplying by the golden ratio scatters them
+    private int indexSlot(int hash) {
+        return (hash * 0x9E3779B9) >>> indexShift;
+    }
+
+    private void rebuildIndex() {
+        if (size <= LINEAR_SCAN_THRESHOLD) {
+            index = null;
+            return;
+        }
+        // keep the table at most half full
+        int slots = Integer.highestOneBit(size * 4 - 1);
+        int[] index = new int[slots * 2];
+        indexShift = Integer.numberOfLeadingZeros(slots - 1);
+        this.index = index;
+        for (int i = 0; i < size; i++)
+            addToIndex(index, i);
+    }
+
+    private void addToIndex(int @NotNull [] index, int i) {
+        int mask = (index.length >> 1) - 1;
+        int hash = hashes[i];
+        int slot = indexSlot(hash);
+        while (index[slot * 2] != 0)
+            slot = (slot + 1) & mask;
+        index[slot * 2] = i + 1;
+        index[slot * 2 + 1] = hash;
+    }
+
+    private int indexOf(@NotNull String name) {
+        int hash = name.hashCode();
+        int[] index = this.index;
+        if (index != null)
+            return indexOf(index, name, hash);
+        int[] hashes = this.hashes;
+        for (int i = 0; i < size; i++) {
+            //noinspection ConstantConditions - names are set up to size
+            if (hashes[i] == hash && names[i].equals(name))
+                return i;
+        }
+        return -1;
+    }
+
+    private int indexOf(int @NotNull [] index, @NotNull String name, int hash) {
+        int mask = (index.length >> 1) - 1;
+        for (int slot = indexSlot(hash); ; slot = (slot + 1) & mask) {
+            int i = index[slot * 2] - 1;
+            if (i < 0)
+                return -1;
+            //noinspection ConstantConditions - names are set up to size
+            if (index[slot * 2 + 1] == hash && names[i].equals(name))
+                return i;
+        }
+    }
+
+    // called before the names (or their hashes, or the index) are modified, so that objects sharing them aren't affected
+    private void unshareKeys() {
+        if (sharedKeys) {
+            names = names.clone();
+            hashes = hashes.clone();
+            if (index != null)
+                index = index.clone();
+            sharedKeys = false;
+        }
+    }
+
+    // same for the values and primitives
+    private void unshareValues() {
+        if (sharedValues) {
+            values = values.clone();
+            if (primitives != null)
+                primitives = primitives.clone();
+            sharedValues = false;
+        }
+    }
+
+    // stores the value of entry i, unboxing numbers
+    private void set(int i, @NotNull NbtElement element) {
+        unshareValues();
+        if (element instanceof NbtNumber) {
+            if (element instanceof NbtByte)
+                set(i, NbtType.BYTE, ((NbtByte) element).value());
+            else if (element instanceof NbtShort)
+                set(i, NbtType.SHORT, ((NbtShort) element).value());
+            else if (element instanceof NbtInt)
+                set(i, NbtType.INT, ((NbtInt) element).value());
+            else if (element instanceof NbtLong)
+                set(i, NbtType.LONG, ((NbtLong) element).value());
+            else if (element instanceof NbtFloat)
+                set(i, NbtType.FLOAT, Float.floatToRawIntBits(((NbtFloat) element).value()));
+            else if (element instanceof NbtDouble)
+                set(i, NbtType.DOUBLE, Double.doubleToRawLongBits(((NbtDouble) element).value()));
+            else
+                values[i] = element;
+        } else
+            values[i] = element;
+    }
+
+    private void set(int i, @NotNull NbtType type, long value) {
+        unshareValues();
+        long[] primitives = this.primitives;
+        if (primitives == null)
+            this.primitives = primitives = new long[values.length];
+        primitives[i] = value;
+        values[i] = type;
+    }
+
+    private @NotNull NbtType typeAt(int i) {
+        Object value = values[i];
+        if (value instanceof NbtType)
+            return (NbtType) value;
+        //noinspection ConstantConditions - values are set up to size
+        return ((NbtElement) value).type();
+    }
+
+    // the element of entry i as it's stored - only for reading it, since it may be a deferred copy
+    @NotNull NbtElement elementAt(int i) {
+        Object value = values[i];
+        if (!(value instanceof NbtType))
+            //noinspection ConstantConditions - values are set up to size
+            return (NbtElement) value;
+        //noinspection ConstantConditions - primitives are allocated along with the first number
+        long bits = primitives[i];
+        switch ((NbtType) value) {
+        case BYTE:
+            return NbtByte.of((byte) bits);
+        case SHORT:
+            return NbtShort.of((short) bits);
+        case INT:
+            return NbtInt.of((int) bits);
+        case LONG:
+            return NbtLong.of(bits);
+        case FLOAT:
+            return NbtFloat.of(Float.intBitsToFloat((int) bits));
+        default:
+            return NbtDouble.of(Double.longBitsToDouble(bits));
+        }
+    }
+
+    // the element of entry i, to be handed out - a deferred copy is replaced with its deep copy first
+    private @NotNull NbtElement exposedElementAt(int i) {
+        Object value = values[i];
+        if (deferredCopies && DeepCopies.isDeferred(value)) {
+            unshareValues();
+            //noinspection ConstantConditions - deferred copies are elements
+            NbtElement copy = ((NbtElement) value).deepCopy();
+            values[i] = copy;
+            return copy;
+        }
+        return elementAt(i);
+    }
+
+    // replaces all deferred copies with their deep copies
+    private void copyDeferred() {
+        if (!deferredCopies)
+            return;
+        unshareValues();
+        Object[] values = this.values;
+        for (int i = 0; i < size; i++) {
+            if (DeepCopies.isDeferred(values[i]))
+                //noinspection ConstantConditions - deferred copies are elements
+                values[i] = ((NbtElement) values[i]).deepCopy();
+        }
+        deferredCopies = false;
+    }
+
+    @NotNull String nameAt(int i) {
+        //noinspection ConstantConditions - names are set up to size
+        return names[i];
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity <= names.length)
+            return;
+        int capacity = PrimitiveArrays.grow(names.length, Math.max(minCapacity, PrimitiveArrays.DEFAULT_CAPACITY));
+        names = Arrays.copyOf(names, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        values = Arrays.copyOf(values, capacity);
+        if (primitives != null)
+            primitives = Arrays.copyOf(primitives, capacity);
+        if (sharedKeys && index != null)
+            index = index.clone();
+        // every array is a new one now
+        sharedKeys = false;
+        sharedValues = false;
+    }
+
+    // adds a new entry without a value, and returns its index
+    private int append(@NotNull String name) {
+        ensureCapacity(size + 1);
+        unshareKeys();
+        int i = size++;
+        names[i] = name;
+        hashes[i] = name.hashCode();
+        int[] index = this.index;
+        if (index == null || size * 4 > index.length)
+            rebuildIndex();
+        else
+            addToIndex(index, i);
+        return i;
+    }
+
+    private void checkMutable() {
+        if (frozen)
+            throw new UnsupportedOperationException("Object is frozen");
+    }
+
+    private void putPrimitive(@NotNull String name, @NotNull NbtType type, long value) {
+        checkMutable();
+        int i = indexOf(name);
+        if (i < 0)
+            i = append(name);
+        set(i, type, value);
+    }
+
+    // shrinks the backing arrays to the number of entries, but only if enough of them is unused to be worth copying
+    void trimSlack() {
+        if (names.length - size >= MIN_TRIMMED_SLACK)
+            trimToSize();
+    }
+
+    // shrinks the backing arrays to the number of entries
+    void trimToSize() {
+        if (size == names.length)
+            return;
+        names = Arrays.copyOf(names, size);
+        hashes = Arrays.copyOf(hashes, size);
+        values = Arrays.copyOf(values, size);
+        if (primitives != null)
+            primitives = Arrays.copyOf(primitives, size);
+    }
+
+    /**
+     * Freezes this object and all of its entries, so that none of them can be modified anymore.<p>
+     * Entries that are views of other elements are replaced with frozen copies, since the elements behind them can't be
+     * frozen through their views.
+     * @return this object
+     */
+    @Override
+    public @NotNull NbtObject freeze() {
+        if (frozen)
+            return this;
+        for (int i = 0; i < size; i++) {
+            Object value = values[i];
+            if (value instanceof NbtElement) {
+                NbtElement frozenElement = ((NbtElement) value).freeze();
+                if (frozenElement != value) {
+                    unshareValues();
+                    values[i] = frozenElement;
+                }
+            }
+        }
+        // deferred copies are frozen already, so they can stay as they are
+        deferredCopies = false;
+        trimToSize();
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private @NotNull Entry @NotNull [] frozenEntries() {
+        Entry[] entries = frozenEntries;
+        if (entries == null) {
+            // racing threads may each create the entries, but they're all equal
+            entries = new Entry[size];
+            for (int i = 0; i < size; i++)
+                //noinspection ConstantConditions - names are set up to size
+                entries[i] = new Entry(names[i], elementAt(i));
+            frozenEntries = entries;
+        }
+        return entries;
     }
 
     @Override
     public @NotNull NbtObjectView view() {
+        if (frozen)
+            return this;
+        NbtObjectView view = this.view;
+        if (view == null)
+            this.view = view = new View();
         return view;
     }
 
     @Override
     public int size() {
-        return backingMap.size();
+        return size;
     }
 
     @Override
     public boolean isEmpty() {
-        return backingMap.isEmpty();
+        return size == 0;
     }
 
     @Override
     public @Nullable NbtElement get(@NotNull String name) {
-        return backingMap.get(name);
+        int i = indexOf(name);
+        if (i < 0)
+            return null;
+        if (frozen) {
+            // reuse the entry's element, if it's been created already
+            Entry[] entries = frozenEntries;
+            if (entries != null)
+                return entries[i].element();
+        }
+        return exposedElementAt(i);
+    }
+
+    @Override
+    public byte getByte(@NotNull String name, byte defaultValue) {
+        int i = indexOf(name);
+        if (i < 0)
+            return defaultValue;
+        Object value = values[i];
+        if (value instanceof NbtType) {
+            //noinspection ConstantConditions - primitives are allocated along with the first number
+            long bits = primitives[i];
+            if (value == NbtType.FLOAT)
+                return (byte) Float.intBitsToFloat((int) bits);
+            if (value == NbtType.DOUBLE)
+                return (byte) Double.longBitsToDouble(bits);
+            return (byte) bits;
+        }
+        if (value instanceof NbtNumber)
+            return ((NbtNumber) value).valueAsNumber().byteValue();
+        return defaultValue;
+    }
+
+    @Override
+    public boolean getBoolean(@NotNull String name, boolean defaultValue) {
+        int i = indexOf(name);
+        if (i < 0)
+            return defaultValue;
+        Object value = values[i];
+        if (value instanceof NbtType) {
+            //noinspection ConstantConditions - primitives are allocated along with the first number
+            long bits = primitives[i];
+            if (value == NbtType.FLOAT)
+                return (byte) Float.intBitsToFloat((int) bits) > 0;
+            if (value == NbtType.DOUBLE)
+                return (byte) Double.longBitsToDouble(bits) > 0;
+            return (byte) bits > 0;
+        }
+        if (value instanceof NbtNumber)
+            return ((NbtNumber) value).valueAsNumber().byteValue() > 0;
+        return defaultValue;
+    }
+
+    @Override
+    public short getShort(@NotNull String name, short defaultValue) {
+        int i = indexOf(name);
+        if (i < 0)
+            return defaultValue;
+        Object value = values[i];
+        if (value instanceof NbtType) {
+            //noinspection ConstantConditions - primitives are allocated along with the first number
+            long bits = primitives[i];
+            if (value == NbtType.FLOAT)
+                return (short) Float.intBitsToFloat((int) bits);
+            if (value == NbtType.DOUBLE)
+                return (short) Double.longBitsToDouble(bits);
+            return (short) bits;
+        }
+        if (value instanceof NbtNumber)
+            return ((NbtNumber) value).valueAsNumber().shortValue();
+        return defaultValue;
+    }
+
+    @Override
+    public int getInt(@NotNull String name, int defaultValue) {
+        int i = indexOf(name);
+        if (i < 0)
+            return defaultValue;
+        Object value = values[i];
+        if (value instanceof NbtType) {
+            //noinspection ConstantConditions - primitives are allocated along with the first number
+            long bits = primitives[i];
+            if (value == NbtType.FLOAT)
+                return (int) Float.intBitsToFloat((int) bits);
+            if (value == NbtType.DOUBLE)
+                return (int) Double.longBitsToDouble(bits);
+            return (int) bits;
+        }
+        if (value instanceof NbtNumber)
+            return ((NbtNumber) value).valueAsNumber().intValue();
+        return defaultValue;
+    }
+
+    @Override
+    public long getLong(@NotNull String name, long defaultValue) {
+        int i = indexOf(name);
+        if (i < 0)
+            return defaultValue;
+        Object value = values[i];
+        if (value instanceof NbtType) {
+            //noinspection ConstantConditions - primitives are allocated along with the first number
+            long bits = primitives[i];
+            if (value == NbtType.FLOAT)
+                return (long) Float.intBitsToFloat((int) bits);
+            if (value == NbtType.DOUBLE)
+                return (long) Double.longBitsToDouble(bits);
+            return bits;
+        }
+        if (value instanceof NbtNumber)
+            return ((NbtNumber) value).valueAsNumber().longValue();
+        return defaultValue;
+    }
+
+    @Override
+    public float getFloat(@NotNull String name, float defaultValue) {
+        int i = indexOf(name);
+        if (i < 0)
+            return defaultValue;
+        Object value = values[i];
+        if (value instanceof NbtType) {
+            //noinspection ConstantConditions - primitives are allocated along with the first number
+            long bits = primitives[i];
+            if (value == NbtType.FLOAT)
+                return Float.intBitsToFloat((int) bits);
+            if (value == NbtType.DOUBLE)
+                return (float) Double.longBitsToDouble(bits);
+            return (float) bits;
+        }
+        if (value instanceof NbtNumber)
+            return ((NbtNumber) value).valueAsNumber().floatValue();
+        return defaultValue;
+    }
+
+    @Override
+    public double getDouble(@NotNull String name, double defaultValue) {
+        int i = indexOf(name);
+        if (i < 0)
+            return defaultValue;
+        Object value = values[i];
+        if (value instanceof NbtType) {
+            //noinspection ConstantConditions - primitives are allocated along with the first number
+            long bits = primitives[i];
+            if (value == NbtType.FLOAT)
+                return Float.intBitsToFloat((int) bits);
+            if (value == NbtType.DOUBLE)
+                return Double.longBitsToDouble(bits);
+            return bits;
+        }
+        if (value instanceof NbtNumber)
+            return ((NbtNumber) value).valueAsNumber().doubleValue();
+        return defaultValue;
+    }
+
+    @Override
+    public boolean contains(@NotNull String name, @NotNull NbtType type) {
+        // doesn't need to box numbers
+        int i = indexOf(name);
+        return i >= 0 && typeAt(i) == type;
+    }
+
+    @Override
+    public boolean containsNumber(@NotNull String name) {
+        int i = indexOf(name);
+        return i >= 0 && typeAt(i).isNumber();
     }
 
     @Override
     public boolean containsName(@NotNull String name) {
-        return backingMap.containsKey(name);
+        return indexOf(name) >= 0;
     }
 
     @Override
     public boolean containsElement(@NotNull NbtElement element) {
-        return backingMap.containsValue(element);
+        NbtType type = element.type();
+        for (int i = 0; i < size; i++) {
+            if (typeAt(i) == type && elementAt(i).equals(element))
+                return true;
+        }
+        return false;
     }
 
     @Override
     public @NotNull Iterable<String> names() {
-        return nameSet;
+        return () -> new Iterator<String>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < size;
+            }
+
+            @Override
+            public String next() {
+                if (i >= size)
+                    throw new NoSuchElementException();
+                return names[i++];
+            }
+        };
     }
 
     @Override
     public @NotNull Iterable<@NotNull Entry> entries() {
-        if (entrySet == null) {
-            entrySet = new LinkedHashSet<>(backingMap.size());
-            for (Map.Entry<String, NbtElement> entry : backingMap.entrySet())
-                entrySet.add(new Entry(entry.getKey(), entry.getValue()));
-            entrySet = Collections.unmodifiableSet(entrySet);
+        if (frozen) {
+            Entry[] entries = frozenEntries();
+            return () -> new Iterator<Entry>() {
+                private int i = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return i < entries.length;
+                }
+
+                @Override
+                public Entry next() {
+                    if (i >= entries.length)
+                        throw new NoSuchElementException();
+                    return entries[i++];
+                }
+            };
         }
-        return entrySet;
+        return () -> new Iterator<Entry>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < size;
+            }
+
+            @Override
+            public Entry next() {
+                if (i >= size)
+                    throw new NoSuchElementException();
+                //noinspection ConstantConditions - names are set up to size
+                Entry entry = new Entry(names[i], exposedElementAt(i));
+                i++;
+                return entry;
+            }
+        };
     }
 
     public @Nullable NbtElement put(@NotNull String name, @NotNull NbtElement element) {
         if (element == this)
             throw new IllegalArgumentException("Can't add object to itself!");
-        NbtElement oldElement = backingMap.put(name, element);
-        if (element != oldElement)
-            entrySet = null; // invalidate the entry set, will create a new one on demand
+        checkMutable();
+        if (deferredCopies && DeepCopies.isDeferred(element))
+            // it would pass for a deferred copy otherwise
+            copyDeferred();
+        int i = indexOf(name);
+        NbtElement oldElement = null;
+        if (i < 0)
+            i = append(name);
+        else
+            oldElement = exposedElementAt(i);
+        set(i, element);
         return oldElement;
     }
 
     public void putByte(@NotNull String name, byte value) {
-        put(name, NbtByte.of(value));
+        putPrimitive(name, NbtType.BYTE, value);
     }
 
     public void putBoolean(@NotNull String name, boolean value) {
@@ -241,23 +765,23 @@ public final class NbtObject implements NbtElement, NbtObjectView {
     }
 
     public void putShort(@NotNull String name, short value) {
-        put(name, NbtShort.of(value));
+        putPrimitive(name, NbtType.SHORT, value);
     }
 
     public void putInt(@NotNull String name, int value) {
-        put(name, NbtInt.of(value));
+        putPrimitive(name, NbtType.INT, value);
     }
 
     public void putLong(@NotNull String name, long value) {
-        put(name, NbtLong.of(value));
+        putPrimitive(name, NbtType.LONG, value);
     }
 
     public void putFloat(@NotNull String name, float value) {
-        put(name, NbtFloat.of(value));
+        putPrimitive(name, NbtType.FLOAT, Float.floatToRawIntBits(value));
     }
 
     public void putDouble(@NotNull String name, double value) {
-        put(name, NbtDouble.of(value));
+        putPrimitive(name, NbtType.DOUBLE, Double.doubleToRawLongBits(value));
     }
 
     public void putByteArray(@NotNull String name, byte @NotNull ... values) {
@@ -277,23 +801,62 @@ public final class NbtObject implements NbtElement, NbtObjectView {
     }
 
     public @Nullable NbtElement remove(@NotNull String name) {
-        NbtElement elem = backingMap.remove(name);
-        if (elem != null)
-            entrySet = null; // invalidate the entry set, will create a new one on demand
+        checkMutable();
+        int i = indexOf(name);
+        if (i < 0)
+            return null;
+        NbtElement elem = exposedElementAt(i);
+        unshareKeys();
+        unshareValues();
+        int moved = size - i - 1;
+        System.arraycopy(names, i + 1, names, i, moved);
+        System.arraycopy(hashes, i + 1, hashes, i, moved);
+        System.arraycopy(values, i + 1, values, i, moved);
+        if (primitives != null)
+            System.arraycopy(primitives, i + 1, primitives, i, moved);
+        size--;
+        names[size] = null;
+        values[size] = null;
+        // the entries after this one moved, so their index slots are stale
+        rebuildIndex();
         return elem;
     }
 
     @Override
     public @NotNull NbtObject copy() {
-        return new NbtObject(new LinkedHashMap<>(backingMap));
+        // both objects hold the same elements, so deferred copies have to become elements of their own first
+        copyDeferred();
+        return new NbtObject(this, values);
     }
 
     @Override
     public @NotNull NbtObject deepCopy() {
-        NbtObject.Builder builder = builder(backingMap.size());
-        for (Entry entry : entries())
-            builder.put(entry.name(), entry.element().deepCopy());
-        return builder.build();
+        Object[] values = this.values;
+        // the elements of frozen objects are all frozen or immutable, so they can all be shared
+        boolean deferred = frozen;
+        if (!frozen) {
+            Object[] copiedValues = null;
+            for (int i = 0; i < size; i++) {
+                Object value = values[i];
+                if (!(value instanceof NbtElement))
+                    continue;
+                if (DeepCopies.isDeferred(value)) {
+                    deferred = true;
+                    continue;
+                }
+                NbtElement copy = ((NbtElement) value).deepCopy();
+                if (copy != value) {
+                    if (copiedValues == null)
+                        copiedValues = values.clone();
+                    copiedValues[i] = copy;
+                }
+            }
+            if (copiedValues != null)
+                values = copiedValues;
+        }
+        NbtObject copy = new NbtObject(this, values);
+        copy.deferredCopies = deferred;
+        return copy;
     }
 
     @Override
@@ -305,17 +868,232 @@ public final class NbtObject implements NbtElement, NbtObjectView {
         NbtObjectView other = (NbtObjectView) obj;
         if (size() != other.size())
             return false;
-        for (Entry e : entries()) {
-            String name = e.name();
-            NbtElement elem = e.element();
-            if (!elem.equals(other.get(name)))
+        if (other instanceof NbtObject)
+            return entriesEqual((NbtObject) other);
+        for (int i = 0; i < size; i++) {
+            //noinspection ConstantConditions - names are set up to size
+            NbtElement otherElem = other.get(names[i]);
+            if (otherElem == null || otherElem.type() != typeAt(i) || !elementAt(i).equals(otherElem))
                 return false;
         }
         return true;
     }
 
+    // compares the entries of another object of the same size, without creating elements for numbers
+    private boolean entriesEqual(@NotNull NbtObject other) {
+        // both hash codes are cached once they're computed, so comparing them is cheap from then on
+        if (frozen && other.frozen && hashCode() != other.hashCode())
+            return false;
+        for (int i = 0; i < size; i++) {
+            String name = names[i];
+            // entries of copies are usually in the same order
+            //noinspection ConstantConditions - names are set up to size
+            int j = other.hashes[i] == hashes[i] && name.equals(other.names[i]) ? i : other.indexOf(name);
+            if (j < 0)
+                return false;
+            Object value = values[i];
+            Object otherValue = other.values[j];
+            if (value instanceof NbtType && value == otherValue) {
+                //noinspection ConstantConditions - primitives are allocated along with the first number
+                if (!numberEquals((NbtType) value, primitives[i], other.primitives[j]))
+                    return false;
+            } else if (value != otherValue) {
+                // not the same subtree
+                if (value instanceof NbtType || otherValue instanceof NbtType) {
+                    if (typeAt(i) != other.typeAt(j) || !elementAt(i).equals(other.elementAt(j)))
+                        return false;
+                } else {
+                    //noinspection ConstantConditions - values are set up to size
+                    if (!value.equals(otherValue))
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // same as comparing the number elements
+    private static boolean numberEquals(@NotNull NbtType type, long bits, long otherBits) {
+        switch (type) {
+        case FLOAT:
+            // NaNs may be stored with different bits, but still compare equal
+            return Float.floatToIntBits(Float.intBitsToFloat((int) bits)) == Float.floatToIntBits(Float.intBitsToFloat((int) otherBits));
+        case DOUBLE:
+            return Double.doubleToLongBits(Double.longBitsToDouble(bits)) == Double.doubleToLongBits(Double.longBitsToDouble(otherBits));
+        default:
+            return bits == otherBits;
+        }
+    }
+
+    // same as the hash code of the value's element
+    private int valueHashCode(int i) {
+        Object value = values[i];
+        if (!(value instanceof NbtType))
+            //noinspection ConstantConditions - values are set up to size
+            return value.hashCode();
+        //noinspection ConstantConditions - primitives are allocated along with the first number
+        long bits = primitives[i];
+        int valueHash;
+        switch ((NbtType) value) {
+        case BYTE:
+            valueHash = Byte.hashCode((byte) bits);
+            break;
+        case SHORT:
+            valueHash = Short.hashCode((short) bits);
+            break;
+        case INT:
+            valueHash = Integer.hashCode((int) bits);
+            break;
+        case LONG:
+            valueHash = Long.hashCode(bits);
+            break;
+        case FLOAT:
+            valueHash = Float.hashCode(Float.intBitsToFloat((int) bits));
+            break;
+        default:
+            valueHash = Double.hashCode(Double.longBitsToDouble(bits));
+            break;
+        }
+        return 31 * (31 + value.hashCode()) + valueHash;
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hash(NbtType.OBJECT, backingMap);
+        int h = hash;
+        if (h == 0) {
+            // same as the hash code of a Map of the entries
+            int mapHash = 0;
+            for (int i = 0; i < size; i++)
+                //noinspection ConstantConditions - names are set up to size
+                mapHash += names[i].hashCode() ^ valueHashCode(i);
+            h = 31 * (31 + NbtType.OBJECT.hashCode()) + mapHash;
+            if (frozen)
+                hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public long cachedPayloadSize(@NotNull NbtStreamHandler streamHandler) {
+        return frozen ? CachedSize.get(cachedSize, streamHandler) : -1;
+    }
+
+    @Override
+    public void cachePayloadSize(@NotNull NbtStreamHandler streamHandler, long size) {
+        // mutable elements may change size
+        if (frozen)
+            cachedSize = new CachedSize(streamHandler, size);
+    }
+
+    private final class View implements NbtObjectView {
+        @Override
+        public int size() {
+            return NbtObject.this.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return NbtObject.this.isEmpty();
+        }
+
+        @Override
+        public @Nullable NbtElement get(@NotNull String name) {
+            NbtElement nbt = NbtObject.this.get(name);
+            if (nbt == null)
+                return null;
+            return nbt.view();
+        }
+
+        @Override
+        public byte getByte(@NotNull String name, byte defaultValue) {
+            return NbtObject.this.getByte(name, defaultValue);
+        }
+
+        @Override
+        public boolean getBoolean(@NotNull String name, boolean defaultValue) {
+            return NbtObject.this.getBoolean(name, defaultValue);
+        }
+
+        @Override
+        public short getShort(@NotNull String name, short defaultValue) {
+            return NbtObject.this.getShort(name, defaultValue);
+        }
+
+        @Override
+        public int getInt(@NotNull String name, int defaultValue) {
+            return NbtObject.this.getInt(name, defaultValue);
+        }
+
+        @Override
+        public long getLong(@NotNull String name, long defaultValue) {
+            return NbtObject.this.getLong(name, defaultValue);
+        }
+
+        @Override
+        public float getFloat(@NotNull String name, float defaultValue) {
+            return NbtObject.this.getFloat(name, defaultValue);
+        }
+
+        @Override
+        public double getDouble(@NotNull String name, double defaultValue) {
+            return NbtObject.this.getDouble(name, defaultValue);
+        }
+
+        @Override
+        public boolean contains(@NotNull String name, @NotNull NbtType type) {
+            return NbtObject.this.contains(name, type);
+        }
+
+        @Override
+        public boolean containsNumber(@NotNull String name) {
+            return NbtObject.this.containsNumber(name);
+        }
+
+        @Override
+        public boolean containsName(@NotNull String name) {
+            return NbtObject.this.containsName(name);
+        }
+
+        @Override
+        public boolean containsElement(@NotNull NbtElement element) {
+            return NbtObject.this.containsElement(element);
+        }
+
+        @Override
+        public @NotNull Iterable<@NotNull String> names() {
+            return NbtObject.this.names();
+        }
+
+        @Override
+        public @NotNull Iterable<@NotNull Entry> entries() {
+            return () -> new Iterator<Entry>() {
+                private final Iterator<Entry> delegate = NbtObject.this.entries().iterator();
+
+                @Override
+                public boolean hasNext() {
+                    return delegate.hasNext();
+                }
+
+                @Override
+                public Entry next() {
+                    Entry next = delegate.next();
+                    if (next.element().view() == next.element())
+                        // element is already immutable, don't bother allocating new Entry
+                        return next;
+                    return new Entry(next.name(), next.element().view());
+                }
+            };
+        }
+
+        @SuppressWarnings("EqualsWhichDoesntCheckParameterClass")
+        @Override
+        public boolean equals(Object obj) {
+            return NbtObject.this.equals(obj);
+        }
+
+        @Override
+        public int hashCode() {
+            return NbtObject.this.hashCode();
+        }
     }
 }
@@ -176,4 +176,9 @@ public interface NbtObjectView extends NbtRootElement {
     default @NotNull NbtObjectView copy() {
         return this;
     }
+
+    @Override
+    default @NotNull NbtObjectView freeze() {
+        return NbtObject.frozenCopyOf(this);
+    }
 }
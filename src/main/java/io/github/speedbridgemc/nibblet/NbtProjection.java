@@ -0,0 +1,529 @@
+package io.github.speedbridgemc.nibblet;
+
+import io.github.speedbridgemc.nibblet.stream.MalformedNbtDataException;
+import io.github.speedbridgemc.nibblet.stream.NbtReader;
+import io.github.speedbridgemc.nibblet.stream.NbtStreamHandler;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Extracts the values at a set of paths from an NBT structure, without building the rest of its element tree.<p>
+ * Paths are made up of object entry names separated by periods, and list or array indices in square brackets.
+ * {@code [*]} matches every item of a list or array. Names that contain special characters can be quoted
+ * with double quotes. Paths start at the root element, whose own name is ignored. For example:
+ * <pre>{@code
+ * NbtProjection projection = NbtProjection.builder()
+ *         .path("DataVersion")
+ *         .path("Level.xPos")
+ *         .path("Level.Sections[*].Y")
+ *         .build();
+ * NbtProjection.Result result = projection.read(NbtFormat.JAVA, in);
+ * int dataVersion = result.getInt("DataVersion", 0);
+ * List<NbtElement> sectionYs = result.getAll("Level.Sections[*].Y");
+ * }</pre>
+ * Every value that doesn't lie on one of the paths is skipped over instead of being decoded. Once every path
+ * without a wildcard has been matched (and there are no paths with wildcards), reading stops early.<p>
+ * Projections are immutable, and can be shared between threads.
+ */
+public final class NbtProjection {
+    public static final class Builder {
+        private final @NotNull Node root;
+
+        private Builder() {
+            root = new Node();
+        }
+
+        /**
+         * Adds a path to extract.
+         * @param path path
+         * @return this builder
+         * @throws IllegalArgumentException if the path is malformed.
+         */
+        public @NotNull Builder path(@NotNull String path) {
+            Node node = root;
+            for (Object segment : parse(path)) {
+                if (segment instanceof String)
+                    node = node.names.computeIfAbsent((String) segment, k -> new Node());
+                else if (segment == WILDCARD) {
+                    if (node.anyIndex == null)
+                        node.anyIndex = new Node();
+                    node = node.anyIndex;
+                } else
+                    node = node.indices.computeIfAbsent((Integer) segment, k -> new Node());
+            }
+            node.paths.add(path);
+            return this;
+        }
+
+        /**
+         * Adds paths to extract.
+         * @param paths paths
+         * @return this builder
+         * @throws IllegalArgumentException if a path is malformed.
+         */
+        public @NotNull Builder paths(@NotNull String @NotNull ... paths) {
+            for (String path : paths)
+                path(path);
+            return this;
+        }
+
+        public @NotNull NbtProjection build() {
+            return new NbtProjection(root);
+        }
+    }
+
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    public static @NotNull NbtProjection of(@NotNull String @NotNull ... paths) {
+        return builder().paths(paths).build();
+    }
+
+    /**
+     * The values extracted by a projection.
+     */
+    public static final class Result {
+        private final @NotNull HashMap<String, List<NbtElement>> values;
+
+        private Result() {
+            values = new HashMap<>();
+        }
+
+        /**
+         * Checks if a path matched any values.
+         * @param path path, exactly as it was added to the projection
+         * @return {@code true} if at least one value was found, {@code false} otherwise
+         */
+        public boolean contains(@NotNull String path) {
+            return values.containsKey(path);
+        }
+
+        /**
+         * Gets the first value matched by a path.
+         * @param path path, exactly as it was added to the projection
+         * @return first matched value, or {@code null} if there is none
+         */
+        public @Nullable NbtElement get(@NotNull String path) {
+            List<NbtElement> list = values.get(path);
+            return list == null ? null : list.get(0);
+        }
+
+        /**
+         * Gets all values matched by a path, in the order they were read.
+         * @param path path, exactly as it was added to the projection
+         * @return matched values
+         */
+        public @NotNull List<@NotNull NbtElement> getAll(@NotNull String path) {
+            List<NbtElement> list = values.get(path);
+            return list == null ? Collections.emptyList() : Collections.unmodifiableList(list);
+        }
+
+        public int getInt(@NotNull String path, int defaultValue) {
+            NbtElement nbt = get(path);
+            if (nbt instanceof NbtNumber)
+                return ((NbtNumber) nbt).valueAsNumber().intValue();
+            return defaultValue;
+        }
+
+        public long getLong(@NotNull String path, long defaultValue) {
+            NbtElement nbt = get(path);
+            if (nbt instanceof NbtNumber)
+                return ((NbtNumber) nbt).valueAsNumber().longValue();
+            return defaultValue;
+        }
+
+        public double getDouble(@NotNull String path, double defaultValue) {
+            NbtElement nbt = get(path);
+            if (nbt instanceof NbtNumber)
+                return ((NbtNumber) nbt).valueAsNumber().doubleValue();
+            return defaultValue;
+        }
+
+        public @NotNull Optional<String> getString(@NotNull String path) {
+            NbtElement nbt = get(path);
+            if (nbt instanceof NbtString)
+                return Optional.of(((NbtString) nbt).value());
+            return Optional.empty();
+        }
+    }
+
+    private static final Object WILDCARD = new Object();
+
+    // a node of the path trie. after compilation, the wildcard node is merged into every index node,
+    // so every value being read corresponds to at most one node
+    private static final class Node {
+        public final @NotNull LinkedHashSet<String> paths = new LinkedHashSet<>();
+        public final @NotNull HashMap<String, Node> names = new HashMap<>();
+        public final @NotNull HashMap<Integer, Node> indices = new HashMap<>();
+        public @Nullable Node anyIndex;
+
+        public @Nullable Node item(int i) {
+            Node node = indices.get(i);
+            return node == null ? anyIndex : node;
+        }
+
+        public boolean hasItems() {
+            return anyIndex != null || !indices.isEmpty();
+        }
+    }
+
+    private final @NotNull Node root;
+    private final @NotNull Set<String> definitePaths;
+    private final boolean hasWildcards;
+
+    private NbtProjection(@NotNull Node source) {
+        root = compile(source);
+        definitePaths = new HashSet<>();
+        hasWildcards = collectPaths(source, false, definitePaths);
+    }
+
+    private static boolean collectPaths(@NotNull Node node, boolean wildcard, @NotNull Set<String> definitePaths) {
+        boolean hasWildcards = false;
+        if (wildcard)
+            hasWildcards = !node.paths.isEmpty();
+        else
+            definitePaths.addAll(node.paths);
+        for (Node child : node.names.values())
+            hasWildcards |= collectPaths(child, wildcard, definitePaths);
+        for (Node child : node.indices.values())
+            hasWildcards |= collectPaths(child, wildcard, definitePaths);
+        if (node.anyIndex != null)
+            hasWildcards |= collectPaths(node.anyIndex, true, definitePaths);
+        return hasWildcards;
+    }
+
+    private static @NotNull List<Object> parse(@NotNull String path) {
+        ArrayList<Object> segments = new ArrayList<>();
+        int i = 0;
+        final int length = path.length();
+        boolean expectName = true;
+        while (i < length) {
+            char c = path.charAt(i);
+            if (c == '[') {
+                int end = path.indexOf(']', i);
+                if (end < 0)
+                    throw new IllegalArgumentException("Invalid path \"" + path + "\": unclosed '[' at " + i);
+                String index = path.substring(i + 1, end);
+                if (index.equals("*"))
+                    segments.add(WILDCARD);
+                else {
+                    try {
+                        int value = Integer.parseInt(index);
+                        if (value < 0)
+                            throw new NumberFormatException();
+                        segments.add(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid path \"" + path + "\": bad index \"" + index + "\"");
+                    }
+                }
+                i = end + 1;
+                expectName = false;
+            } else if (c == '.') {
+                if (expectName)
+                    throw new IllegalArgumentException("Invalid path \"" + path + "\": empty name at " + i);
+                i++;
+                expectName = true;
+                if (i == length)
+                    throw new IllegalArgumentException("Invalid path \"" + path + "\": ends with '.'");
+            } else {
+                if (!expectName)
+                    throw new IllegalArgumentException("Invalid path \"" + path + "\": expected '.' or '[' at " + i);
+                StringBuilder sb = new StringBuilder();
+                if (c == '"') {
+                    i++;
+                    while (true) {
+                        if (i >= length)
+                            throw new IllegalArgumentException("Invalid path \"" + path + "\": unclosed quote");
+                        c = path.charAt(i++);
+                        if (c == '"')
+                            break;
+                        if (c == '\\' && i < length)
+                            c = path.charAt(i++);
+                        sb.append(c);
+                    }
+                } else {
+                    while (i < length && (c = path.charAt(i)) != '.' && c != '[') {
+                        sb.append(c);
+                        i++;
+                    }
+                }
+                segments.add(sb.toString());
+                expectName = false;
+            }
+        }
+        if (segments.isEmpty())
+            throw new IllegalArgumentException("Invalid path \"" + path + "\": empty path");
+        return segments;
+    }
+
+    private static @NotNull Node compile(@NotNull Node node) {
+        Node compiled = new Node();
+        compiled.paths.addAll(node.paths);
+        for (Map.Entry<String, Node> entry : node.names.entrySet())
+            compiled.names.put(entry.getKey(), compile(entry.getValue()));
+        if (node.anyIndex != null)
+            compiled.anyIndex = compile(node.anyIndex);
+        for (Map.Entry<Integer, Node> entry : node.indices.entrySet())
+            compiled.indices.put(entry.getKey(), merge(compile(entry.getValue()), compiled.anyIndex));
+        return compiled;
+    }
+
+    // both nodes must already be compiled
+    private static @Nullable Node merge(@Nullable Node a, @Nullable Node b) {
+        if (a == null)
+            return b;
+        if (b == null)
+            return a;
+        Node merged = new Node();
+        merged.paths.addAll(a.paths);
+        merged.paths.addAll(b.paths);
+        HashSet<String> names = new HashSet<>(a.names.keySet());
+        names.addAll(b.names.keySet());
+        for (String name : names)
+            merged.names.put(name, merge(a.names.get(name), b.names.get(name)));
+        merged.anyIndex = merge(a.anyIndex, b.anyIndex);
+        HashSet<Integer> indices = new HashSet<>(a.indices.keySet());
+        indices.addAll(b.indices.keySet());
+        for (int i : indices)
+            merged.indices.put(i, merge(a.item(i), b.item(i)));
+        return merged;
+    }
+
+    private final class Session {
+        public final @NotNull Result result = new Result();
+        private int definitePathsFound;
+
+        public void add(@NotNull Node node, @NotNull NbtElement element) {
+            for (String path : node.paths) {
+                List<NbtElement> list = result.values.get(path);
+                if (list == null) {
+                    result.values.put(path, list = new ArrayList<>(1));
+                    if (definitePaths.contains(path))
+                        definitePathsFound++;
+                }
+                list.add(element);
+            }
+        }
+
+        public boolean done() {
+            return !hasWildcards && definitePathsFound == definitePaths.size();
+        }
+    }
+
+    /**
+     * Extracts values from an NBT structure in a stream.
+     * @param streamHandler stream handler
+     * @param in input stream
+     * @return extracted values
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if an I/O error occurs.
+     */
+    public @NotNull Result read(@NotNull NbtStreamHandler streamHandler, @NotNull InputStream in) throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, in)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Extracts values from an NBT structure in a byte array.
+     * @param streamHandler stream handler
+     * @param data byte array to read from
+     * @return extracted values
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if the data ends prematurely.
+     */
+    public @NotNull Result read(@NotNull NbtStreamHandler streamHandler, byte @NotNull [] data) throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, data)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Extracts values from an NBT structure in a buffer, starting at its position.<p>
+     * The buffer's position is <em>not</em> modified.
+     * @param streamHandler stream handler
+     * @param buf buffer to read from
+     * @return extracted values
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if the data ends prematurely.
+     */
+    public @NotNull Result read(@NotNull NbtStreamHandler streamHandler, @NotNull ByteBuffer buf) throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, buf)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Extracts values from the NBT structure a reader is positioned at.<p>
+     * If reading stops early, the reader is left in the middle of the structure.
+     * @param reader reader to read from
+     * @return extracted values
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if an I/O error occurs.
+     */
+    public @NotNull Result read(@NotNull NbtReader reader) throws IOException {
+        Session session = new Session();
+        NbtType rootType = reader.nextType();
+        if (rootType == NbtType.ROOT_LIST) {
+            reader.nextName();
+            reader.beginRootList();
+            Node node = root.item(0);
+            if (node == null)
+                reader.skipValue();
+            else {
+                readValue(reader, reader.listItemType(), node, session);
+                if (session.done())
+                    return session.result;
+            }
+            reader.endRootList();
+        } else if (rootType == NbtType.OBJECT) {
+            reader.beginObject();
+            reader.nextName();
+            if (!readEntries(reader, root, session))
+                return session.result;
+            reader.endObject();
+        } else
+            throw new MalformedNbtDataException("Unsupported root element type " + rootType);
+        return session.result;
+    }
+
+    // returns false if reading stopped early
+    private boolean readEntries(@NotNull NbtReader reader, @NotNull Node node, @NotNull Session session) throws IOException {
+        NbtType type = reader.nextType();
+        while (type != NbtType.END) {
+            Node child = node.names.get(reader.nextName());
+            if (child == null)
+                reader.skipValue();
+            else {
+                readValue(reader, type, child, session);
+                if (session.done())
+                    return false;
+            }
+            type = reader.nextType();
+        }
+        return true;
+    }
+
+    private void readValue(@NotNull NbtReader reader, @NotNull NbtType type, @NotNull Node node, @NotNull Session session)
+            throws IOException {
+        if (!node.paths.isEmpty()) {
+            // the value itself is wanted - decode it, and get any nested paths from the decoded element
+            extract(NbtIO.readElement(reader, type), node, session);
+            return;
+        }
+        switch (type) {
+        case OBJECT:
+            if (node.names.isEmpty())
+                break;
+            reader.beginObject();
+            if (!readEntries(reader, node, session))
+                return;
+            reader.endObject();
+            return;
+        case LIST:
+        case BYTE_ARRAY:
+        case INT_ARRAY:
+        case LONG_ARRAY:
+            if (!node.hasItems())
+                break;
+            beginList(reader, type);
+            NbtType itemType = reader.listItemType();
+            for (int i = 0, size = reader.listSize(); i < size; i++) {
+                Node child = node.item(i);
+                if (child == null)
+                    reader.skipValue();
+                else {
+                    readValue(reader, itemType, child, session);
+                    if (session.done())
+                        return;
+                }
+            }
+            endList(reader, type);
+            return;
+        }
+        reader.skipValue();
+    }
+
+    private static void beginList(@NotNull NbtReader reader, @NotNull NbtType type) throws IOException {
+        switch (type) {
+        case LIST:
+            reader.beginList();
+            break;
+        case BYTE_ARRAY:
+            reader.beginByteArray();
+            break;
+        case INT_ARRAY:
+            reader.beginIntArray();
+            break;
+        case LONG_ARRAY:
+            reader.beginLongArray();
+            break;
+        }
+    }
+
+    private static void endList(@NotNull NbtReader reader, @NotNull NbtType type) throws IOException {
+        switch (type) {
+        case LIST:
+            reader.endList();
+            break;
+        case BYTE_ARRAY:
+            reader.endByteArray();
+            break;
+        case INT_ARRAY:
+            reader.endIntArray();
+            break;
+        case LONG_ARRAY:
+            reader.endLongArray();
+            break;
+        }
+    }
+
+    private static void extract(@NotNull NbtElement element, @NotNull Node node, @NotNull Session session) {
+        session.add(node, element);
+        if (!node.names.isEmpty() && element instanceof NbtObjectView) {
+            NbtObjectView object = (NbtObjectView) element;
+            for (Map.Entry<String, Node> entry : node.names.entrySet()) {
+                NbtElement child = object.get(entry.getKey());
+                if (child != null)
+                    extract(child, entry.getValue(), session);
+            }
+        }
+        if (!node.hasItems())
+            return;
+        if (element instanceof NbtListView) {
+            NbtListView list = (NbtListView) element;
+            for (int i = 0, size = list.size(); i < size; i++) {
+                Node child = node.item(i);
+                if (child != null)
+                    extract(list.get(i), child, session);
+            }
+        } else if (element instanceof NbtByteArrayView) {
+            NbtByteArrayView array = (NbtByteArrayView) element;
+            for (int i = 0, length = array.length(); i < length; i++) {
+                Node child = node.item(i);
+                if (child != null)
+                    extract(NbtByte.of(array.get(i)), child, session);
+            }
+        } else if (element instanceof NbtIntArrayView) {
+            NbtIntArrayView array = (NbtIntArrayView) element;
+            for (int i = 0, length = array.length(); i < length; i++) {
+                Node child = node.item(i);
+                if (child != null)
+                    extract(NbtInt.of(array.get(i)), child, session);
+            }
+        } else if (element instanceof NbtLongArrayView) {
+            NbtLongArrayView array = (NbtLongArrayView) element;
+            for (int i = 0, length = array.length(); i < length; i++) {
+                Node child = node.item(i);
+                if (child != null)
+                    extract(NbtLong.of(array.get(i)), child, session);
+            }
+        }
+    }
+}
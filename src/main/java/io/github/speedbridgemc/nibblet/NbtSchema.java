@@ -0,0 +1,353 @@
+package io.github.speedbridgemc.nibblet;
+
+import io.github.speedbridgemc.nibblet.stream.MalformedNbtDataException;
+import io.github.speedbridgemc.nibblet.stream.NbtKey;
+import io.github.speedbridgemc.nibblet.stream.NbtKeySet;
+import io.github.speedbridgemc.nibblet.stream.NbtReader;
+import io.github.speedbridgemc.nibblet.stream.NbtStreamHandler;
+import io.github.speedbridgemc.nibblet.stream.NbtVisitor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+
+/**
+ * Decodes objects with a known shape, only decoding the entries it expects and skipping over everything else.<p>
+ * A schema lists the entries it expects, along with their types. Entries can either be decoded as a whole, or be
+ * objects (or lists of objects) that are decoded according to a nested schema:
+ * <pre>{@code
+ * NbtSchema item = NbtSchema.builder()
+ *         .entry("id", NbtType.STRING)
+ *         .entry("Count", NbtType.BYTE)
+ *         .build();
+ * NbtSchema entity = NbtSchema.builder()
+ *         .entry("id", NbtType.STRING)
+ *         .entry("Pos", NbtType.LIST)
+ *         .list("Inventory", item)
+ *         .build();
+ * NbtObject nbt = entity.read(NbtFormat.JAVA, data);
+ * }</pre>
+ * Schemas are compiled into a {@link NbtKeySet}, so entry names are matched against the expected ones using their
+ * encoded bytes - names are never decoded, and the schema's own name strings are used for the results instead.
+ * Entries that aren't in the schema, or whose type doesn't match it, are skipped with {@link NbtReader#skipValue()}.<p>
+ * The expected entries can either be collected into an {@link NbtObject}, or be passed to an {@link NbtVisitor}.<p>
+ * Schemas are immutable, and can be shared between threads.
+ */
+public final class NbtSchema {
+    public static final class Builder {
+        private final @NotNull LinkedHashMap<String, Entry> entries;
+
+        private Builder() {
+            entries = new LinkedHashMap<>();
+        }
+
+        /**
+         * Adds an entry that's decoded as a whole.<p>
+         * If an entry with the same name was already added, it's replaced.
+         * @param name entry name
+         * @param type entry type
+         * @return this builder
+         * @throws IllegalArgumentException if the type can't be the type of an entry.
+         */
+        public @NotNull Builder entry(@NotNull String name, @NotNull NbtType type) {
+            if (type == NbtType.END || type == NbtType.ROOT_LIST)
+                throw new IllegalArgumentException(type + " can't be the type of an entry");
+            entries.put(name, new Entry(name, type, null));
+            return this;
+        }
+
+        /**
+         * Adds an object entry that's decoded according to a nested schema.<p>
+         * If an entry with the same name was already added, it's replaced.
+         * @param name entry name
+         * @param schema schema of the object
+         * @return this builder
+         */
+        public @NotNull Builder object(@NotNull String name, @NotNull NbtSchema schema) {
+            entries.put(name, new Entry(name, NbtType.OBJECT, schema));
+            return this;
+        }
+
+        /**
+         * Adds a list entry whose items are objects that are decoded according to a nested schema.<p>
+         * If an entry with the same name was already added, it's replaced.
+         * @param name entry name
+         * @param itemSchema schema of the list's items
+         * @return this builder
+         */
+        public @NotNull Builder list(@NotNull String name, @NotNull NbtSchema itemSchema) {
+            entries.put(name, new Entry(name, NbtType.LIST, itemSchema));
+            return this;
+        }
+
+        public @NotNull NbtSchema build() {
+            return new NbtSchema(entries.values().toArray(new Entry[0]));
+        }
+    }
+
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    private static final class Entry {
+        public final @NotNull String name;
+        public final @NotNull NbtType type;
+        public final @Nullable NbtSchema schema;
+
+        private Entry(@NotNull String name, @NotNull NbtType type, @Nullable NbtSchema schema) {
+            this.name = name;
+            this.type = type;
+            this.schema = schema;
+        }
+    }
+
+    private final @NotNull Entry @NotNull [] entries;
+    private final @NotNull NbtKeySet keys;
+
+    private NbtSchema(@NotNull Entry @NotNull [] entries) {
+        this.entries = entries;
+        NbtKey[] keys = new NbtKey[entries.length];
+        for (int i = 0; i < entries.length; i++)
+            keys[i] = NbtKey.of(entries[i].name);
+        this.keys = NbtKeySet.of(keys);
+    }
+
+    /**
+     * Decodes the expected entries of the root object of an NBT structure in a stream.
+     * @param streamHandler stream handler
+     * @param in input stream
+     * @return object with the expected entries that were found
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if an I/O error occurs.
+     */
+    public @NotNull NbtObject read(@NotNull NbtStreamHandler streamHandler, @NotNull InputStream in) throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, in)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Decodes the expected entries of the root object of an NBT structure in a byte array.
+     * @param streamHandler stream handler
+     * @param data byte array to read from
+     * @return object with the expected entries that were found
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if the data ends prematurely.
+     */
+    public @NotNull NbtObject read(@NotNull NbtStreamHandler streamHandler, byte @NotNull [] data) throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, data)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Decodes the expected entries of the root object of an NBT structure in a buffer, starting at its position.<p>
+     * The buffer's position is <em>not</em> modified.
+     * @param streamHandler stream handler
+     * @param buf buffer to read from
+     * @return object with the expected entries that were found
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if the data ends prematurely.
+     */
+    public @NotNull NbtObject read(@NotNull NbtStreamHandler streamHandler, @NotNull ByteBuffer buf) throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, buf)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Decodes the expected entries of the root object of the NBT structure a reader is positioned at.
+     * The root name is ignored.
+     * @param reader reader to read from
+     * @return object with the expected entries that were found
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if an I/O error occurs.
+     */
+    public @NotNull NbtObject read(@NotNull NbtReader reader) throws IOException {
+        NbtType rootType = reader.nextType();
+        if (rootType != NbtType.OBJECT)
+            throw new MalformedNbtDataException("Unsupported root element type " + rootType);
+        reader.beginObject();
+        reader.nextName();
+        NbtObject object = readEntries(reader);
+        reader.endObject();
+        return object;
+    }
+
+    /**
+     * Decodes the expected entries of the object a reader is in.<p>
+     * Reading stops once the end of the object is reached - the caller must still call {@link NbtReader#endObject()}.
+     * @param reader reader, inside an object
+     * @return object with the expected entries that were found
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if an I/O error occurs.
+     */
+    public @NotNull NbtObject readEntries(@NotNull NbtReader reader) throws IOException {
+        NbtObject.Builder builder = NbtObject.builder(entries.length);
+        NbtType type;
+        while ((type = reader.nextType()) != NbtType.END) {
+            int i = reader.nextNameMatches(keys);
+            if (i < 0 || entries[i].type != type) {
+                reader.skipValue();
+                continue;
+            }
+            Entry entry = entries[i];
+            if (entry.schema == null)
+                builder.put(entry.name, NbtIO.readElement(reader, type));
+            else if (type == NbtType.OBJECT) {
+                reader.beginObject();
+                builder.put(entry.name, entry.schema.readEntries(reader));
+                reader.endObject();
+            } else {
+                reader.beginList();
+                if (skipMismatchedList(reader))
+                    continue;
+                NbtList.Builder list = NbtList.builder(reader.listSize());
+                while (reader.listHasNext()) {
+                    reader.beginObject();
+                    list.add(entry.schema.readEntries(reader));
+                    reader.endObject();
+                }
+                reader.endList();
+                builder.put(entry.name, list.build());
+            }
+        }
+        return builder.build();
+    }
+
+    // lists that should hold objects but don't (and aren't empty) are skipped - call right after beginList
+    private static boolean skipMismatchedList(@NotNull NbtReader reader) throws IOException {
+        if (reader.listItemType() == NbtType.OBJECT || reader.listSize() == 0)
+            return false;
+        reader.skipRemainingItems();
+        reader.endList();
+        return true;
+    }
+
+    /**
+     * Passes the expected entries of the root object of an NBT structure in a byte array to a visitor.
+     * @param streamHandler stream handler
+     * @param data byte array to read from
+     * @param visitor visitor
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if the data ends prematurely.
+     */
+    public void accept(@NotNull NbtStreamHandler streamHandler, byte @NotNull [] data, @NotNull NbtVisitor visitor)
+            throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, data)) {
+            accept(reader, visitor);
+        }
+    }
+
+    /**
+     * Passes the expected entries of the root object of an NBT structure in a stream to a visitor.
+     * @param streamHandler stream handler
+     * @param in input stream
+     * @param visitor visitor
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void accept(@NotNull NbtStreamHandler streamHandler, @NotNull InputStream in, @NotNull NbtVisitor visitor)
+            throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, in)) {
+            accept(reader, visitor);
+        }
+    }
+
+    /**
+     * Passes the expected entries of the root object of the NBT structure a reader is positioned at to a visitor.<p>
+     * The visitor sees the root object and the expected entries (and everything inside the ones that are decoded as a whole),
+     * exactly like {@link NbtIO#accept(NbtReader, NbtVisitor)} would. If the visitor stops, the reader is left in
+     * the middle of the structure.
+     * @param reader reader to read from
+     * @param visitor visitor
+     * @return {@code false} if the visitor stopped, {@code true} otherwise
+     * @throws MalformedNbtDataException if the element data is malformed.
+     * @throws IOException if an I/O error occurs.
+     */
+    public boolean accept(@NotNull NbtReader reader, @NotNull NbtVisitor visitor) throws IOException {
+        NbtType rootType = reader.nextType();
+        if (rootType != NbtType.OBJECT)
+            throw new MalformedNbtDataException("Unsupported root element type " + rootType);
+        String rootName = reader.nextName();
+        return walkObject(reader, new NbtIO.VisitorWalker(reader, visitor), visitor, rootName);
+    }
+
+    // these all return false if the visitor stopped
+
+    private boolean walkObject(@NotNull NbtReader reader, @NotNull NbtIO.VisitorWalker walker, @NotNull NbtVisitor visitor,
+                               @Nullable String name) throws IOException {
+        switch (visitor.visitBeginObject(name)) {
+        case SKIP:
+            reader.skipValue();
+            return true;
+        case STOP:
+            return false;
+        }
+        reader.beginObject();
+        NbtType type;
+        while ((type = reader.nextType()) != NbtType.END) {
+            int i = reader.nextNameMatches(keys);
+            if (i < 0 || entries[i].type != type) {
+                reader.skipValue();
+                continue;
+            }
+            Entry entry = entries[i];
+            if (entry.schema == null) {
+                if (!walker.walkValue(type, entry.name))
+                    return false;
+            } else if (type == NbtType.OBJECT) {
+                if (!entry.schema.walkObject(reader, walker, visitor, entry.name))
+                    return false;
+            } else if (!entry.schema.walkList(reader, walker, visitor, entry.name))
+                return false;
+        }
+        reader.endObject();
+        visitor.visitEndObject();
+        return true;
+    }
+
+    // walks a list of objects, each of which follows this schema
+    private boolean walkList(@NotNull NbtReader reader, @NotNull NbtIO.VisitorWalker walker, @NotNull NbtVisitor visitor,
+                             @NotNull String name) throws IOException {
+        reader.beginList();
+        if (skipMismatchedList(reader))
+            return true;
+        switch (visitor.visitBeginList(name, reader.listItemType(), reader.listSize())) {
+        case SKIP:
+            reader.skipRemainingItems();
+            reader.endList();
+            return true;
+        case STOP:
+            return false;
+        }
+        while (reader.listHasNext()) {
+            if (!walkObject(reader, walker, visitor, null))
+                return false;
+        }
+        reader.endList();
+        visitor.visitEndList();
+        return true;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < entries.length; i++) {
+            if (i > 0)
+                sb.append(", ");
+            Entry entry = entries[i];
+            sb.append(entry.name).append(": ");
+            if (entry.schema == null)
+                sb.append(entry.type);
+            else if (entry.type == NbtType.LIST)
+                sb.append('[').append(entry.schema).append(']');
+            else
+                sb.append(entry.schema);
+        }
+        return sb.append('}').toString();
+    }
+}
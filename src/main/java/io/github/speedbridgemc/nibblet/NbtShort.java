@@ -2,9 +2,19 @@ package io.github.speedbridgemc.nibblet;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Objects;
-
+/**
+ * A short element. Values between {@literal -128} and {@literal 1023} are cached, so {@link #of(short)} returns the same
+ * instance for them every time.
+ */
 public final class NbtShort implements NbtNumber {
+    private static final int CACHE_LOW = -128, CACHE_HIGH = 1023;
+    private static final NbtShort[] CACHE = new NbtShort[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++)
+            CACHE[i] = new NbtShort((short) (i + CACHE_LOW));
+    }
+
     private final short value;
 
     private NbtShort(short value) {
@@ -12,6 +22,8 @@ public final class NbtShort implements NbtNumber {
     }
 
     public static @NotNull NbtShort of(short value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH)
+            return CACHE[value - CACHE_LOW];
         return new NbtShort(value);
     }
 
@@ -43,6 +55,7 @@ public final class NbtShort implements NbtNumber {
 
     @Override
     public int hashCode() {
-        return Objects.hash(NbtType.SHORT, value);
+        // same as Objects.hash(NbtType.SHORT, value), without boxing
+        return 31 * (31 + NbtType.SHORT.hashCode()) + Short.hashCode(value);
     }
 }
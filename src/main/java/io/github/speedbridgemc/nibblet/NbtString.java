@@ -2,9 +2,12 @@ package io.github.speedbridgemc.nibblet;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Objects;
-
+/**
+ * A string element. The empty string is cached, and other strings can be deduplicated with an {@link NbtStringTable}.
+ */
 public final class NbtString implements NbtElement {
+    private static final NbtString EMPTY = new NbtString("");
+
     private final @NotNull String value;
 
     private NbtString(@NotNull String value) {
@@ -12,6 +15,8 @@ public final class NbtString implements NbtElement {
     }
 
     public static @NotNull NbtString of(@NotNull String value) {
+        if (value.isEmpty())
+            return EMPTY;
         return new NbtString(value);
     }
 
@@ -41,6 +46,7 @@ public final class NbtString implements NbtElement {
 
     @Override
     public int hashCode() {
-        return Objects.hash(NbtType.STRING, value);
+        // same as Objects.hash(NbtType.STRING, value), without boxing
+        return 31 * (31 + NbtType.STRING.hashCode()) + value.hashCode();
     }
 }
@@ -0,0 +1,102 @@
+package io.github.speedbridgemc.nibblet;
+
+import io.github.speedbridgemc.nibblet.stream.NbtStreamHandler;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A bounded intern table of string elements.<p>
+ * String values repeat a lot ({@code "minecraft:air"}, {@code "minecraft:stone"}, block state property values...),
+ * so trees {@linkplain NbtIO#read(NbtStreamHandler, byte[], NbtStringTable) read} with a string table share one
+ * {@link NbtString} instance per distinct value, instead of holding a copy per occurrence. A table can be kept for as
+ * long as its strings are worth sharing - for example, per world, or just for a batch of chunks.<p>
+ * Like {@link io.github.speedbridgemc.nibblet.stream.NbtNameCache}, the table is a fixed-size open addressing table -
+ * once it's full, new strings replace older ones, so it never grows past its capacity and never keeps more than that
+ * many strings alive. Strings longer than the {@linkplain #maxLength() maximum length} aren't interned at all.<p>
+ * String tables are <em>not</em> thread-safe.
+ */
+public final class NbtStringTable {
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int DEFAULT_MAX_LENGTH = 128;
+    // a string is looked for in this many slots from its home slot, before giving up/evicting
+    private static final int MAX_PROBES = 8;
+
+    private final int mask;
+    private final int maxLength;
+    private final int @NotNull [] hashes;
+    private final @Nullable NbtString @NotNull [] values;
+
+    /**
+     * Creates a string table.
+     * @param capacity maximum number of strings to intern, rounded up to a power of 2
+     * @param maxLength maximum length (in chars) of strings to intern
+     */
+    public NbtStringTable(int capacity, int maxLength) {
+        if (capacity <= 0 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30, got " + capacity);
+        if (maxLength < 0)
+            throw new IllegalArgumentException("Maximum length must be non-negative, got " + maxLength);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+        mask = size - 1;
+        this.maxLength = maxLength;
+        hashes = new int[size];
+        values = new NbtString[size];
+    }
+
+    /**
+     * Creates a string table that holds up to {@value #DEFAULT_CAPACITY} strings of up to {@value #DEFAULT_MAX_LENGTH}
+     * chars.
+     */
+    public NbtStringTable() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public int maxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Removes all strings from the table.
+     */
+    public void clear() {
+        Arrays.fill(hashes, 0);
+        Arrays.fill(values, null);
+    }
+
+    /**
+     * Gets the string element with a value, creating and interning it if it isn't interned yet.
+     * @param value string value
+     * @return string element
+     */
+    public @NotNull NbtString intern(@NotNull String value) {
+        if (value.length() > maxLength)
+            return NbtString.of(value);
+        int h = value.hashCode();
+        // spread the high bits into the low ones, since the table index is taken from the low ones
+        int hash = h ^ (h >>> 16);
+        int slot = hash & mask;
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int s = (slot + i) & mask;
+            NbtString element = values[s];
+            if (element == null) {
+                slot = s;
+                break;
+            }
+            if (hashes[s] == hash && element.value().equals(value))
+                return element;
+        }
+        // not interned - either take the free slot we found, or evict whatever is in the home slot
+        NbtString element = NbtString.of(value);
+        hashes[slot] = hash;
+        values[slot] = element;
+        return element;
+    }
+}
@@ -2,8 +2,6 @@ package io.github.speedbridgemc.nibblet;
 
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
-
 /**
  * Represents an NBT element type.
  */
@@ -124,14 +122,15 @@ public enum NbtType {
         return this == BYTE || this == SHORT || this == INT || this == LONG || this == FLOAT || this == DOUBLE;
     }
 
-    private static final HashMap<Byte, NbtType> MAP;
+    // indexed by type ID - this is looked up for every element read, so it's not a HashMap<Byte, NbtType>
+    private static final NbtType[] BY_ID;
 
     static {
-        MAP = new HashMap<>();
+        BY_ID = new NbtType[Byte.MAX_VALUE + 1];
         for (NbtType type : values()) {
             if (type == ROOT_LIST)
                 continue;
-            MAP.put(type.id(), type);
+            BY_ID[type.id()] = type;
         }
     }
 
@@ -141,6 +140,8 @@ public enum NbtType {
      * @return matching {@code TagType}, or {@code null} if no matching type was found
      */
     public static @Nullable NbtType fromId(byte id) {
-        return MAP.get(id);
+        if (id < 0)
+            return null;
+        return BY_ID[id];
     }
 }
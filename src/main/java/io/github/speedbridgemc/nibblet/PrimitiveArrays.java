@@ -0,0 +1,32 @@
+package io.github.speedbridgemc.nibblet;
+
+/**
+ * Growth and bounds checking shared by the primitive-backed array elements.
+ */
+final class PrimitiveArrays {
+    private PrimitiveArrays() { }
+
+    static final int DEFAULT_CAPACITY = 10;
+    // some VMs reserve header words in arrays, so don't go all the way up to Integer.MAX_VALUE
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    /**
+     * Gets the capacity to grow an array to, so that adding elements one at a time takes amortized constant time.
+     * @param capacity current capacity
+     * @param minCapacity required capacity
+     * @return new capacity, at least {@code minCapacity}
+     */
+    static int grow(int capacity, int minCapacity) {
+        if (minCapacity < 0 || minCapacity > MAX_CAPACITY)
+            throw new OutOfMemoryError("Array is too large");
+        int newCapacity = capacity + Math.max(capacity >> 1, 1);
+        if (newCapacity < minCapacity)
+            return minCapacity;
+        return newCapacity < 0 || newCapacity > MAX_CAPACITY ? MAX_CAPACITY : newCapacity;
+    }
+
+    static void checkIndex(int i, int length) {
+        if (i < 0 || i >= length)
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + length);
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.speedbridgemc.nibblet;
+
+import io.github.speedbridgemc.nibblet.stream.NbtStreamHandler;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Implemented by immutable elements, which can remember their encoded size instead of having it recomputed every time
+ * they're {@linkplain NbtIO#sizeOf(NbtElement, NbtStreamHandler) sized}.
+ */
+interface SizeCachingElement {
+    /**
+     * Gets the cached payload size of this element.
+     * @param streamHandler stream handler the size is for
+     * @return payload size, or {@literal -1} if it isn't cached for this stream handler
+     */
+    long cachedPayloadSize(@NotNull NbtStreamHandler streamHandler);
+
+    void cachePayloadSize(@NotNull NbtStreamHandler streamHandler, long size);
+
+    /**
+     * A payload size, along with the stream handler it's for.<p>
+     * Immutable, so it can be safely published through a plain field - elements only cache the size for one stream handler.
+     */
+    final class CachedSize {
+        public final @NotNull NbtStreamHandler streamHandler;
+        public final long size;
+
+        CachedSize(@NotNull NbtStreamHandler streamHandler, long size) {
+            this.streamHandler = streamHandler;
+            this.size = size;
+        }
+
+        static long get(@Nullable CachedSize cachedSize, @NotNull NbtStreamHandler streamHandler) {
+            return cachedSize != null && cachedSize.streamHandler == streamHandler ? cachedSize.size : -1;
+        }
+    }
+}
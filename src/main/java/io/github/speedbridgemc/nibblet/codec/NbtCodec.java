@@ -0,0 +1,141 @@
+package io.github.speedbridgemc.nibblet.codec;
+
+import io.github.speedbridgemc.nibblet.NbtType;
+import io.github.speedbridgemc.nibblet.stream.ByteBufferOutputStream;
+import io.github.speedbridgemc.nibblet.stream.MalformedNbtDataException;
+import io.github.speedbridgemc.nibblet.stream.NbtReader;
+import io.github.speedbridgemc.nibblet.stream.NbtStreamHandler;
+import io.github.speedbridgemc.nibblet.stream.NbtWriter;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Converts objects to and from NBT objects, by streaming them straight to an {@link NbtWriter} or from an
+ * {@link NbtReader} - no {@link io.github.speedbridgemc.nibblet.NbtObject} is created in between.<p>
+ * Codecs are usually generated for {@link NbtSerializable} types, but can also be written by hand.
+ * @param <T> type of object
+ */
+public interface NbtCodec<T> {
+    /**
+     * Writes the entries of an object into the current NBT object.
+     * @param writer writer, inside an object
+     * @param value value to write
+     * @throws IOException if an I/O error occurs.
+     */
+    void writeEntries(@NotNull NbtWriter writer, @NotNull T value) throws IOException;
+
+    /**
+     * Reads an object from the entries of the current NBT object.<p>
+     * Reading stops once the end of the NBT object is reached - the caller must still call {@link NbtReader#endObject()}.
+     * @param reader reader, inside an object
+     * @return value that was read
+     * @throws MalformedNbtDataException if the entries don't match the object.
+     * @throws IOException if an I/O error occurs.
+     */
+    @NotNull T readEntries(@NotNull NbtReader reader) throws IOException;
+
+    /**
+     * Writes an object as an NBT object. If the writer is inside an object, its name must already be set.
+     * @param writer writer
+     * @param value value to write
+     * @throws IOException if an I/O error occurs.
+     */
+    default void write(@NotNull NbtWriter writer, @NotNull T value) throws IOException {
+        writer.beginObject();
+        writeEntries(writer, value);
+        writer.endObject();
+    }
+
+    /**
+     * Reads an object from an NBT object. If the reader is inside an object, its name must already be read.
+     * @param reader reader
+     * @return value that was read
+     * @throws MalformedNbtDataException if the NBT object doesn't match the object.
+     * @throws IOException if an I/O error occurs.
+     */
+    default @NotNull T read(@NotNull NbtReader reader) throws IOException {
+        reader.beginObject();
+        T value = readEntries(reader);
+        reader.endObject();
+        return value;
+    }
+
+    /**
+     * Writes an object as the root of an NBT structure.
+     * @param rootName root element name
+     * @param value value to write
+     * @param streamHandler stream handler
+     * @param out output stream
+     * @throws IOException if an I/O error occurs.
+     */
+    default void write(@NotNull String rootName, @NotNull T value, @NotNull NbtStreamHandler streamHandler,
+                       @NotNull OutputStream out) throws IOException {
+        try (NbtWriter writer = new NbtWriter(streamHandler, out)) {
+            writer.name(rootName);
+            write(writer, value);
+        }
+    }
+
+    /**
+     * Writes an object as the root of an NBT structure, into a byte array.
+     * @param rootName root element name
+     * @param value value to write
+     * @param streamHandler stream handler
+     * @return encoded NBT structure
+     * @throws IOException if the value can't be encoded.
+     */
+    default byte @NotNull [] write(@NotNull String rootName, @NotNull T value, @NotNull NbtStreamHandler streamHandler)
+            throws IOException {
+        ByteBufferOutputStream out = new ByteBufferOutputStream();
+        write(rootName, value, streamHandler, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads an object from the root of an NBT structure. The root name is ignored.
+     * @param streamHandler stream handler
+     * @param in input stream
+     * @return value that was read
+     * @throws MalformedNbtDataException if the NBT structure doesn't match the object.
+     * @throws IOException if an I/O error occurs.
+     */
+    default @NotNull T read(@NotNull NbtStreamHandler streamHandler, @NotNull InputStream in) throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, in)) {
+            return readRoot(reader);
+        }
+    }
+
+    /**
+     * Reads an object from the root of an NBT structure in a byte array. The root name is ignored.
+     * @param streamHandler stream handler
+     * @param data encoded NBT structure
+     * @return value that was read
+     * @throws MalformedNbtDataException if the NBT structure doesn't match the object.
+     * @throws IOException if the data can't be decoded.
+     */
+    default @NotNull T read(@NotNull NbtStreamHandler streamHandler, byte @NotNull [] data) throws IOException {
+        try (NbtReader reader = new NbtReader(streamHandler, data)) {
+            return readRoot(reader);
+        }
+    }
+
+    /**
+     * Reads an object from the root of an NBT structure. The root name is ignored.
+     * @param reader reader, positioned at the start of the structure
+     * @return value that was read
+     * @throws MalformedNbtDataException if the NBT structure doesn't match the object.
+     * @throws IOException if an I/O error occurs.
+     */
+    default @NotNull T readRoot(@NotNull NbtReader reader) throws IOException {
+        if (reader.nextType() != NbtType.OBJECT)
+            throw new MalformedNbtDataException("Root element isn't an object");
+        reader.beginObject();
+        reader.nextName();
+        T value = readEntries(reader);
+        reader.endObject();
+        return value;
+    }
+}
@@ -0,0 +1,17 @@
+package io.github.speedbridgemc.nibblet.codec;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the entry name of a field of an {@link NbtSerializable} type. By default, the field's name is used.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface NbtName {
+    String value();
+}
@@ -0,0 +1,37 @@
+package io.github.speedbridgemc.nibblet.codec;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class or record to have an {@link NbtCodec} generated for it by the {@code nibblet-processor} annotation
+ * processor.<p>
+ * The codec is generated in the same package, and named after the type with {@code NbtCodec} appended (with nested types,
+ * enclosing type names are joined with {@code _}) - for example, {@code Entity.Pos} gets {@code Entity_PosNbtCodec}.
+ * Its {@code INSTANCE} field holds the codec.<p>
+ * Each non-static, non-transient field is serialized as an entry named after it (see {@link NbtName}).
+ * Classes need a non-private no-arg constructor, and each field must either be non-private (and non-final),
+ * or have a getter ({@code getX()}/{@code isX()}) and a setter ({@code setX(...)}). Records are created with their
+ * canonical constructor.<p>
+ * Supported field types are:
+ * <ul>
+ *     <li>primitives and their boxed types ({@code boolean}s are stored as bytes)</li>
+ *     <li>{@code String}</li>
+ *     <li>{@code byte[]}, {@code int[]} and {@code long[]}, stored as arrays</li>
+ *     <li>other types annotated with {@code NbtSerializable}, stored as objects</li>
+ *     <li>{@code List}s of any of these (including lists), stored as lists</li>
+ *     <li>{@code Map}s with {@code String} keys and values of any of these, stored as objects</li>
+ *     <li>{@code Optional}s of any of these, and {@code OptionalInt}, {@code OptionalLong} and {@code OptionalDouble}</li>
+ * </ul>
+ * {@code null} fields and empty optionals aren't written. Entries that are missing when reading leave the field at its
+ * default - whatever the no-arg constructor set for classes, and {@code 0}, {@code false}, {@code null} or an empty
+ * optional for records. Unknown entries are skipped, and so are entries of some other type than their field's - like lists
+ * of some other item type, which also applies to lists and maps nested in lists and maps.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface NbtSerializable { }
@@ -8,6 +8,7 @@ import org.jetbrains.annotations.NotNull;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 @ApiStatus.Internal
@@ -47,6 +48,31 @@ public final class BedrockNetworkNbtStreamHandler extends StandardNbtStreamHandl
         return VarInts.readVarInt(in);
     }
 
+    @Override
+    public int readInt(@NotNull ByteBuffer buf) throws IOException {
+        return VarInts.readVarIntZigZag(buf);
+    }
+
+    @Override
+    public long readLong(@NotNull ByteBuffer buf) throws IOException {
+        return VarInts.readVarLongZigZag(buf);
+    }
+
+    @Override
+    public int readUTFLength(@NotNull ByteBuffer buf) throws IOException {
+        return VarInts.readVarInt(buf);
+    }
+
+    @Override
+    public void skipInts(@NotNull ByteBuffer buf, int count) {
+        VarInts.skip(buf, count);
+    }
+
+    @Override
+    public void skipLongs(@NotNull ByteBuffer buf, int count) {
+        VarInts.skip(buf, count);
+    }
+
     @Override
     public void writeInt(@NotNull OutputStream out, int value) throws IOException {
         VarInts.writeVarIntZigZag(out, value);
@@ -57,11 +83,70 @@ public final class BedrockNetworkNbtStreamHandler extends StandardNbtStreamHandl
         VarInts.writeVarLongZigZag(out, value);
     }
 
+    @Override
+    public void writeInts(@NotNull OutputStream out, int @NotNull [] src, int off, int len) throws IOException {
+        byte[] chunk = chunkBuf().array();
+        int pos = 0;
+        for (int end = off + len; off < end; off++) {
+            if (pos > CHUNK_SIZE - VarInts.MAX_VARINT_SIZE) {
+                out.write(chunk, 0, pos);
+                pos = 0;
+            }
+            pos = VarInts.putVarIntZigZag(chunk, pos, src[off]);
+        }
+        out.write(chunk, 0, pos);
+    }
+
+    @Override
+    public void writeLongs(@NotNull OutputStream out, long @NotNull [] src, int off, int len) throws IOException {
+        byte[] chunk = chunkBuf().array();
+        int pos = 0;
+        for (int end = off + len; off < end; off++) {
+            if (pos > CHUNK_SIZE - VarInts.MAX_VARLONG_SIZE) {
+                out.write(chunk, 0, pos);
+                pos = 0;
+            }
+            pos = VarInts.putVarLongZigZag(chunk, pos, src[off]);
+        }
+        out.write(chunk, 0, pos);
+    }
+
     @Override
     public void writeUTFLength(@NotNull OutputStream out, int utflen) throws IOException {
         VarInts.writeVarInt(out, utflen);
     }
 
+    @Override
+    public int sizeOfInt(int value) {
+        return VarInts.varIntZigZagSize(value);
+    }
+
+    @Override
+    public int sizeOfLong(long value) {
+        return VarInts.varLongZigZagSize(value);
+    }
+
+    @Override
+    public int sizeOfUTFLength(int utflen) {
+        return VarInts.varIntSize(utflen);
+    }
+
+    /**
+     * {@inheritDoc}<p>
+     * Lengths are VarInts here, so their size depends on their value. Reserved lengths are always
+     * {@value VarInts#MAX_VARINT_SIZE} bytes, padded with continuation bytes - this is still a valid VarInt for any decoder,
+     * but it means lists and arrays written to a {@link SeekableOutputStream} take up to 4 more bytes than they otherwise would.
+     */
+    @Override
+    public int reservedLengthSize() {
+        return VarInts.MAX_VARINT_SIZE;
+    }
+
+    @Override
+    public void writeReservedLength(@NotNull OutputStream out, int length) throws IOException {
+        VarInts.writeVarIntZigZag(out, length, VarInts.MAX_VARINT_SIZE);
+    }
+
     @Override
     public void skipInt(@NotNull InputStream in) throws IOException {
         readInt(in);
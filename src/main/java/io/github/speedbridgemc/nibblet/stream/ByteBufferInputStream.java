@@ -0,0 +1,47 @@
+package io.github.speedbridgemc.nibblet.stream;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads from a buffer, advancing its position - used by the default {@code ByteBuffer} methods of
+ * {@link NbtStreamHandler}, which fall back to the {@code InputStream} ones.<p>
+ * Reads that ask for more bytes than the buffer has left throw a {@link BufferUnderflowException} instead of
+ * returning less, since that's what callers of the {@code ByteBuffer} methods expect when a value doesn't fit.
+ */
+final class ByteBufferInputStream extends InputStream {
+    private final @NotNull ByteBuffer buf;
+
+    ByteBufferInputStream(@NotNull ByteBuffer buf) {
+        this.buf = buf;
+    }
+
+    @Override
+    public int read() {
+        return buf.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte @NotNull [] b, int off, int len) {
+        buf.get(b, off, len);
+        return len;
+    }
+
+    @Override
+    public long skip(long n) {
+        if (n <= 0)
+            return 0;
+        if (n > buf.remaining())
+            throw new BufferUnderflowException();
+        buf.position(buf.position() + (int) n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return buf.remaining();
+    }
+}
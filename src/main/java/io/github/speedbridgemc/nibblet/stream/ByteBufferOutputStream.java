@@ -0,0 +1,149 @@
+package io.github.speedbridgemc.nibblet.stream;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A seekable output stream that writes to a {@link ByteBuffer}, growing it as needed.<p>
+ * Unlike {@link java.io.ByteArrayOutputStream}, the written bytes can be accessed without copying them
+ * (see {@link #toByteBuffer()}), and the stream can write into a buffer that was supplied by the caller - such as a
+ * pooled direct buffer that's then written to a socket:
+ * <pre>{@code
+ * ByteBufferOutputStream out = new ByteBufferOutputStream(pooledBuffer);
+ * NbtIO.write("", nbt, NbtFormat.BEDROCK_NETWORK, out);
+ * channel.write(out.toByteBuffer());
+ * }</pre>
+ * If the buffer fills up, its contents are moved to a new buffer twice as large (that is direct if the original buffer
+ * was direct), so the written bytes are <em>not</em> guaranteed to end up in the original buffer.<p>
+ * Positions are relative to where writing started. Closing this stream has no effect.
+ */
+public final class ByteBufferOutputStream extends SeekableOutputStream {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private @NotNull ByteBuffer buf;
+    // index of the first written byte in buf
+    private int start;
+
+    /**
+     * Creates a stream that writes to a buffer, starting at its position.<p>
+     * The buffer grows once its limit is reached. The buffer's position is <em>not</em> modified.
+     * @param buf buffer to write to
+     */
+    public ByteBufferOutputStream(@NotNull ByteBuffer buf) {
+        this.buf = buf.duplicate();
+        start = this.buf.position();
+    }
+
+    /**
+     * Creates a stream that writes to a new heap buffer.
+     * @param initialCapacity initial capacity of the buffer
+     */
+    public ByteBufferOutputStream(int initialCapacity) {
+        this(ByteBuffer.allocate(initialCapacity));
+    }
+
+    /**
+     * Creates a stream that writes to a new heap buffer with an initial capacity of {@value #DEFAULT_CAPACITY} bytes.
+     */
+    public ByteBufferOutputStream() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    private void ensureRemaining(int n) {
+        if (buf.remaining() >= n)
+            return;
+        int size = size();
+        int newCapacity = Math.max(Math.max(buf.limit() - start, 16) * 2, size + n);
+        if (newCapacity < 0)
+            throw new OutOfMemoryError("Buffer is too large");
+        ByteBuffer newBuf = buf.isDirect() ? ByteBuffer.allocateDirect(newCapacity) : ByteBuffer.allocate(newCapacity);
+        buf.flip();
+        buf.position(start);
+        newBuf.put(buf);
+        buf = newBuf;
+        start = 0;
+    }
+
+    /**
+     * Gets the number of bytes written.
+     * @return size
+     */
+    public int size() {
+        return buf.position() - start;
+    }
+
+    @Override
+    public long position() {
+        return size();
+    }
+
+    @Override
+    public void write(int b) {
+        ensureRemaining(1);
+        buf.put((byte) b);
+    }
+
+    @Override
+    public void write(byte @NotNull [] b, int off, int len) {
+        ensureRemaining(len);
+        buf.put(b, off, len);
+    }
+
+    @Override
+    public void writeAt(long position, byte @NotNull [] b, int off, int len) {
+        if (position < 0 || position + len > size())
+            throw new IndexOutOfBoundsException("Range [" + position + ", " + position + " + " + len + ") out of bounds for size " + size());
+        ByteBuffer dup = buf.duplicate();
+        dup.position(start + (int) position);
+        dup.put(b, off, len);
+    }
+
+    /**
+     * Discards everything that was written, so the stream can be reused.
+     */
+    public void reset() {
+        buf.position(start);
+    }
+
+    /**
+     * Gets a view of the written bytes. The view shares its contents with this stream's buffer, so it's only valid until
+     * this stream is written to again.
+     * @return buffer positioned at the first written byte, and limited to the last
+     */
+    public @NotNull ByteBuffer toByteBuffer() {
+        ByteBuffer view = buf.duplicate();
+        view.flip();
+        view.position(start);
+        return view;
+    }
+
+    /**
+     * Copies the written bytes into a new array.
+     * @return byte array
+     */
+    public byte @NotNull [] toByteArray() {
+        if (buf.hasArray()) {
+            int offset = buf.arrayOffset() + start;
+            return Arrays.copyOfRange(buf.array(), offset, offset + size());
+        }
+        byte[] array = new byte[size()];
+        toByteBuffer().get(array);
+        return array;
+    }
+
+    /**
+     * Writes the written bytes to another stream.
+     * @param out stream to write to
+     * @throws IOException if an I/O error occurs.
+     */
+    public void writeTo(@NotNull OutputStream out) throws IOException {
+        if (buf.hasArray())
+            out.write(buf.array(), buf.arrayOffset() + start, size());
+        else
+            out.write(toByteArray());
+    }
+}
@@ -0,0 +1,185 @@
+package io.github.speedbridgemc.nibblet.stream;
+
+import io.github.speedbridgemc.nibblet.NbtType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * @see NbtVisitor#all(NbtVisitor...)
+ */
+final class CompositeNbtVisitor implements NbtVisitor {
+    private final @NotNull NbtVisitor @NotNull [] visitors;
+    // per visitor: how many levels deep it is inside something it skipped (0 = receiving values)
+    private final int @NotNull [] skipDepths;
+    private final boolean @NotNull [] stopped;
+    // results of the current visitBegin call, and which visitors want the array that's being visited
+    private final @Nullable Action @NotNull [] actions;
+    private final boolean @NotNull [] wantsArray;
+
+    CompositeNbtVisitor(@NotNull NbtVisitor @NotNull [] visitors) {
+        this.visitors = visitors;
+        skipDepths = new int[visitors.length];
+        stopped = new boolean[visitors.length];
+        actions = new Action[visitors.length];
+        wantsArray = new boolean[visitors.length];
+    }
+
+    private boolean receiving(int i) {
+        return skipDepths[i] == 0 && !stopped[i];
+    }
+
+    // if nobody continued, the driver won't descend (or call visitEnd) - so only track depths if somebody did
+    private @NotNull Action finishBegin(boolean nested) {
+        boolean anyContinued = false, allStopped = true;
+        for (int i = 0; i < visitors.length; i++) {
+            if (actions[i] == Action.STOP)
+                stopped[i] = true;
+            else if (actions[i] == Action.CONTINUE)
+                anyContinued = true;
+            allStopped &= stopped[i];
+        }
+        if (!anyContinued)
+            return allStopped ? Action.STOP : Action.SKIP;
+        if (nested) {
+            for (int i = 0; i < visitors.length; i++) {
+                if (stopped[i])
+                    continue;
+                if (skipDepths[i] > 0)
+                    skipDepths[i]++;
+                else if (actions[i] == Action.SKIP)
+                    skipDepths[i] = 1;
+            }
+        }
+        return Action.CONTINUE;
+    }
+
+    // called after the end was forwarded to receiving visitors
+    private void end() {
+        for (int i = 0; i < visitors.length; i++) {
+            if (!stopped[i] && skipDepths[i] > 0)
+                skipDepths[i]--;
+        }
+    }
+
+    @Override
+    public @NotNull Action visitBeginObject(@Nullable String name) {
+        for (int i = 0; i < visitors.length; i++)
+            actions[i] = receiving(i) ? visitors[i].visitBeginObject(name) : null;
+        return finishBegin(true);
+    }
+
+    @Override
+    public void visitEndObject() {
+        for (int i = 0; i < visitors.length; i++) {
+            if (receiving(i))
+                visitors[i].visitEndObject();
+        }
+        end();
+    }
+
+    @Override
+    public @NotNull Action visitBeginList(@Nullable String name, @NotNull NbtType itemType, int size) {
+        for (int i = 0; i < visitors.length; i++)
+            actions[i] = receiving(i) ? visitors[i].visitBeginList(name, itemType, size) : null;
+        return finishBegin(true);
+    }
+
+    @Override
+    public void visitEndList() {
+        for (int i = 0; i < visitors.length; i++) {
+            if (receiving(i))
+                visitors[i].visitEndList();
+        }
+        end();
+    }
+
+    @Override
+    public @NotNull Action visitBeginArray(@Nullable String name, @NotNull NbtType type, int length) {
+        for (int i = 0; i < visitors.length; i++) {
+            actions[i] = receiving(i) ? visitors[i].visitBeginArray(name, type, length) : null;
+            wantsArray[i] = actions[i] == Action.CONTINUE;
+        }
+        // arrays don't have an end, so there's no depth to track
+        return finishBegin(false);
+    }
+
+    @Override
+    public void visitByteArray(@Nullable String name, byte @NotNull [] values, int length) {
+        for (int i = 0; i < visitors.length; i++) {
+            if (wantsArray[i] && !stopped[i])
+                visitors[i].visitByteArray(name, values, length);
+        }
+    }
+
+    @Override
+    public void visitIntArray(@Nullable String name, int @NotNull [] values, int length) {
+        for (int i = 0; i < visitors.length; i++) {
+            if (wantsArray[i] && !stopped[i])
+                visitors[i].visitIntArray(name, values, length);
+        }
+    }
+
+    @Override
+    public void visitLongArray(@Nullable String name, long @NotNull [] values, int length) {
+        for (int i = 0; i < visitors.length; i++) {
+            if (wantsArray[i] && !stopped[i])
+                visitors[i].visitLongArray(name, values, length);
+        }
+    }
+
+    @Override
+    public void visitByte(@Nullable String name, byte value) {
+        for (int i = 0; i < visitors.length; i++) {
+            if (receiving(i))
+                visitors[i].visitByte(name, value);
+        }
+    }
+
+    @Override
+    public void visitShort(@Nullable String name, short value) {
+        for (int i = 0; i < visitors.length; i++) {
+            if (receiving(i))
+                visitors[i].visitShort(name, value);
+        }
+    }
+
+    @Override
+    public void visitInt(@Nullable String name, int value) {
+        for (int i = 0; i < visitors.length; i++) {
+            if (receiving(i))
+                visitors[i].visitInt(name, value);
+        }
+    }
+
+    @Override
+    public void visitLong(@Nullable String name, long value) {
+        for (int i = 0; i < visitors.length; i++) {
+            if (receiving(i))
+                visitors[i].visitLong(name, value);
+        }
+    }
+
+    @Override
+    public void visitFloat(@Nullable String name, float value) {
+        for (int i = 0; i < visitors.length; i++) {
+            if (receiving(i))
+                visitors[i].visitFloat(name, value);
+        }
+    }
+
+    @Override
+    public void visitDouble(@Nullable String name, double value) {
+        for (int i = 0; i < visitors.length; i++) {
+            if (receiving(i))
+                visitors[i].visitDouble(name, value);
+        }
+    }
+
+    @Override
+    public void visitString(@Nullable String name, @NotNull String value) {
+        for (int i = 0; i < visitors.length; i++) {
+            if (receiving(i))
+                visitors[i].visitString(name, value);
+        }
+    }
+}
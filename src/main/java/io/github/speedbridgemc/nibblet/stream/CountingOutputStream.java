@@ -0,0 +1,22 @@
+package io.github.speedbridgemc.nibblet.stream;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.OutputStream;
+
+/**
+ * Discards everything written to it, only counting the bytes.
+ */
+final class CountingOutputStream extends OutputStream {
+    public long count;
+
+    @Override
+    public void write(int b) {
+        count++;
+    }
+
+    @Override
+    public void write(byte @NotNull [] b, int off, int len) {
+        count += len;
+    }
+}
@@ -0,0 +1,99 @@
+package io.github.speedbridgemc.nibblet.stream;
+
+import io.github.speedbridgemc.nibblet.util.MUTF8Strings;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An entry name that's encoded once, up front.<p>
+ * Writers and readers normally encode and decode every entry name they come across. Code that uses the same names over
+ * and over (such as serializers for a fixed structure) can instead hold on to keys, and use them with
+ * {@link NbtWriter#name(NbtKey)} and {@link NbtReader#nextNameMatches(NbtKey...)}:
+ * <pre>{@code
+ * static final NbtKey ID = NbtKey.of("id"), COUNT = NbtKey.of("Count");
+ *
+ * writer.name(ID).stringValue(id).name(COUNT).byteValue(count);
+ *
+ * while (reader.nextType() != NbtType.END) {
+ *     switch (reader.nextNameMatches(ID, COUNT)) {
+ *     case 0: id = reader.nextString(); break;
+ *     case 1: count = reader.nextByte(); break;
+ *     default: reader.skipValue(); break;
+ *     }
+ * }
+ * }</pre>
+ * Keys are immutable, and can be shared between threads.
+ */
+public final class NbtKey {
+    private final @NotNull String name;
+    private final byte @NotNull [] bytes;
+
+    private NbtKey(@NotNull String name) {
+        this.name = name;
+        bytes = MUTF8Strings.encode(name).copyBuffer();
+    }
+
+    /**
+     * Creates a key.
+     * @param name entry name
+     * @return key
+     */
+    public static @NotNull NbtKey of(@NotNull String name) {
+        return new NbtKey(name);
+    }
+
+    public @NotNull String name() {
+        return name;
+    }
+
+    /**
+     * Gets the length of this key's name, encoded in the modified UTF-8 format.
+     * @return UTF length
+     */
+    public int utfLength() {
+        return bytes.length;
+    }
+
+    byte @NotNull [] bytes() {
+        return bytes;
+    }
+
+    void write(@NotNull NbtStreamHandler streamHandler, @NotNull OutputStream out) throws IOException {
+        streamHandler.writeUTFLength(out, bytes.length);
+        out.write(bytes);
+    }
+
+    // compares against an encoded name starting at the buffer's position, without moving it
+    boolean matches(@NotNull ByteBuffer buf, int utflen) {
+        if (bytes.length != utflen)
+            return false;
+        int start = buf.position();
+        for (int i = 0; i < utflen; i++) {
+            if (buf.get(start + i) != bytes[i])
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        return name.equals(((NbtKey) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "NbtKey{" + name + "}";
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.speedbridgemc.nibblet.stream;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An immutable, ordered set of {@link NbtKey}s that encoded entry names can be looked up in without decoding them
+ * (see {@link NbtReader#nextNameMatches(NbtKeySet)}).<p>
+ * Lookups hash the encoded name, using a hash function that's seeded so that it's perfect for the keys in the set -
+ * every key gets its own slot, so a lookup only ever compares the name against a single key. Small sets are scanned
+ * instead, since comparing a few lengths is cheaper than hashing.<p>
+ * Key sets are immutable, and can be shared between threads.
+ */
+public final class NbtKeySet {
+    // sets up to this size are scanned
+    private static final int MAX_SCANNED = 4;
+    // seeds to try per table size, before doubling the table
+    private static final int MAX_SEEDS = 64;
+    private static final int MAX_TABLE_SIZE = 1 << 24;
+
+    private final @NotNull NbtKey @NotNull [] keys;
+    private final int seed;
+    // index of the key in each slot, plus 1 (0 = empty) - empty if the set is scanned
+    private final int @NotNull [] table;
+    private final int mask;
+
+    private NbtKeySet(@NotNull NbtKey @NotNull [] keys) {
+        this.keys = keys;
+        for (int i = 0; i < keys.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (keys[i].equals(keys[j]))
+                    throw new IllegalArgumentException("Duplicate key \"" + keys[i].name() + "\"");
+            }
+        }
+        if (keys.length <= MAX_SCANNED) {
+            seed = 0;
+            table = new int[0];
+            mask = -1;
+            return;
+        }
+        for (int size = Integer.highestOneBit(keys.length * 2 - 1) << 1; size <= MAX_TABLE_SIZE; size <<= 1) {
+            int[] table = new int[size];
+            for (int seed = 0; seed < MAX_SEEDS; seed++) {
+                if (fill(table, seed)) {
+                    this.seed = seed;
+                    this.table = table;
+                    mask = size - 1;
+                    return;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Couldn't find a perfect hash for " + keys.length + " keys");
+    }
+
+    private boolean fill(int @NotNull [] table, int seed) {
+        Arrays.fill(table, 0);
+        int mask = table.length - 1;
+        for (int i = 0; i < keys.length; i++) {
+            byte[] bytes = keys[i].bytes();
+            int slot = hash(seed, bytes) & mask;
+            if (table[slot] != 0)
+                return false;
+            table[slot] = i + 1;
+        }
+        return true;
+    }
+
+    // FNV-1a, seeded - hash(seed, bytes) must equal hash(seed, buf, buf.position(), bytes.length) for the same bytes
+    private static int hash(int seed, byte @NotNull [] bytes) {
+        int h = 0x811C9DC5 ^ seed * 0x9E3779B9;
+        for (byte b : bytes)
+            h = (h ^ b) * 0x01000193;
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(int seed, @NotNull ByteBuffer buf, int offset, int length) {
+        int h = 0x811C9DC5 ^ seed * 0x9E3779B9;
+        for (int i = offset, end = offset + length; i < end; i++)
+            h = (h ^ buf.get(i)) * 0x01000193;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Creates a key set. Keys are indexed in the order they're passed in.
+     * @param keys keys
+     * @return key set
+     * @throws IllegalArgumentException if there are duplicate keys.
+     */
+    public static @NotNull NbtKeySet of(@NotNull NbtKey @NotNull ... keys) {
+        return new NbtKeySet(keys.clone());
+    }
+
+    /**
+     * Creates a key set from entry names. Keys are indexed in the order they're passed in.
+     * @param names entry names
+     * @return key set
+     * @throws IllegalArgumentException if there are duplicate names.
+     */
+    public static @NotNull NbtKeySet of(@NotNull String @NotNull ... names) {
+        NbtKey[] keys = new NbtKey[names.length];
+        for (int i = 0; i < names.length; i++)
+            keys[i] = NbtKey.of(names[i]);
+        return new NbtKeySet(keys);
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public @NotNull NbtKey get(int index) {
+        return keys[index];
+    }
+
+    // looks up an encoded name starting at the buffer's position, without moving it
+    int indexOf(@NotNull ByteBuffer buf, int utflen) {
+        if (mask < 0) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].matches(buf, utflen))
+                    return i;
+            }
+            return -1;
+        }
+        int index = table[hash(seed, buf, buf.position(), utflen) & mask] - 1;
+        return index >= 0 && keys[index].matches(buf, utflen) ? index : -1;
+    }
+}
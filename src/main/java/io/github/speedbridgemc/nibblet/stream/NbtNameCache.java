@@ -0,0 +1,124 @@
+package io.github.speedbridgemc.nibblet.stream;
+
+import io.github.speedbridgemc.nibblet.util.MUTF8Strings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.UTFDataFormatException;
+import java.util.Arrays;
+
+/**
+ * A bounded cache of decoded entry names, keyed on their encoded bytes.<p>
+ * Object entry names repeat a lot ({@code "id"}, {@code "Count"}, {@code "Properties"}...), so a reader with a
+ * {@linkplain NbtReader#setNameCache(NbtNameCache) name cache} only decodes each distinct name once, and returns the same
+ * {@code String} instance every time it's read again.<p>
+ * The cache is a fixed-size open addressing table - once it's full, new names replace older ones, so it never grows
+ * past its capacity. Names longer than the {@linkplain #maxLength() maximum length} aren't cached at all.<p>
+ * Name caches are <em>not</em> thread-safe, but can be shared by readers used on the same thread.
+ */
+public final class NbtNameCache {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_LENGTH = 64;
+    // a name is looked for in this many slots from its home slot, before giving up/evicting
+    private static final int MAX_PROBES = 8;
+
+    private final int mask;
+    private final int maxLength;
+    private final int @NotNull [] hashes;
+    private final byte @Nullable [] @NotNull [] keys;
+    private final @Nullable String @NotNull [] values;
+
+    /**
+     * Creates a name cache.
+     * @param capacity maximum number of names to cache, rounded up to a power of 2
+     * @param maxLength maximum encoded length of names to cache
+     */
+    public NbtNameCache(int capacity, int maxLength) {
+        if (capacity <= 0 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30, got " + capacity);
+        if (maxLength < 0)
+            throw new IllegalArgumentException("Maximum length must be non-negative, got " + maxLength);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+        mask = size - 1;
+        this.maxLength = maxLength;
+        hashes = new int[size];
+        keys = new byte[size][];
+        values = new String[size];
+    }
+
+    /**
+     * Creates a name cache that holds up to {@value #DEFAULT_CAPACITY} names of up to {@value #DEFAULT_MAX_LENGTH} bytes.
+     */
+    public NbtNameCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public int maxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Removes all names from the cache.
+     */
+    public void clear() {
+        Arrays.fill(hashes, 0);
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+    }
+
+    private static int hash(byte @NotNull [] src, int offset, int length) {
+        int h = length;
+        for (int i = offset, end = offset + length; i < end; i++)
+            h = 31 * h + src[i];
+        // spread the high bits into the low ones, since the table index is taken from the low ones
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(byte @NotNull [] key, byte @NotNull [] src, int offset, int length) {
+        if (key.length != length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (key[i] != src[offset + i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the name encoded in a range of bytes, decoding and caching it if it isn't cached yet.
+     * @param src input buffer
+     * @param offset offset of the encoded name in the buffer
+     * @param length length of the encoded name
+     * @return decoded name
+     * @throws UTFDataFormatException if malformed input is received.
+     */
+    public @NotNull String get(byte @NotNull [] src, int offset, int length) throws UTFDataFormatException {
+        if (length > maxLength)
+            return MUTF8Strings.decode(src, offset, length);
+        int hash = hash(src, offset, length);
+        int slot = hash & mask;
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int s = (slot + i) & mask;
+            byte[] key = keys[s];
+            if (key == null) {
+                slot = s;
+                break;
+            }
+            if (hashes[s] == hash && matches(key, src, offset, length))
+                //noinspection ConstantConditions - values are set along with keys
+                return values[s];
+        }
+        // not cached - either take the free slot we found, or evict whatever is in the home slot
+        String value = MUTF8Strings.decode(src, offset, length);
+        hashes[slot] = hash;
+        keys[slot] = Arrays.copyOfRange(src, offset, offset + length);
+        values[slot] = value;
+        return value;
+    }
+}
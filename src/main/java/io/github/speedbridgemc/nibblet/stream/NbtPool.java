@@ -0,0 +1,109 @@
+package io.github.speedbridgemc.nibblet.stream;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * A per-thread pool of {@link NbtReader}s and {@link NbtWriter}s for a stream handler.<p>
+ * Readers and writers obtained from a pool are returned to it when they're closed, and are then
+ * {@linkplain NbtReader#reset(InputStream) reset} and handed out again by the next call on the same thread.
+ * This avoids allocating a new reader or writer (and its buffers) for every NBT structure:
+ * <pre>{@code
+ * try (NbtReader reader = pool.reader(packetData)) {
+ *     // ...
+ * }
+ * }</pre>
+ * Pools are thread-safe. A reader or writer must not be used after it's been closed.
+ */
+public final class NbtPool {
+    public static final int DEFAULT_MAX_IDLE = 4;
+
+    private static final class Idle {
+        public final @NotNull ArrayDeque<NbtReader> readers = new ArrayDeque<>();
+        public final @NotNull ArrayDeque<NbtWriter> writers = new ArrayDeque<>();
+    }
+
+    private final @NotNull NbtStreamHandler streamHandler;
+    private final int maxIdle;
+    private final @NotNull ThreadLocal<Idle> idle;
+
+    /**
+     * Creates a pool.
+     * @param streamHandler stream handler of pooled readers and writers
+     * @param maxIdle maximum number of idle readers (and writers) to keep per thread
+     */
+    public NbtPool(@NotNull NbtStreamHandler streamHandler, int maxIdle) {
+        if (maxIdle <= 0)
+            throw new IllegalArgumentException("Maximum idle count must be positive, got " + maxIdle);
+        this.streamHandler = streamHandler;
+        this.maxIdle = maxIdle;
+        idle = ThreadLocal.withInitial(Idle::new);
+    }
+
+    public NbtPool(@NotNull NbtStreamHandler streamHandler) {
+        this(streamHandler, DEFAULT_MAX_IDLE);
+    }
+
+    public @NotNull NbtStreamHandler streamHandler() {
+        return streamHandler;
+    }
+
+    private @NotNull NbtReader adopt(@NotNull NbtReader reader) {
+        reader.pool = this;
+        reader.pooled = false;
+        return reader;
+    }
+
+    public @NotNull NbtReader reader(@NotNull InputStream in) {
+        NbtReader reader = idle.get().readers.pollLast();
+        if (reader == null)
+            return adopt(new NbtReader(streamHandler, in));
+        reader.reset(in);
+        return adopt(reader);
+    }
+
+    public @NotNull NbtReader reader(@NotNull ByteBuffer buf) {
+        NbtReader reader = idle.get().readers.pollLast();
+        if (reader == null)
+            return adopt(new NbtReader(streamHandler, buf));
+        reader.reset(buf);
+        return adopt(reader);
+    }
+
+    public @NotNull NbtReader reader(byte @NotNull [] data, int offset, int length) {
+        return reader(ByteBuffer.wrap(data, offset, length));
+    }
+
+    public @NotNull NbtReader reader(byte @NotNull [] data) {
+        return reader(data, 0, data.length);
+    }
+
+    public @NotNull NbtWriter writer(@NotNull OutputStream out) {
+        NbtWriter writer = idle.get().writers.pollLast();
+        if (writer == null)
+            writer = new NbtWriter(streamHandler, out);
+        else
+            writer.reset(out);
+        writer.pool = this;
+        writer.pooled = false;
+        return writer;
+    }
+
+    void release(@NotNull NbtReader reader) {
+        // don't hand a caller's name cache out to whoever gets the reader next
+        reader.setNameCache(null);
+        ArrayDeque<NbtReader> readers = idle.get().readers;
+        if (readers.size() < maxIdle)
+            readers.addLast(reader);
+    }
+
+    void release(@NotNull NbtWriter writer) {
+        ArrayDeque<NbtWriter> writers = idle.get().writers;
+        if (writers.size() < maxIdle)
+            writers.addLast(writer);
+    }
+}
@@ -6,8 +6,13 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
 public final class NbtReader implements Closeable {
     private static final ThreadLocal<byte[]> TL_BUFFER = new ThreadLocal<>();
@@ -21,11 +26,35 @@ public final class NbtReader implements Closeable {
         return buf;
     }
 
+    /**
+     * Default size of the internal buffer used when reading from an {@link InputStream}.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final ByteBuffer EMPTY_BUFFER = emptyBuffer(0);
+
+    private static final int INITIAL_MAX_DEPTH = 16;
+
     private final @NotNull NbtStreamHandler streamHandler;
-    private final @NotNull InputStream in;
+    private @NotNull ByteBuffer buf;
+    // null if buf holds the entire input
+    private @Nullable Source source;
+    // kept around so its buffer can be reused when the reader is reset to another stream
+    private @Nullable StreamSource streamSource;
+    // payload sizes of primitives, or -1 if they're variable-length
+    private final int shortSize, intSize, longSize, floatSize, doubleSize;
+    // number of bytes consumed before index 0 of buf (negative if reading started past it)
+    private long base;
     private @Nullable NbtType thisType;
     private boolean firstByte;
+    // contexts are preallocated and reused, so beginning objects and lists doesn't allocate
+    private @NotNull Context @NotNull [] stack;
+    private int depth;
     private @NotNull Context ctx;
+    private @Nullable NbtNameCache nameCache;
+    // set if this reader belongs to a pool, and should be returned to it when closed
+    @Nullable NbtPool pool;
+    boolean pooled;
     
     private enum Mode {
         ROOT,
@@ -34,42 +63,456 @@ public final class NbtReader implements Closeable {
     }
 
     private static final class Context {
-        public final @NotNull Mode mode;
-        private final @Nullable Context next;
+        public @NotNull Mode mode;
         public @NotNull NbtType type;
         public @NotNull NbtType itemType;
         public int size;
         public int itemsRemaining;
 
-        private Context(@NotNull Mode mode, @Nullable Context next) {
+        private Context(@NotNull Mode mode) {
+            init(mode);
+        }
+
+        public void init(@NotNull Mode mode) {
             this.mode = mode;
-            this.next = next;
             type = NbtType.LIST;
             itemType = NbtType.END;
             size = 0;
             itemsRemaining = 0;
         }
-        
-        public @NotNull Context push(@NotNull Mode newMode) {
-            return new Context(newMode, this);
+    }
+
+    /**
+     * Supplies the reader's buffer with more data, for inputs that aren't held in a single buffer.
+     */
+    private interface Source extends Closeable {
+        /**
+         * Tries to make at least {@code n} bytes available from the buffer's current position onwards.
+         * @param buf the reader's current buffer
+         * @param n number of bytes required
+         * @return the buffer to continue reading from - may have less than {@code n} bytes remaining if the input ended
+         * @throws IOException if an I/O error occurs.
+         */
+        @NotNull ByteBuffer fill(@NotNull ByteBuffer buf, int n) throws IOException;
+
+        /**
+         * Skips past {@code n} bytes from the buffer's current position, where {@code n} is more than the buffer has remaining.
+         * @param buf the reader's current buffer
+         * @param n number of bytes to skip
+         * @return the buffer to continue reading from, or {@code null} if the input ended first
+         * @throws IOException if an I/O error occurs.
+         */
+        @Nullable ByteBuffer skip(@NotNull ByteBuffer buf, long n) throws IOException;
+    }
+
+    private static final class MappedFileSource implements Source {
+        // FileChannel.map can't map more than this in one go, so bigger files are mapped one window at a time
+        private static final long MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+        private final @NotNull FileChannel channel;
+        private final long end;
+        private long windowStart;
+
+        private MappedFileSource(@NotNull FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.end = end;
+            windowStart = start;
+        }
+
+        private @NotNull ByteBuffer map(long pos) throws IOException {
+            windowStart = pos;
+            return channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(end - pos, MAX_WINDOW_SIZE));
+        }
+
+        @Override
+        public @NotNull ByteBuffer fill(@NotNull ByteBuffer buf, int n) throws IOException {
+            if (windowStart + buf.limit() >= end)
+                // already mapped up to EOF
+                return buf;
+            return map(windowStart + buf.position());
         }
-        
-        public @NotNull Context pop() {
-            if (next == null)
-                throw new RuntimeException("Popped one too many times!");
-            return next;
+
+        @Override
+        public @Nullable ByteBuffer skip(@NotNull ByteBuffer buf, long n) throws IOException {
+            long pos = windowStart + buf.position() + n;
+            if (pos > end)
+                return null;
+            return map(pos);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
         }
     }
 
-    public NbtReader(@NotNull NbtStreamHandler streamHandler, @NotNull InputStream in) {
+    private static final class StreamSource implements Source {
+        // null while the reader is idle in a pool
+        private @Nullable InputStream in;
+        // the (possibly grown) buffer, for reuse
+        private @NotNull ByteBuffer buffer;
+
+        private StreamSource(@NotNull InputStream in, int bufferSize) {
+            this.in = in;
+            buffer = emptyBuffer(bufferSize);
+        }
+
+        public @NotNull ByteBuffer reset(@NotNull InputStream in) {
+            // whatever's left in the buffer was read from the old stream already, so it comes first if we keep reading it
+            if (in != this.in) {
+                this.in = in;
+                buffer.clear().limit(0);
+            }
+            return buffer;
+        }
+
+        // forgets the stream and whatever was read ahead from it, but keeps the buffer for reuse
+        public void release() {
+            in = null;
+            buffer.clear().limit(0);
+        }
+
+        private @NotNull InputStream in() {
+            InputStream in = this.in;
+            if (in == null)
+                throw new IllegalStateException("Reader was released to its pool");
+            return in;
+        }
+
+        @Override
+        public @NotNull ByteBuffer fill(@NotNull ByteBuffer buf, int n) throws IOException {
+            if (n > buf.capacity()) {
+                ByteBuffer newBuf = ByteBuffer.allocate(Math.max(n, buf.capacity() * 2));
+                newBuf.put(buf);
+                buf = buffer = newBuf;
+            } else
+                buf.compact();
+            // InputStream.read is allowed to return less than requested (GZIPInputStream does, for one),
+            // so keep going until we have enough
+            byte[] array = buf.array();
+            InputStream in = in();
+            while (buf.position() < n) {
+                int read = in.read(array, buf.position(), buf.capacity() - buf.position());
+                if (read < 0)
+                    break;
+                buf.position(buf.position() + read);
+            }
+            buf.flip();
+            return buf;
+        }
+
+        @Override
+        public @Nullable ByteBuffer skip(@NotNull ByteBuffer buf, long n) throws IOException {
+            n -= buf.remaining();
+            buf.clear().limit(0);
+            InputStream in = in();
+            while (n > 0) {
+                long skipped = in.skip(n);
+                if (skipped <= 0) {
+                    // InputStream.skip may skip nothing without having reached EOF, so check for that manually
+                    if (in.read() < 0)
+                        return null;
+                    skipped = 1;
+                }
+                n -= skipped;
+            }
+            return buf;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in().close();
+        }
+    }
+
+    private NbtReader(@NotNull NbtStreamHandler streamHandler, @NotNull ByteBuffer buf, @Nullable Source source) {
         this.streamHandler = streamHandler;
-        this.in = in;
+        this.buf = buf;
+        this.source = source;
+        if (source instanceof StreamSource)
+            streamSource = (StreamSource) source;
+        base = -buf.position();
+        shortSize = (int) streamHandler.payloadSize(NbtType.SHORT);
+        intSize = (int) streamHandler.payloadSize(NbtType.INT);
+        longSize = (int) streamHandler.payloadSize(NbtType.LONG);
+        floatSize = (int) streamHandler.payloadSize(NbtType.FLOAT);
+        doubleSize = (int) streamHandler.payloadSize(NbtType.DOUBLE);
+        stack = new Context[INITIAL_MAX_DEPTH];
+        ctx = stack[0] = new Context(Mode.ROOT);
+        resetState();
+    }
+
+    /**
+     * Creates a reader that decodes from a stream.<p>
+     * The stream is read in bulk into an internal buffer, so there's no need to wrap it in a
+     * {@link java.io.BufferedInputStream}. Note that this means the reader may read past the end of the NBT structure -
+     * to read the structure that follows it, {@linkplain #reset(InputStream) reset} the reader to the same stream, which
+     * keeps the bytes that were read ahead.
+     * @param streamHandler stream handler
+     * @param in stream to read from
+     * @param bufferSize initial size of the internal buffer
+     */
+    public NbtReader(@NotNull NbtStreamHandler streamHandler, @NotNull InputStream in, int bufferSize) {
+        this(streamHandler, new StreamSource(in, checkBufferSize(bufferSize)));
+    }
+
+    private NbtReader(@NotNull NbtStreamHandler streamHandler, @NotNull StreamSource source) {
+        this(streamHandler, source.buffer, source);
+    }
+
+    /**
+     * Creates a reader that decodes from a stream, using an internal buffer of {@link #DEFAULT_BUFFER_SIZE} bytes.
+     * @param streamHandler stream handler
+     * @param in stream to read from
+     * @see #NbtReader(NbtStreamHandler, InputStream, int)
+     */
+    public NbtReader(@NotNull NbtStreamHandler streamHandler, @NotNull InputStream in) {
+        this(streamHandler, in, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a reader that decodes directly from an in-memory buffer.<p>
+     * Reading starts at the buffer's position and ends at its limit. The buffer's position is <em>not</em> modified.
+     * @param streamHandler stream handler
+     * @param buf buffer to read from
+     */
+    public NbtReader(@NotNull NbtStreamHandler streamHandler, @NotNull ByteBuffer buf) {
+        this(streamHandler, buf.duplicate(), null);
+    }
+
+    public NbtReader(@NotNull NbtStreamHandler streamHandler, byte @NotNull [] data, int offset, int length) {
+        this(streamHandler, ByteBuffer.wrap(data, offset, length), null);
+    }
+
+    public NbtReader(@NotNull NbtStreamHandler streamHandler, byte @NotNull [] data) {
+        this(streamHandler, data, 0, data.length);
+    }
+
+    /**
+     * Creates a reader that decodes directly from a memory-mapped file.<p>
+     * Reading starts at the channel's current position and ends at the end of the file. The file must contain
+     * uncompressed NBT data. Files larger than 2 GiB are mapped one window at a time.<p>
+     * Closing the reader closes the channel. Note that the mapping itself is only released once it is garbage collected.
+     * @param streamHandler stream handler
+     * @param channel file channel to read from
+     * @throws IOException if an I/O error occurs.
+     */
+    public NbtReader(@NotNull NbtStreamHandler streamHandler, @NotNull FileChannel channel) throws IOException {
+        this(streamHandler, emptyBuffer(0), new MappedFileSource(channel, channel.position(), channel.size()));
+    }
+
+    private void resetState() {
+        depth = 0;
+        ctx = stack[0];
+        ctx.init(Mode.ROOT);
+        thisType = null;
         firstByte = true;
-        ctx = new Context(Mode.ROOT, null);
+    }
+
+    /**
+     * Points this reader at a new stream, so it can be reused to read another NBT structure.<p>
+     * If the reader was already reading from a stream, its internal buffer is reused. If it's the same stream, whatever the
+     * reader had read past the end of the previous structure is kept, so structures can be read back-to-back.
+     * The previous input is <em>not</em> closed.
+     * @param in stream to read from
+     * @see #NbtReader(NbtStreamHandler, InputStream)
+     */
+    public void reset(@NotNull InputStream in) {
+        if (streamSource == null)
+            streamSource = new StreamSource(in, DEFAULT_BUFFER_SIZE);
+        buf = streamSource.reset(in);
+        source = streamSource;
+        base = -buf.position();
+        resetState();
+    }
+
+    /**
+     * Points this reader at a new in-memory buffer, so it can be reused to read another NBT structure.<p>
+     * The previous input is <em>not</em> closed.
+     * @param buf buffer to read from
+     * @see #NbtReader(NbtStreamHandler, ByteBuffer)
+     */
+    public void reset(@NotNull ByteBuffer buf) {
+        this.buf = buf.duplicate();
+        source = null;
+        base = -this.buf.position();
+        resetState();
+    }
+
+    public void reset(byte @NotNull [] data, int offset, int length) {
+        reset(ByteBuffer.wrap(data, offset, length));
+    }
+
+    public void reset(byte @NotNull [] data) {
+        reset(data, 0, data.length);
+    }
+
+    private void push(@NotNull Mode mode) {
+        if (++depth == stack.length)
+            stack = Arrays.copyOf(stack, depth * 2);
+        Context next = stack[depth];
+        if (next == null)
+            stack[depth] = next = new Context(mode);
+        else
+            next.init(mode);
+        ctx = next;
+    }
+
+    private void pop() {
+        if (depth == 0)
+            throw new RuntimeException("Popped one too many times!");
+        ctx = stack[--depth];
+    }
+
+    private static int checkBufferSize(int bufferSize) {
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException("Buffer size must be positive, got " + bufferSize);
+        return bufferSize;
+    }
+
+    private static @NotNull ByteBuffer emptyBuffer(int capacity) {
+        ByteBuffer buf = ByteBuffer.allocate(capacity);
+        buf.limit(0);
+        return buf;
+    }
+
+    private void ensure(int n) throws IOException {
+        if (buf.remaining() < n && source != null) {
+            long position = position();
+            buf = source.fill(buf, n);
+            base = position - buf.position();
+        }
+    }
+
+    // variable-length values can't be sized up front, so they're decoded optimistically -
+    // if one didn't fit in the buffer, rewind to its start and get more data
+    private void underflow(int start) throws IOException {
+        buf.position(start);
+        int remaining = buf.remaining();
+        ensure(remaining + 1);
+        if (buf.remaining() <= remaining)
+            throw new EOFException("Unexpected end of NBT data");
+    }
+
+    private byte readByte() throws IOException {
+        ensure(Byte.BYTES);
+        if (!buf.hasRemaining())
+            throw new EOFException("Unexpected end of NBT data");
+        return buf.get();
+    }
+
+    private short readShort() throws IOException {
+        ensure(shortSize);
+        while (true) {
+            int start = buf.position();
+            try {
+                return streamHandler.readShort(buf);
+            } catch (BufferUnderflowException e) {
+                underflow(start);
+            }
+        }
+    }
+
+    private int readInt() throws IOException {
+        ensure(intSize);
+        while (true) {
+            int start = buf.position();
+            try {
+                return streamHandler.readInt(buf);
+            } catch (BufferUnderflowException e) {
+                underflow(start);
+            }
+        }
+    }
+
+    private long readLong() throws IOException {
+        ensure(longSize);
+        while (true) {
+            int start = buf.position();
+            try {
+                return streamHandler.readLong(buf);
+            } catch (BufferUnderflowException e) {
+                underflow(start);
+            }
+        }
+    }
+
+    private float readFloat() throws IOException {
+        ensure(floatSize);
+        while (true) {
+            int start = buf.position();
+            try {
+                return streamHandler.readFloat(buf);
+            } catch (BufferUnderflowException e) {
+                underflow(start);
+            }
+        }
+    }
+
+    private double readDouble() throws IOException {
+        ensure(doubleSize);
+        while (true) {
+            int start = buf.position();
+            try {
+                return streamHandler.readDouble(buf);
+            } catch (BufferUnderflowException e) {
+                underflow(start);
+            }
+        }
+    }
+
+    private int readUTFLength() throws IOException {
+        while (true) {
+            int start = buf.position();
+            try {
+                return streamHandler.readUTFLength(buf);
+            } catch (BufferUnderflowException e) {
+                underflow(start);
+            }
+        }
+    }
+
+    private boolean skipBytes(long n) throws IOException {
+        if (buf.remaining() >= n)
+            buf.position(buf.position() + (int) n);
+        else {
+            long position = position() + n;
+            ByteBuffer newBuf = source == null ? null : source.skip(buf, n);
+            if (newBuf == null)
+                return false;
+            buf = newBuf;
+            base = position - buf.position();
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of bytes this reader has consumed so far.<p>
+     * For in-memory readers, this is the offset of the next byte to read relative to the position the reader was created at.
+     * @return number of bytes consumed
+     */
+    public long position() {
+        return base + buf.position();
+    }
+
+    /**
+     * Tells the reader that the data at its current position is the <em>payload</em> of a value of the given type,
+     * as if {@link #nextType()} just returned that type. This allows resuming decoding at an offset that was recorded
+     * with {@link #position()}, right after the value's type (and name, in an object).
+     * @param type type of value
+     * @throws MalformedNbtDataException if not at the root level, or if the type is {@link NbtType#END}.
+     */
+    public void expectValue(@NotNull NbtType type) throws IOException {
+        if (ctx.mode != Mode.ROOT)
+            throw new MalformedNbtDataException("Can only expect a value at the root level");
+        if (type == NbtType.END)
+            throw new MalformedNbtDataException("Can't expect a value of type " + type);
+        firstByte = false;
+        thisType = type;
     }
 
     public @NotNull NbtType nextType() throws IOException {
-        byte typeId = (byte) (in.read() & 0xFF);
+        byte typeId = readByte();
         NbtType type = NbtType.fromId(typeId);
         if (type == null)
             throw new MalformedNbtDataException("Unknown tag type ID " + typeId);
@@ -100,24 +543,28 @@ public final class NbtReader implements Closeable {
 
     public void beginObject() throws IOException {
         expectType(NbtType.OBJECT);
-        ctx = ctx.push(Mode.OBJECT);
+        push(Mode.OBJECT);
     }
 
     public void endObject() throws IOException {
         if (ctx.mode != Mode.OBJECT)
             throw new MalformedNbtDataException("Not in an object");
         expectType(NbtType.END);
-        ctx = ctx.pop();
+        pop();
     }
 
     private void beginList0(@NotNull NbtType type, @Nullable NbtType itemType, boolean singleton) throws IOException {
         expectType(type);
-        ctx = ctx.push(Mode.LIST);
+        push(Mode.LIST);
         ctx.type = type;
-        if (itemType == null)
+        if (itemType == null) {
             itemType = nextType();
+            thisType = null; // that was the item type, not the type of the next value
+        }
         ctx.itemType = itemType;
-        ctx.size = ctx.itemsRemaining = singleton ? 1 : streamHandler.readInt(in);
+        ctx.size = ctx.itemsRemaining = singleton ? 1 : readInt();
+        if (ctx.size < 0)
+            throw new MalformedNbtDataException("Negative " + type + " size " + ctx.size);
     }
 
     private void endList0(@NotNull NbtType type) throws IOException {
@@ -125,7 +572,7 @@ public final class NbtReader implements Closeable {
             throw new MalformedNbtDataException("Not in a " + type);
         if (ctx.itemsRemaining > 0)
             throw new MalformedNbtDataException("Expected end of list or array");
-        ctx = ctx.pop();
+        pop();
     }
 
     public void beginList() throws IOException {
@@ -186,20 +633,96 @@ public final class NbtReader implements Closeable {
         endList0(NbtType.LONG_ARRAY);
     }
 
+    /**
+     * Gets the name cache entry names are looked up in.
+     * @return name cache, or {@code null} if names aren't cached
+     */
+    public @Nullable NbtNameCache nameCache() {
+        return nameCache;
+    }
+
+    /**
+     * Sets the name cache entry names are looked up in. Only entry names are cached, not string values.
+     * @param nameCache name cache, or {@code null} to decode every name
+     */
+    public void setNameCache(@Nullable NbtNameCache nameCache) {
+        this.nameCache = nameCache;
+    }
+
     public @NotNull String nextName() throws IOException {
+        return readString(nameCache);
+    }
+
+    /**
+     * Reads the next entry name, and matches it against a set of keys without decoding it.<p>
+     * The name is consumed either way - if it doesn't match, the value is usually {@linkplain #skipValue() skipped}.
+     * @param keys keys to match against
+     * @return index of the matching key, or {@literal -1} if the name doesn't match any of them
+     * @throws IOException if an I/O error occurs.
+     */
+    public int nextNameMatches(@NotNull NbtKey @NotNull ... keys) throws IOException {
+        int utflen = beginRawName();
+        int match = -1;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].matches(buf, utflen)) {
+                match = i;
+                break;
+            }
+        }
+        buf.position(buf.position() + utflen);
+        return match;
+    }
+
+    /**
+     * Reads the next entry name, and looks it up in a key set without decoding it.<p>
+     * The name is consumed either way - if it isn't in the set, the value is usually {@linkplain #skipValue() skipped}.
+     * @param keys key set to look up the name in
+     * @return index of the matching key, or {@literal -1} if the name isn't in the set
+     * @throws IOException if an I/O error occurs.
+     */
+    public int nextNameMatches(@NotNull NbtKeySet keys) throws IOException {
+        int utflen = beginRawName();
+        int match = keys.indexOf(buf, utflen);
+        buf.position(buf.position() + utflen);
+        return match;
+    }
+
+    // reads the length of a name, and makes sure its bytes are in the buffer
+    private int beginRawName() throws IOException {
         firstByte = false;
-        int utflen = streamHandler.readUTFLength(in);
+        int utflen = readUTFLength();
+        ensure(utflen);
+        if (buf.remaining() < utflen)
+            throw new IOException("Failed to read entire string");
+        return utflen;
+    }
+
+    private @NotNull String readString(@Nullable NbtNameCache cache) throws IOException {
+        firstByte = false;
+        int utflen = readUTFLength();
         if (utflen == 0)
             return "";
-        byte[] buf = buffer(utflen);
-        if (in.read(buf, 0, utflen) < utflen)
+        ensure(utflen);
+        if (buf.remaining() < utflen)
             throw new IOException("Failed to read entire string");
-        return MUTF8Strings.decode(buf, utflen);
+        byte[] src;
+        int offset;
+        if (buf.hasArray()) {
+            src = buf.array();
+            offset = buf.arrayOffset() + buf.position();
+        } else {
+            src = buffer(utflen);
+            buf.duplicate().get(src, 0, utflen);
+            offset = 0;
+        }
+        String value = cache == null ? MUTF8Strings.decode(src, offset, utflen) : cache.get(src, offset, utflen);
+        buf.position(buf.position() + utflen);
+        return value;
     }
 
     public byte nextByte() throws IOException {
         expectType(NbtType.BYTE);
-        return (byte) (in.read() & 0xFF);
+        return readByte();
     }
 
     public boolean nextBoolean() throws IOException {
@@ -208,105 +731,341 @@ public final class NbtReader implements Closeable {
 
     public short nextShort() throws IOException {
         expectType(NbtType.SHORT);
-        return streamHandler.readShort(in);
+        return readShort();
     }
 
     public int nextInt() throws IOException {
         expectType(NbtType.INT);
-        return streamHandler.readInt(in);
+        return readInt();
     }
 
     public long nextLong() throws IOException {
         expectType(NbtType.LONG);
-        return streamHandler.readLong(in);
+        return readLong();
     }
 
     public float nextFloat() throws IOException {
         expectType(NbtType.FLOAT);
-        return streamHandler.readFloat(in);
+        return readFloat();
     }
 
     public double nextDouble() throws IOException {
         expectType(NbtType.DOUBLE);
-        return streamHandler.readDouble(in);
+        return readDouble();
     }
 
     public @NotNull String nextString() throws IOException {
         expectType(NbtType.STRING);
-        return nextName();
+        return readString(null);
+    }
+
+    private void expectItems(@NotNull NbtType expectedType, int dstLength, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off > dstLength - len)
+            throw new IndexOutOfBoundsException("Range [" + off + ", " + off + " + " + len + ") out of bounds for length " + dstLength);
+        if (ctx.mode != Mode.LIST)
+            throw new MalformedNbtDataException("Not in a list or array");
+        if (ctx.itemType != expectedType)
+            throw new MalformedNbtDataException("Tried to read " + expectedType + " from list or array of " + ctx.itemType);
+        if (ctx.itemsRemaining < len)
+            throw new MalformedNbtDataException("List or array is too small");
+        ctx.itemsRemaining -= len;
+    }
+
+    // how many fixed-size items can be decoded from the buffer in one go, refilling it if needed
+    private int bulkCount(int itemSize, int len) throws IOException {
+        ensure(itemSize);
+        int count = Math.min(len, buf.remaining() / itemSize);
+        if (count == 0)
+            throw new EOFException("Unexpected end of NBT data");
+        return count;
+    }
+
+    /**
+     * Reads the next {@code len} items of the current byte array or list of bytes in one go.
+     * @param dst array to read into
+     * @param off offset in {@code dst} to start at
+     * @param len number of items to read
+     * @throws MalformedNbtDataException if not in a byte array or list of bytes, or if it doesn't have enough items left.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void nextBytes(byte @NotNull [] dst, int off, int len) throws IOException {
+        expectItems(NbtType.BYTE, dst.length, off, len);
+        while (len > 0) {
+            int count = bulkCount(Byte.BYTES, len);
+            buf.get(dst, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Reads the next {@code len} items of the current list of shorts in one go.
+     * @param dst array to read into
+     * @param off offset in {@code dst} to start at
+     * @param len number of items to read
+     * @throws MalformedNbtDataException if not in a list of shorts, or if it doesn't have enough items left.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void nextShorts(short @NotNull [] dst, int off, int len) throws IOException {
+        expectItems(NbtType.SHORT, dst.length, off, len);
+        if (shortSize < 0) {
+            // variable-length encoding, have to go one by one
+            for (int end = off + len; off < end; off++)
+                dst[off] = readShort();
+            return;
+        }
+        while (len > 0) {
+            int count = bulkCount(shortSize, len);
+            streamHandler.readShorts(buf, dst, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Reads the next {@code len} items of the current int array or list of ints in one go.
+     * @param dst array to read into
+     * @param off offset in {@code dst} to start at
+     * @param len number of items to read
+     * @throws MalformedNbtDataException if not in a int array or list of ints, or if it doesn't have enough items left.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void nextInts(int @NotNull [] dst, int off, int len) throws IOException {
+        expectItems(NbtType.INT, dst.length, off, len);
+        if (intSize < 0) {
+            // variable-length encoding, have to go one by one
+            for (int end = off + len; off < end; off++)
+                dst[off] = readInt();
+            return;
+        }
+        while (len > 0) {
+            int count = bulkCount(intSize, len);
+            streamHandler.readInts(buf, dst, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Reads the next {@code len} items of the current long array or list of longs in one go.
+     * @param dst array to read into
+     * @param off offset in {@code dst} to start at
+     * @param len number of items to read
+     * @throws MalformedNbtDataException if not in a long array or list of longs, or if it doesn't have enough items left.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void nextLongs(long @NotNull [] dst, int off, int len) throws IOException {
+        expectItems(NbtType.LONG, dst.length, off, len);
+        if (longSize < 0) {
+            // variable-length encoding, have to go one by one
+            for (int end = off + len; off < end; off++)
+                dst[off] = readLong();
+            return;
+        }
+        while (len > 0) {
+            int count = bulkCount(longSize, len);
+            streamHandler.readLongs(buf, dst, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Reads the next {@code len} items of the current list of floats in one go.
+     * @param dst array to read into
+     * @param off offset in {@code dst} to start at
+     * @param len number of items to read
+     * @throws MalformedNbtDataException if not in a list of floats, or if it doesn't have enough items left.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void nextFloats(float @NotNull [] dst, int off, int len) throws IOException {
+        expectItems(NbtType.FLOAT, dst.length, off, len);
+        if (floatSize < 0) {
+            // variable-length encoding, have to go one by one
+            for (int end = off + len; off < end; off++)
+                dst[off] = readFloat();
+            return;
+        }
+        while (len > 0) {
+            int count = bulkCount(floatSize, len);
+            streamHandler.readFloats(buf, dst, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Reads the next {@code len} items of the current list of doubles in one go.
+     * @param dst array to read into
+     * @param off offset in {@code dst} to start at
+     * @param len number of items to read
+     * @throws MalformedNbtDataException if not in a list of doubles, or if it doesn't have enough items left.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void nextDoubles(double @NotNull [] dst, int off, int len) throws IOException {
+        expectItems(NbtType.DOUBLE, dst.length, off, len);
+        if (doubleSize < 0) {
+            // variable-length encoding, have to go one by one
+            for (int end = off + len; off < end; off++)
+                dst[off] = readDouble();
+            return;
+        }
+        while (len > 0) {
+            int count = bulkCount(doubleSize, len);
+            streamHandler.readDoubles(buf, dst, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Reads an entire {@code TAG_Byte_Array} value.
+     * @return array contents
+     * @throws IOException if an I/O error occurs.
+     */
+    public byte @NotNull [] nextByteArray() throws IOException {
+        beginByteArray();
+        byte[] values = new byte[ctx.size];
+        nextBytes(values, 0, values.length);
+        endByteArray();
+        return values;
+    }
+
+    /**
+     * Reads an entire {@code TAG_Int_Array} value.
+     * @return array contents
+     * @throws IOException if an I/O error occurs.
+     */
+    public int @NotNull [] nextIntArray() throws IOException {
+        beginIntArray();
+        int[] values = new int[ctx.size];
+        nextInts(values, 0, values.length);
+        endIntArray();
+        return values;
+    }
+
+    /**
+     * Reads an entire {@code TAG_Long_Array} value.
+     * @return array contents
+     * @throws IOException if an I/O error occurs.
+     */
+    public long @NotNull [] nextLongArray() throws IOException {
+        beginLongArray();
+        long[] values = new long[ctx.size];
+        nextLongs(values, 0, values.length);
+        endLongArray();
+        return values;
+    }
+
+    /**
+     * Skips the remaining items of the current list or array.<p>
+     * Items of a fixed size are skipped all at once.
+     * @throws MalformedNbtDataException if not in a list or array.
+     */
+    public void skipRemainingItems() throws IOException {
+        if (ctx.mode != Mode.LIST)
+            throw new MalformedNbtDataException("Not in a list or array");
+        final int count = ctx.itemsRemaining;
+        long payloadSize = streamHandler.payloadSize(ctx.itemType);
+        if (payloadSize >= 0) {
+            if (!skipBytes(payloadSize * count)) {
+                throw new IOException("Failed to skip entire "
+                        + (ctx.type == NbtType.LIST ? "list of " + ctx.itemType : ctx.type) + " (" + count + " entries)");
+            }
+            ctx.itemsRemaining = 0;
+            return;
+        }
+        // numbers are skipped in bulk, rather than going through skipValue for each one
+        switch (ctx.itemType) {
+        case INT:
+        case LONG:
+            int start = buf.position();
+            try {
+                if (ctx.itemType == NbtType.INT)
+                    streamHandler.skipInts(buf, count);
+                else
+                    streamHandler.skipLongs(buf, count);
+            } catch (BufferUnderflowException e) {
+                // not all in the buffer - fall back to skipping them one by one
+                buf.position(start);
+                for (int i = 0; i < count; i++) {
+                    if (ctx.itemType == NbtType.INT)
+                        readInt();
+                    else
+                        readLong();
+                }
+            }
+            ctx.itemsRemaining = 0;
+            break;
+        default:
+            while (ctx.itemsRemaining > 0)
+                skipValue();
+            break;
+        }
     }
 
     public void skipValue() throws IOException {
+        // only peek at the type here - the value's type is consumed by expectType or by the matching begin method
         NbtType skippedType;
-        if (ctx.mode == Mode.LIST) {
+        if (ctx.mode == Mode.LIST)
             skippedType = ctx.itemType;
-            if (--ctx.itemsRemaining < 0)
-                throw new MalformedNbtDataException("List or array is too small");
-        } else if (thisType != null) {
+        else {
+            if (thisType == null)
+                nextType();
             skippedType = thisType;
-            thisType = null;
-        } else
-            skippedType = nextType();
+        }
         long bytesToSkip = streamHandler.payloadSize(skippedType);
         if (bytesToSkip >= 0) {
-            if (in.skip(bytesToSkip) < bytesToSkip)
+            expectType(skippedType);
+            if (!skipBytes(bytesToSkip))
                 throw new IOException("Failed to skip entire " + skippedType + " value");
             return;
         }
-        long payloadSize;
         switch (skippedType) {
         case BYTE:
-            //noinspection ResultOfMethodCallIgnored
-            in.read();
+            expectType(skippedType);
+            readByte();
             break;
         case SHORT:
-            streamHandler.skipShort(in);
+            expectType(skippedType);
+            readShort();
             break;
         case INT:
-            streamHandler.skipInt(in);
+            expectType(skippedType);
+            readInt();
             break;
         case LONG:
-            streamHandler.skipLong(in);
+            expectType(skippedType);
+            readLong();
             break;
         case FLOAT:
-            streamHandler.skipFloat(in);
+            expectType(skippedType);
+            readFloat();
             break;
         case DOUBLE:
-            streamHandler.skipDouble(in);
+            expectType(skippedType);
+            readDouble();
             break;
         case BYTE_ARRAY:
             beginByteArray();
-            bytesToSkip = ctx.size;
-            if (in.skip(bytesToSkip) < bytesToSkip)
-                throw new IOException("Failed to skip entire " + ctx.type + " (" + ctx.size + " entries)");
-            ctx.size = 0;
+            skipRemainingItems();
             endByteArray();
             break;
         case STRING:
-            bytesToSkip = streamHandler.readUTFLength(in);
-            if (in.skip(bytesToSkip) < bytesToSkip)
+            expectType(skippedType);
+            if (!skipBytes(readUTFLength()))
                 throw new IOException("Failed to skip entire " + skippedType + " value");
             break;
         case LIST:
             beginList();
-            payloadSize = streamHandler.payloadSize(ctx.itemType);
-            if (payloadSize >= 0) {
-                bytesToSkip = payloadSize * ctx.size;
-                if (in.skip(bytesToSkip) < bytesToSkip)
-                    throw new IOException("Failed to skip entire list of " + ctx.itemType + " (" + ctx.size + " entries)");
-            } else {
-                for (int i = 0; i < ctx.size; i++)
-                    skipValue();
-            }
-            ctx.itemsRemaining = 0;
+            skipRemainingItems();
             endList();
             break;
         case OBJECT:
             beginObject();
             skippedType = nextType();
             while (skippedType != NbtType.END) {
-                bytesToSkip = streamHandler.readUTFLength(in);
-                if (in.skip(bytesToSkip) < bytesToSkip)
+                if (!skipBytes(readUTFLength()))
                     throw new IOException("Failed to skip entire name");
                 skipValue();
                 skippedType = nextType();
@@ -315,39 +1074,19 @@ public final class NbtReader implements Closeable {
             break;
         case INT_ARRAY:
             beginIntArray();
-            payloadSize = streamHandler.payloadSize(NbtType.INT);
-            if (payloadSize >= 0) {
-                bytesToSkip = payloadSize * ctx.size;
-                if (in.skip(bytesToSkip) < bytesToSkip)
-                    throw new IOException("Failed to skip entire " + ctx.type + " (" + ctx.size + " entries)");
-            } else {
-                for (int i = 0; i < ctx.size; i++)
-                    skipValue();
-            }
-            ctx.itemsRemaining = 0;
+            skipRemainingItems();
             endIntArray();
             break;
         case LONG_ARRAY:
             beginLongArray();
-            payloadSize = streamHandler.payloadSize(NbtType.LONG);
-            if (payloadSize >= 0) {
-                bytesToSkip = payloadSize * ctx.size;
-                if (in.skip(bytesToSkip) < bytesToSkip)
-                    throw new IOException("Failed to skip entire " + ctx.type + " (" + ctx.size + " entries)");
-            } else {
-                for (int i = 0; i < ctx.size; i++)
-                    skipValue();
-            }
-            ctx.itemsRemaining = 0;
+            skipRemainingItems();
             endLongArray();
             break;
         case ROOT_LIST:
-            bytesToSkip = streamHandler.readUTFLength(in);
-            if (in.skip(bytesToSkip) < bytesToSkip)
+            if (!skipBytes(readUTFLength()))
                 throw new IOException("Failed to skip entire name");
             beginRootList();
-            skipValue();
-            ctx.itemsRemaining = 0;
+            skipRemainingItems();
             endRootList();
             break;
         default:
@@ -355,8 +1094,25 @@ public final class NbtReader implements Closeable {
         }
     }
 
+    /**
+     * Closes the input. If this reader was obtained from an {@link NbtPool}, it's returned to the pool.
+     * @throws IOException if an I/O error occurs.
+     */
     @Override
     public void close() throws IOException {
-        in.close();
+        try {
+            if (source != null)
+                source.close();
+        } finally {
+            if (pool != null && !pooled) {
+                // don't hold on to the input while idle
+                source = null;
+                buf = EMPTY_BUFFER;
+                if (streamSource != null)
+                    streamSource.release();
+                pooled = true;
+                pool.release(this);
+            }
+        }
     }
 }
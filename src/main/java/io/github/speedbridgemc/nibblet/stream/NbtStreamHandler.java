@@ -6,6 +6,7 @@ import org.jetbrains.annotations.NotNull;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Interface for handling a stream of NBT structure data.<p>
@@ -27,6 +28,68 @@ public interface NbtStreamHandler {
     double readDouble(@NotNull InputStream in) throws IOException;
     int readUTFLength(@NotNull InputStream in) throws IOException;
 
+    /**
+     * Reads a short from a buffer, relative to (and advancing) its position.<p>
+     * Implementations must not depend on the buffer's byte order, since it's owned by whoever supplied the buffer. If the
+     * buffer ends before the value does, they must throw a {@link java.nio.BufferUnderflowException} - the buffer's
+     * position may be left anywhere in that case.<p>
+     * By default, this reads the value with {@link #readShort(InputStream)}. The other {@code ByteBuffer} methods follow
+     * the same rules.
+     * @param buf buffer to read from
+     * @return value
+     * @throws IOException if the value is malformed.
+     * @throws java.nio.BufferUnderflowException if the buffer ends before the value does.
+     */
+    default short readShort(@NotNull ByteBuffer buf) throws IOException {
+        return readShort(new ByteBufferInputStream(buf));
+    }
+    default int readInt(@NotNull ByteBuffer buf) throws IOException {
+        return readInt(new ByteBufferInputStream(buf));
+    }
+    default long readLong(@NotNull ByteBuffer buf) throws IOException {
+        return readLong(new ByteBufferInputStream(buf));
+    }
+    default float readFloat(@NotNull ByteBuffer buf) throws IOException {
+        return readFloat(new ByteBufferInputStream(buf));
+    }
+    default double readDouble(@NotNull ByteBuffer buf) throws IOException {
+        return readDouble(new ByteBufferInputStream(buf));
+    }
+    default int readUTFLength(@NotNull ByteBuffer buf) throws IOException {
+        return readUTFLength(new ByteBufferInputStream(buf));
+    }
+
+    // bulk variants of the above, for decoding arrays and lists of primitives in one go
+    default void readShorts(@NotNull ByteBuffer buf, short @NotNull [] dst, int off, int len) throws IOException {
+        for (int end = off + len; off < end; off++)
+            dst[off] = readShort(buf);
+    }
+    default void readInts(@NotNull ByteBuffer buf, int @NotNull [] dst, int off, int len) throws IOException {
+        for (int end = off + len; off < end; off++)
+            dst[off] = readInt(buf);
+    }
+    default void readLongs(@NotNull ByteBuffer buf, long @NotNull [] dst, int off, int len) throws IOException {
+        for (int end = off + len; off < end; off++)
+            dst[off] = readLong(buf);
+    }
+    default void readFloats(@NotNull ByteBuffer buf, float @NotNull [] dst, int off, int len) throws IOException {
+        for (int end = off + len; off < end; off++)
+            dst[off] = readFloat(buf);
+    }
+    default void readDoubles(@NotNull ByteBuffer buf, double @NotNull [] dst, int off, int len) throws IOException {
+        for (int end = off + len; off < end; off++)
+            dst[off] = readDouble(buf);
+    }
+    // skip variants, for variable-length encodings (fixed-size values are skipped using payloadSize)
+    default void skipInts(@NotNull ByteBuffer buf, int count) throws IOException {
+        for (int i = 0; i < count; i++)
+            readInt(buf);
+    }
+    default void skipLongs(@NotNull ByteBuffer buf, int count) throws IOException {
+        for (int i = 0; i < count; i++)
+            readLong(buf);
+    }
+
     void writeShort(@NotNull OutputStream out, short value) throws IOException;
     void writeInt(@NotNull OutputStream out, int value) throws IOException;
     void writeLong(@NotNull OutputStream out, long value) throws IOException;
@@ -34,6 +97,58 @@ public interface NbtStreamHandler {
     void writeDouble(@NotNull OutputStream out, double value) throws IOException;
     void writeUTFLength(@NotNull OutputStream out, int utflen) throws IOException;
 
+    // bulk variants of the above, for encoding arrays in one go
+    default void writeInts(@NotNull OutputStream out, int @NotNull [] src, int off, int len) throws IOException {
+        for (int end = off + len; off < end; off++)
+            writeInt(out, src[off]);
+    }
+    default void writeLongs(@NotNull OutputStream out, long @NotNull [] src, int off, int len) throws IOException {
+        for (int end = off + len; off < end; off++)
+            writeLong(out, src[off]);
+    }
+
+    /*
+     * Encoded sizes of values, for computing the size of a structure without encoding it (see NbtIO.sizeOf).
+     * By default, they're determined by encoding the value and counting the bytes - implementations should override them
+     * if there's a cheaper way.
+     */
+    default int sizeOfInt(int value) throws IOException {
+        CountingOutputStream counter = new CountingOutputStream();
+        writeInt(counter, value);
+        return (int) counter.count;
+    }
+    default int sizeOfLong(long value) throws IOException {
+        CountingOutputStream counter = new CountingOutputStream();
+        writeLong(counter, value);
+        return (int) counter.count;
+    }
+    default int sizeOfUTFLength(int utflen) throws IOException {
+        CountingOutputStream counter = new CountingOutputStream();
+        writeUTFLength(counter, utflen);
+        return (int) counter.count;
+    }
+
+    /**
+     * Determines the size of a list or array length that's written before the length is known.<p>
+     * When writing to a {@link SeekableOutputStream}, a placeholder of this size is written, and overwritten with
+     * {@link #writeReservedLength(OutputStream, int)} once the length is known. May return {@literal -1} if lengths
+     * can't be written with a fixed size, in which case lists and arrays of unknown length are buffered instead.
+     * @return size of reserved length, or {@literal -1} if unsupported
+     */
+    default int reservedLengthSize() {
+        return (int) payloadSize(NbtType.INT);
+    }
+
+    /**
+     * Writes a list or array length using exactly {@link #reservedLengthSize()} bytes.
+     * @param out output stream
+     * @param length length to write
+     * @throws IOException if an I/O error occurs.
+     */
+    default void writeReservedLength(@NotNull OutputStream out, int length) throws IOException {
+        writeInt(out, length);
+    }
+
     default void skip(@NotNull InputStream in, @NotNull NbtType type) throws IOException {
         long payloadSize = payloadSize(type);
         if (payloadSize <= 0)
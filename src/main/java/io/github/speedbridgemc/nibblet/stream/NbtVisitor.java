@@ -0,0 +1,91 @@
+package io.github.speedbridgemc.nibblet.stream;
+
+import io.github.speedbridgemc.nibblet.NbtType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Receives the values of an NBT structure as it's being read, without any {@link io.github.speedbridgemc.nibblet.NbtElement}s
+ * being created. Visitors are driven by {@link io.github.speedbridgemc.nibblet.NbtIO#accept(NbtStreamHandler, java.io.InputStream, NbtVisitor)}.<p>
+ * Every method receives the name of the value it's visiting - this is the entry name for values in objects,
+ * the root name for the root element and {@code null} for items of lists. All methods do nothing by default.<p>
+ * The {@code visitBegin} methods decide whether the driver should descend into the object, list or array,
+ * {@linkplain Action#SKIP skip over it} or {@linkplain Action#STOP stop reading} altogether. The matching
+ * {@code visitEnd} method is only called if the visitor descended.
+ */
+public interface NbtVisitor {
+    /**
+     * What the driver should do with an object, list or array.
+     */
+    enum Action {
+        /**
+         * Visit the contents.
+         */
+        CONTINUE,
+        /**
+         * Skip over the contents without visiting them.
+         */
+        SKIP,
+        /**
+         * Stop reading immediately.
+         */
+        STOP
+    }
+
+    default @NotNull Action visitBeginObject(@Nullable String name) {
+        return Action.CONTINUE;
+    }
+
+    default void visitEndObject() { }
+
+    /**
+     * Visits the start of a list.<p>
+     * Root lists are visited as lists with a single item.
+     * @param name list name
+     * @param itemType type of the list's items
+     * @param size number of items
+     * @return action to take
+     */
+    default @NotNull Action visitBeginList(@Nullable String name, @NotNull NbtType itemType, int size) {
+        return Action.CONTINUE;
+    }
+
+    default void visitEndList() { }
+
+    /**
+     * Visits the start of an array. Arrays are decoded in bulk - if this returns {@link Action#CONTINUE},
+     * the matching {@code visitByteArray}, {@code visitIntArray} or {@code visitLongArray} method is called next.
+     * @param name array name
+     * @param type {@link NbtType#BYTE_ARRAY}, {@link NbtType#INT_ARRAY} or {@link NbtType#LONG_ARRAY}
+     * @param length number of items
+     * @return action to take
+     */
+    default @NotNull Action visitBeginArray(@Nullable String name, @NotNull NbtType type, int length) {
+        return Action.CONTINUE;
+    }
+
+    default void visitByte(@Nullable String name, byte value) { }
+    default void visitShort(@Nullable String name, short value) { }
+    default void visitInt(@Nullable String name, int value) { }
+    default void visitLong(@Nullable String name, long value) { }
+    default void visitFloat(@Nullable String name, float value) { }
+    default void visitDouble(@Nullable String name, double value) { }
+    default void visitString(@Nullable String name, @NotNull String value) { }
+
+    // the array methods receive a scratch array that's reused by the driver - it's only valid until the method returns,
+    // and may be longer than the actual array
+    default void visitByteArray(@Nullable String name, byte @NotNull [] values, int length) { }
+    default void visitIntArray(@Nullable String name, int @NotNull [] values, int length) { }
+    default void visitLongArray(@Nullable String name, long @NotNull [] values, int length) { }
+
+    /**
+     * Creates a visitor that forwards everything to several visitors.<p>
+     * An object, list or array is only skipped if every visitor skips it, and reading only stops once every visitor has
+     * stopped. Visitors that skipped or stopped don't receive any of the values they didn't want.
+     * @param visitors visitors to forward to
+     * @return composite visitor
+     */
+    static @NotNull NbtVisitor all(@NotNull NbtVisitor @NotNull ... visitors) {
+        return new CompositeNbtVisitor(visitors.clone());
+    }
+}
@@ -5,16 +5,42 @@ import io.github.speedbridgemc.nibblet.util.MUTF8Strings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+
+public final class NbtWriter implements Closeable, Flushable {
+    /**
+     * Size of the internal buffer used when writing to an {@link OutputStream} that isn't a {@link SeekableOutputStream}.
+     */
+    public static final int BUFFER_SIZE = 8192;
+
+    private static final int INITIAL_MAX_DEPTH = 16;
 
-public final class NbtWriter implements Closeable {
     private final @NotNull NbtStreamHandler streamHandler;
-    private final @NotNull OutputStream out;
+    // either the output itself or bufferedOut, which wraps it
+    private @NotNull OutputStream out;
+    private @Nullable BufferedOutput bufferedOut;
+    // set if the lengths of lists and arrays can be patched in once they end, instead of buffering their contents
+    private @Nullable SeekableOutputStream seekableOut;
+    private @Nullable PatchBuffer patchBuffer;
+    // contexts are preallocated and reused where possible, see popCtx
+    private @Nullable Context @NotNull [] stack;
+    private final @NotNull Context rootCtx;
+    private int depth;
     private @NotNull Context ctx;
-    private @Nullable String deferredName;
+    // names are either Strings or NbtKeys (see writeName)
+    private @Nullable Object deferredName;
+    // tag header of a deferred value in an object, written along with the value (see defer)
+    private @Nullable Object pendingName;
+    private @NotNull NbtType pendingType = NbtType.END;
+    // set if this writer belongs to a pool, and should be returned to it when closed
+    @Nullable NbtPool pool;
+    boolean pooled;
 
     private enum Mode {
         ROOT_UNDETERMINED(NbtType.END, NbtType.END),
@@ -36,28 +62,34 @@ public final class NbtWriter implements Closeable {
     }
 
     private final class Context {
-        public final @NotNull Mode mode;
-        private final @Nullable Context next;
+        public @NotNull Mode mode;
         private final @NotNull ArrayList<@NotNull DeferredWrite> deferredWrites;
         public @NotNull NbtType listType;
         public int listSize;
+        // size the list or array was begun with, or -1 if it's only known once it ends
+        public int declaredSize;
+        // if set, values are written straight to the output instead of being deferred until the context ends
+        public boolean direct;
+        // position of the placeholder header in seekableOut, or -1 if the header isn't patched in later
+        public long headerPosition;
+
+        public Context(@NotNull Mode mode) {
+            deferredWrites = new ArrayList<>();
+            init(mode);
+        }
 
-        public Context(@NotNull Mode mode, @Nullable Context next) {
+        public void init(@NotNull Mode mode) {
             this.mode = mode;
-            this.next = next;
-            deferredWrites = new ArrayList<>();
+            deferredWrites.clear();
             listType = mode.listType;
             listSize = 0;
+            declaredSize = -1;
+            // the root tag's header is written as soon as its type is known
+            direct = mode == Mode.ROOT_OBJECT || mode == Mode.ROOT_LIST;
+            headerPosition = -1;
         }
 
-        public void write(@NotNull DeferredWrite write) throws IOException {
-            if (mode == Mode.ROOT_OBJECT)
-                write.write();
-            else
-                deferredWrites.add(write);
-        }
-
-        public void writeDeferred() throws IOException {
+        public void writeHeader() throws IOException {
             switch (mode) {
             case ROOT_LIST:
                 out.write(listType.id());
@@ -66,57 +98,220 @@ public final class NbtWriter implements Closeable {
             case LIST:
                 out.write(listType.id());
             default:
-                streamHandler.writeInt(out, listSize);
+                streamHandler.writeInt(out, declaredSize < 0 ? listSize : declaredSize);
             case ROOT_OBJECT:
             case OBJECT:
                 break;
             }
-            for (DeferredWrite write : deferredWrites)
-                write.write();
+        }
+
+        public void writePlaceholder(@NotNull SeekableOutputStream seekableOut) throws IOException {
+            headerPosition = seekableOut.position();
+            if (mode == Mode.LIST)
+                out.write(listType.id());
+            streamHandler.writeReservedLength(out, 0);
+        }
+
+        private void patchHeader(@NotNull SeekableOutputStream seekableOut) throws IOException {
+            PatchBuffer patch = patchBuffer;
+            if (patch == null)
+                patchBuffer = patch = new PatchBuffer();
+            patch.reset();
+            if (mode == Mode.LIST)
+                patch.write(listType.id());
+            streamHandler.writeReservedLength(patch, listSize);
+            seekableOut.writeAt(headerPosition, patch.array(), 0, patch.size());
+        }
+
+        public void finish() throws IOException {
+            if (declaredSize >= 0 && listSize != declaredSize)
+                throw new MalformedNbtDataException(mode + " was begun with " + declaredSize + " items, but got " + listSize);
+            if (headerPosition >= 0 && seekableOut != null)
+                patchHeader(seekableOut);
+            if (!direct) {
+                writeHeader();
+                for (DeferredWrite write : deferredWrites)
+                    write.write();
+            }
             if (mode == Mode.OBJECT)
                 out.write(NbtType.END.id());
         }
+    }
+
+    // like BufferedOutputStream, but unsynchronized and resettable
+    private static final class BufferedOutput extends OutputStream {
+        private final byte @NotNull [] buf = new byte[BUFFER_SIZE];
+        private int count;
+        public @NotNull OutputStream out;
+
+        public BufferedOutput(@NotNull OutputStream out) {
+            this.out = out;
+        }
+
+        public void reset(@NotNull OutputStream out) {
+            this.out = out;
+            count = 0;
+        }
 
-        public @NotNull Context push(@NotNull Mode newMode) {
-            return new Context(newMode, this);
+        private void flushBuffer() throws IOException {
+            if (count > 0) {
+                out.write(buf, 0, count);
+                count = 0;
+            }
         }
 
-        public boolean hasNext() {
-            return next != null;
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buf.length)
+                flushBuffer();
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte @NotNull [] b, int off, int len) throws IOException {
+            if (len >= buf.length) {
+                // wouldn't fit anyway, so don't bother copying
+                flushBuffer();
+                out.write(b, off, len);
+                return;
+            }
+            if (len > buf.length - count)
+                flushBuffer();
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
         }
 
-        public @NotNull Context pop() {
-            if (next == null)
-                throw new RuntimeException("Popped one too many times!");
-            return next;
+        @Override
+        public void flush() throws IOException {
+            flushBuffer();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flushBuffer();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    // a ByteArrayOutputStream that exposes its buffer, for encoding headers that are patched in
+    private static final class PatchBuffer extends ByteArrayOutputStream {
+        public PatchBuffer() {
+            super(8);
+        }
+
+        public byte @NotNull [] array() {
+            return buf;
         }
     }
 
+    /**
+     * Creates a writer that encodes to a stream.<p>
+     * Writes are buffered internally (unless the stream is a {@link SeekableOutputStream}), so there's no need to wrap
+     * the stream in a {@link java.io.BufferedOutputStream}. The buffer is flushed when the writer is
+     * {@linkplain #flush() flushed} or closed.<p>
+     * If the stream is a {@link SeekableOutputStream} and the stream handler {@linkplain NbtStreamHandler#reservedLengthSize()
+     * supports it}, lists and arrays whose size isn't known up front are written directly too - their lengths are patched
+     * in once they end. Otherwise, they're buffered until they end, unless they're begun with their size
+     * (see {@link #beginList(NbtType, int)}).
+     * @param streamHandler stream handler
+     * @param out stream to write to
+     */
     public NbtWriter(@NotNull NbtStreamHandler streamHandler, @NotNull OutputStream out) {
         this.streamHandler = streamHandler;
-        this.out = out;
-        ctx = new Context(Mode.ROOT_UNDETERMINED, null);
+        setOut(out);
+        stack = new Context[INITIAL_MAX_DEPTH];
+        ctx = stack[0] = rootCtx = new Context(Mode.ROOT_UNDETERMINED);
+    }
+
+    /**
+     * Points this writer at a new stream, so it can be reused to write another NBT structure.<p>
+     * Anything that was written but not yet flushed to the previous stream is discarded.
+     * The previous stream is <em>not</em> closed.
+     * @param out stream to write to
+     */
+    public void reset(@NotNull OutputStream out) {
+        setOut(out);
+        depth = 0;
+        ctx = rootCtx;
+        ctx.init(Mode.ROOT_UNDETERMINED);
+        deferredName = null;
+        pendingName = null;
+    }
+
+    private void setOut(@NotNull OutputStream out) {
+        if (out instanceof SeekableOutputStream) {
+            // seekable streams are either in memory or buffered themselves, and need to know the actual position anyway
+            this.out = out;
+            seekableOut = streamHandler.reservedLengthSize() > 0 ? (SeekableOutputStream) out : null;
+        } else {
+            if (bufferedOut == null)
+                bufferedOut = new BufferedOutput(out);
+            else
+                bufferedOut.reset(out);
+            this.out = bufferedOut;
+            seekableOut = null;
+        }
+    }
+
+    private void pushCtx(@NotNull Mode mode, @NotNull NbtType listType, int size) throws IOException {
+        boolean parentDirect = value(mode.type, 1);
+        if (!parentDirect)
+            defer(NO_WRITE);
+        if (++depth == stack.length)
+            stack = Arrays.copyOf(stack, depth * 2);
+        Context next = stack[depth];
+        if (next == null)
+            stack[depth] = next = new Context(mode);
+        else
+            next.init(mode);
+        ctx = next;
+        if (mode == Mode.LIST)
+            next.listType = listType;
+        next.declaredSize = size;
+        // objects don't have a header, so only lists and arrays need their size up front (or patched in later)
+        final SeekableOutputStream seekableOut = this.seekableOut;
+        next.direct = parentDirect && (mode == Mode.OBJECT || size >= 0 || seekableOut != null);
+        if (next.direct) {
+            if (mode != Mode.OBJECT && size < 0 && seekableOut != null)
+                next.writePlaceholder(seekableOut);
+            else
+                next.writeHeader();
+        }
     }
 
     private void pushCtx(@NotNull Mode mode) throws IOException {
-        value(mode.type, () -> { });
-        ctx = ctx.push(mode);
+        pushCtx(mode, NbtType.END, -1);
+    }
+
+    private boolean hasParentCtx() {
+        return depth > 0;
     }
 
     private void popCtx() throws IOException {
-        if (ctx.hasNext()) {
+        if (hasParentCtx()) {
             final Context thisCtx = ctx;
-            ctx = ctx.pop();
-            ctx.write(thisCtx::writeDeferred);
+            ctx = stack[--depth];
+            if (ctx.direct)
+                // written right away, so the context can be reused
+                thisCtx.finish();
+            else {
+                // the parent holds on to the context until it's written itself, so it can't be reused
+                stack[depth + 1] = null;
+                ctx.deferredWrites.add(thisCtx::finish);
+            }
         }
     }
 
     private void endCtx(@NotNull Mode expectedMode, @NotNull String errMsg) throws IOException {
         if (ctx.mode == expectedMode) {
-            if (ctx.hasNext())
+            if (hasParentCtx())
                 popCtx();
             else
-                ctx.writeDeferred();
+                ctx.finish();
         } else
             throw new MalformedNbtDataException(errMsg);
     }
@@ -134,6 +329,32 @@ public final class NbtWriter implements Closeable {
         return this;
     }
 
+    /**
+     * Sets the name of the next value, using a key that's already encoded.
+     * @param key entry name
+     * @return this writer
+     * @throws IOException if an I/O error occurs.
+     */
+    public @NotNull NbtWriter name(@NotNull NbtKey key) throws IOException {
+        switch (ctx.mode) {
+        case ROOT_UNDETERMINED:
+        case ROOT_OBJECT:
+        case OBJECT:
+            deferredName = key;
+            break;
+        default:
+            throw new MalformedNbtDataException("Names are not allowed outside of compound tags");
+        }
+        return this;
+    }
+
+    private void writeName(@NotNull Object name) throws IOException {
+        if (name instanceof NbtKey)
+            ((NbtKey) name).write(streamHandler, out);
+        else
+            string((String) name);
+    }
+
     private void string(@NotNull String value) throws IOException {
         MUTF8Strings.EncodeResult res = MUTF8Strings.encode(value);
         streamHandler.writeUTFLength(out, res.utfLength());
@@ -144,43 +365,48 @@ public final class NbtWriter implements Closeable {
     private interface DeferredWrite {
         void write() throws IOException;
     }
-    
-    private void value(@NotNull NbtType type, @NotNull DeferredWrite write, int size) throws IOException {
+
+    private static final DeferredWrite NO_WRITE = () -> { };
+
+    /**
+     * Checks that {@code size} values of a type can be added to the current context.<p>
+     * If the context is direct, the value's tag header is written, and the caller must write its payload right away.
+     * Otherwise, the caller must pass the payload to {@link #defer(DeferredWrite)}.
+     * @return {@code true} if the payload should be written directly
+     */
+    private boolean value(@NotNull NbtType type, int size) throws IOException {
         boolean list = false;
         switch (ctx.mode) {
         case ROOT_UNDETERMINED:
             if (deferredName == null)
                 throw new MalformedNbtDataException("Missing root tag name");
             if (type == NbtType.OBJECT)
-                ctx = new Context(Mode.ROOT_OBJECT, null);
+                ctx.init(Mode.ROOT_OBJECT);
             else if (type == NbtType.LIST) {
-                ctx = new Context(Mode.ROOT_LIST, null);
+                ctx.init(Mode.ROOT_LIST);
                 out.write(type.id());
-                string(deferredName);
+                writeName(deferredName);
                 deferredName = null;
+                // the root list's only item is the list being begun, so its item type is known already
+                ctx.listType = type;
+                ctx.writeHeader();
                 list = true;
                 break;
             } else
                 throw new MalformedNbtDataException(type + " cannot be a root tag");
         case ROOT_OBJECT:
-            if (deferredName == null)
-                throw new MalformedNbtDataException("Missing tag name");
-            out.write(type.id());
-            string(deferredName);
-            deferredName = null;
-            write.write();
-            break;
         case OBJECT:
             if (deferredName == null)
                 throw new MalformedNbtDataException("Missing tag name");
-            final String thisDeferredName = deferredName;
-            deferredName = null;
-            ctx.write(() -> {
+            if (ctx.direct) {
                 out.write(type.id());
-                string(thisDeferredName);
-                write.write();
-            });
-            break;
+                writeName(deferredName);
+            } else {
+                pendingName = deferredName;
+                pendingType = type;
+            }
+            deferredName = null;
+            return ctx.direct;
         case ROOT_LIST:
         case LIST:
             list = true;
@@ -188,10 +414,7 @@ public final class NbtWriter implements Closeable {
         case BYTE_ARRAY:
         case INT_ARRAY:
         case LONG_ARRAY:
-            if (ctx.mode.type == type || ctx.listType == type) {
-                ctx.write(write);
-                ctx.listSize += size;
-            } else
+            if (ctx.mode.type != type && ctx.listType != type)
                 throw new MalformedNbtDataException("Tried to add " + type + " to " + ctx.mode);
             break;
         default:
@@ -218,17 +441,37 @@ public final class NbtWriter implements Closeable {
                 ctx.listType = type;
             else if (!matches)
                 throw new MalformedNbtDataException("Tried to add " + type + " to list of " + ctx.listType);
-            ctx.write(write);
-            ctx.listSize += size;
         }
-    }
-    
-    private void value(@NotNull NbtType type, @NotNull DeferredWrite write) throws IOException {
-        value(type, write, 1);
+        if (ctx.declaredSize >= 0 && ctx.declaredSize - ctx.listSize < size)
+            throw new MalformedNbtDataException("Tried to add more than the " + ctx.declaredSize + " items " + ctx.mode + " was begun with");
+        ctx.listSize += size;
+        return ctx.direct;
+    }
+
+    /**
+     * Defers writing the payload of a value until the current context ends.
+     * @see #value(NbtType, int)
+     */
+    private void defer(@NotNull DeferredWrite write) {
+        final Object name = pendingName;
+        if (name == null)
+            ctx.deferredWrites.add(write);
+        else {
+            final NbtType type = pendingType;
+            pendingName = null;
+            ctx.deferredWrites.add(() -> {
+                out.write(type.id());
+                writeName(name);
+                write.write();
+            });
+        }
     }
 
     public @NotNull NbtWriter byteValue(byte value) throws IOException {
-        value(NbtType.BYTE, () -> out.write(value));
+        if (value(NbtType.BYTE, 1))
+            out.write(value);
+        else
+            defer(() -> out.write(value));
         return this;
     }
 
@@ -237,78 +480,129 @@ public final class NbtWriter implements Closeable {
     }
 
     public @NotNull NbtWriter shortValue(short value) throws IOException {
-        value(NbtType.SHORT, () -> streamHandler.writeShort(out, value));
+        if (value(NbtType.SHORT, 1))
+            streamHandler.writeShort(out, value);
+        else
+            defer(() -> streamHandler.writeShort(out, value));
         return this;
     }
 
     public @NotNull NbtWriter intValue(int value) throws IOException {
-        value(NbtType.INT, () -> streamHandler.writeInt(out, value));
+        if (value(NbtType.INT, 1))
+            streamHandler.writeInt(out, value);
+        else
+            defer(() -> streamHandler.writeInt(out, value));
         return this;
     }
 
     public @NotNull NbtWriter longValue(long value) throws IOException {
-        value(NbtType.LONG, () -> streamHandler.writeLong(out, value));
+        if (value(NbtType.LONG, 1))
+            streamHandler.writeLong(out, value);
+        else
+            defer(() -> streamHandler.writeLong(out, value));
         return this;
     }
 
     public @NotNull NbtWriter floatValue(float value) throws IOException {
-        value(NbtType.FLOAT, () -> streamHandler.writeFloat(out, value));
+        if (value(NbtType.FLOAT, 1))
+            streamHandler.writeFloat(out, value);
+        else
+            defer(() -> streamHandler.writeFloat(out, value));
         return this;
     }
 
     public @NotNull NbtWriter doubleValue(double value) throws IOException {
-        value(NbtType.DOUBLE, () -> streamHandler.writeDouble(out, value));
+        if (value(NbtType.DOUBLE, 1))
+            streamHandler.writeDouble(out, value);
+        else
+            defer(() -> streamHandler.writeDouble(out, value));
         return this;
     }
 
     public @NotNull NbtWriter stringValue(@NotNull String value) throws IOException {
-        value(NbtType.STRING, () -> string(value));
+        if (value(NbtType.STRING, 1))
+            string(value);
+        else
+            defer(() -> string(value));
         return this;
     }
 
+    private void writeBytes(byte @NotNull [] values, int off, int len) throws IOException {
+        out.write(values, off, len);
+    }
+
+    private void writeInts(int @NotNull [] values, int off, int len) throws IOException {
+        streamHandler.writeInts(out, values, off, len);
+    }
+
+    private void writeLongs(long @NotNull [] values, int off, int len) throws IOException {
+        streamHandler.writeLongs(out, values, off, len);
+    }
+
     public @NotNull NbtWriter byteValues(byte @NotNull ... values) throws IOException {
-        final byte[] valuesCopy = values.clone();
-        value(NbtType.BYTE_ARRAY, () -> {
-            for (byte value : valuesCopy)
-                out.write(value);
-        }, valuesCopy.length);
+        return byteValues(values, 0, values.length);
+    }
+
+    public @NotNull NbtWriter byteValues(byte @NotNull [] values, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off > values.length - len)
+            throw new IndexOutOfBoundsException("Range [" + off + ", " + off + " + " + len + ") out of bounds for length " + values.length);
+        if (value(NbtType.BYTE_ARRAY, len))
+            writeBytes(values, off, len);
+        else {
+            final byte[] valuesCopy = Arrays.copyOfRange(values, off, off + len);
+            defer(() -> writeBytes(valuesCopy, 0, valuesCopy.length));
+        }
         return this;
     }
 
     public @NotNull NbtWriter intValues(int @NotNull ... values) throws IOException {
-        final int[] valuesCopy = values.clone();
-        value(NbtType.INT_ARRAY, () -> {
-            for (int value : valuesCopy)
-                streamHandler.writeInt(out, value);
-        }, valuesCopy.length);
+        return intValues(values, 0, values.length);
+    }
+
+    public @NotNull NbtWriter intValues(int @NotNull [] values, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off > values.length - len)
+            throw new IndexOutOfBoundsException("Range [" + off + ", " + off + " + " + len + ") out of bounds for length " + values.length);
+        if (value(NbtType.INT_ARRAY, len))
+            writeInts(values, off, len);
+        else {
+            final int[] valuesCopy = Arrays.copyOfRange(values, off, off + len);
+            defer(() -> writeInts(valuesCopy, 0, valuesCopy.length));
+        }
         return this;
     }
 
     public @NotNull NbtWriter longValues(long @NotNull ... values) throws IOException {
-        final long[] valuesCopy = values.clone();
-        value(NbtType.LONG_ARRAY, () -> {
-            for (long value : valuesCopy)
-                streamHandler.writeLong(out, value);
-        }, valuesCopy.length);
+        return longValues(values, 0, values.length);
+    }
+
+    public @NotNull NbtWriter longValues(long @NotNull [] values, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off > values.length - len)
+            throw new IndexOutOfBoundsException("Range [" + off + ", " + off + " + " + len + ") out of bounds for length " + values.length);
+        if (value(NbtType.LONG_ARRAY, len))
+            writeLongs(values, off, len);
+        else {
+            final long[] valuesCopy = Arrays.copyOfRange(values, off, off + len);
+            defer(() -> writeLongs(valuesCopy, 0, valuesCopy.length));
+        }
         return this;
     }
     
     public @NotNull NbtWriter byteArray(byte @NotNull ... values) throws IOException {
-        beginByteArray();
+        beginByteArray(values.length);
         byteValues(values);
         endByteArray();
         return this;
     }
 
     public @NotNull NbtWriter intArray(int @NotNull ... values) throws IOException {
-        beginIntArray();
+        beginIntArray(values.length);
         intValues(values);
         endIntArray();
         return this;
     }
 
     public @NotNull NbtWriter longArray(long @NotNull ... values) throws IOException {
-        beginLongArray();
+        beginLongArray(values.length);
         longValues(values);
         endLongArray();
         return this;
@@ -325,8 +619,28 @@ public final class NbtWriter implements Closeable {
     }
 
     public @NotNull NbtWriter beginList(@NotNull NbtType type) throws IOException {
-        pushCtx(Mode.LIST);
-        ctx.listType = type;
+        pushCtx(Mode.LIST, type, -1);
+        return this;
+    }
+
+    /**
+     * Begins a list with a known item type and size.<p>
+     * Lists with an unknown size have to be held in memory until they end, since their size is written before their items.
+     * A list begun with its size is written straight to the output instead (as long as its enclosing lists and arrays
+     * were begun with their sizes too), so writing it takes constant memory no matter how many items it has.<p>
+     * Exactly {@code size} items must be added before the list is {@linkplain #endList() ended}.
+     * @param type item type, may only be {@link NbtType#END} if the list is empty
+     * @param size number of items
+     * @return this writer
+     * @throws MalformedNbtDataException if there's no item type for a non-empty list, or a value can't be written here.
+     * @throws IOException if an I/O error occurs.
+     */
+    public @NotNull NbtWriter beginList(@NotNull NbtType type, int size) throws IOException {
+        if (size < 0)
+            throw new IllegalArgumentException("Size must be non-negative, got " + size);
+        if (type == NbtType.END && size > 0)
+            throw new MalformedNbtDataException("List of " + size + " items needs an item type");
+        pushCtx(Mode.LIST, type, size);
         return this;
     }
 
@@ -343,6 +657,21 @@ public final class NbtWriter implements Closeable {
         pushCtx(Mode.BYTE_ARRAY);
         return this;
     }
+
+    /**
+     * Begins a byte array with a known length. Like {@link #beginList(NbtType, int)}, its values are written straight to the
+     * output, and exactly {@code length} values must be added before the array is ended.
+     * @param length number of values
+     * @return this writer
+     * @throws MalformedNbtDataException if a value can't be written here.
+     * @throws IOException if an I/O error occurs.
+     */
+    public @NotNull NbtWriter beginByteArray(int length) throws IOException {
+        if (length < 0)
+            throw new IllegalArgumentException("Length must be non-negative, got " + length);
+        pushCtx(Mode.BYTE_ARRAY, NbtType.END, length);
+        return this;
+    }
     
     public @NotNull NbtWriter endByteArray() throws IOException {
         endCtx(Mode.BYTE_ARRAY, "Tried to end byte array before starting one");
@@ -354,6 +683,21 @@ public final class NbtWriter implements Closeable {
         return this;
     }
 
+    /**
+     * Begins a int array with a known length. Like {@link #beginList(NbtType, int)}, its values are written straight to the
+     * output, and exactly {@code length} values must be added before the array is ended.
+     * @param length number of values
+     * @return this writer
+     * @throws MalformedNbtDataException if a value can't be written here.
+     * @throws IOException if an I/O error occurs.
+     */
+    public @NotNull NbtWriter beginIntArray(int length) throws IOException {
+        if (length < 0)
+            throw new IllegalArgumentException("Length must be non-negative, got " + length);
+        pushCtx(Mode.INT_ARRAY, NbtType.END, length);
+        return this;
+    }
+
     public @NotNull NbtWriter endIntArray() throws IOException {
         endCtx(Mode.INT_ARRAY, "Tried to end int array before starting one");
         return this;
@@ -364,16 +708,50 @@ public final class NbtWriter implements Closeable {
         return this;
     }
 
+    /**
+     * Begins a long array with a known length. Like {@link #beginList(NbtType, int)}, its values are written straight to the
+     * output, and exactly {@code length} values must be added before the array is ended.
+     * @param length number of values
+     * @return this writer
+     * @throws MalformedNbtDataException if a value can't be written here.
+     * @throws IOException if an I/O error occurs.
+     */
+    public @NotNull NbtWriter beginLongArray(int length) throws IOException {
+        if (length < 0)
+            throw new IllegalArgumentException("Length must be non-negative, got " + length);
+        pushCtx(Mode.LONG_ARRAY, NbtType.END, length);
+        return this;
+    }
+
     public @NotNull NbtWriter endLongArray() throws IOException {
         endCtx(Mode.LONG_ARRAY, "Tried to end long array before starting one");
         return this;
     }
 
+    /**
+     * Writes out any buffered data, and flushes the stream.<p>
+     * Note that lists and arrays that were begun without their size may still be held in memory until they end.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Finishes writing and closes the stream. If this writer was obtained from an {@link NbtPool}, it's returned to the pool.
+     * @throws MalformedNbtDataException if an object, list or array wasn't ended.
+     * @throws IOException if an I/O error occurs.
+     */
     @Override
     public void close() throws IOException {
-        if (ctx.hasNext())
+        if (hasParentCtx())
             throw new MalformedNbtDataException("Unterminated " + ctx.mode);
-        ctx.writeDeferred();
+        ctx.finish();
         out.close();
+        if (pool != null && !pooled) {
+            pooled = true;
+            pool.release(this);
+        }
     }
 }
@@ -0,0 +1,187 @@
+package io.github.speedbridgemc.nibblet.stream;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * An output stream that can overwrite bytes it's already written.<p>
+ * An {@link NbtWriter} that writes to a seekable stream doesn't need to know the length of a list or array up front -
+ * it writes a placeholder length, writes the items straight to the stream, and then patches the length in once the
+ * list or array ends. This avoids buffering the items in memory until then.
+ * @see NbtStreamHandler#reservedLengthSize()
+ */
+public abstract class SeekableOutputStream extends OutputStream {
+    /**
+     * Gets the current position of the stream, which is where the next byte will be written.
+     * @return position
+     */
+    public abstract long position();
+
+    /**
+     * Overwrites bytes that were already written, without changing the stream's position.
+     * @param position position to start overwriting at
+     * @param b bytes to write
+     * @param off offset in {@code b}
+     * @param len number of bytes to write
+     * @throws IOException if an I/O error occurs.
+     */
+    public abstract void writeAt(long position, byte @NotNull [] b, int off, int len) throws IOException;
+
+    /**
+     * Creates a stream that writes to a buffer, starting at its position.<p>
+     * Positions are indices into the buffer, and writing past the buffer's limit fails.
+     * @param buf buffer to write to
+     * @return seekable stream
+     */
+    public static @NotNull SeekableOutputStream of(@NotNull ByteBuffer buf) {
+        return new BufferOutput(buf);
+    }
+
+    /**
+     * Creates a stream that writes to a channel, starting at its position.<p>
+     * Writes are buffered - the channel's position only reflects what was written once the stream is flushed.
+     * Closing the stream closes the channel.
+     * @param channel channel to write to
+     * @return seekable stream
+     * @throws IOException if an I/O error occurs.
+     */
+    public static @NotNull SeekableOutputStream of(@NotNull SeekableByteChannel channel) throws IOException {
+        return new ChannelOutput(channel);
+    }
+
+    /**
+     * Creates a stream that writes to a file, starting at its file pointer.
+     * @param file file to write to
+     * @return seekable stream
+     * @throws IOException if an I/O error occurs.
+     * @see #of(SeekableByteChannel)
+     */
+    public static @NotNull SeekableOutputStream of(@NotNull RandomAccessFile file) throws IOException {
+        return new ChannelOutput(file.getChannel());
+    }
+
+    private static final class BufferOutput extends SeekableOutputStream {
+        private final @NotNull ByteBuffer buf;
+
+        private BufferOutput(@NotNull ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public long position() {
+            return buf.position();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buf.hasRemaining())
+                throw new IOException("Buffer is full");
+            buf.put((byte) b);
+        }
+
+        @Override
+        public void write(byte @NotNull [] b, int off, int len) throws IOException {
+            try {
+                buf.put(b, off, len);
+            } catch (BufferOverflowException e) {
+                throw new IOException("Buffer is full", e);
+            }
+        }
+
+        @Override
+        public void writeAt(long position, byte @NotNull [] b, int off, int len) {
+            ByteBuffer dup = buf.duplicate();
+            dup.position((int) position);
+            dup.put(b, off, len);
+        }
+    }
+
+    private static final class ChannelOutput extends SeekableOutputStream {
+        private static final int BUFFER_SIZE = 8192;
+
+        private final @NotNull SeekableByteChannel channel;
+        private final @NotNull ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        // position of the channel, which is where buf's contents will be written
+        private long flushedPosition;
+
+        private ChannelOutput(@NotNull SeekableByteChannel channel) throws IOException {
+            this.channel = channel;
+            flushedPosition = channel.position();
+        }
+
+        @Override
+        public long position() {
+            return flushedPosition + buf.position();
+        }
+
+        private void flushBuffer() throws IOException {
+            buf.flip();
+            int n = buf.remaining();
+            while (buf.hasRemaining())
+                channel.write(buf);
+            buf.clear();
+            flushedPosition += n;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buf.hasRemaining())
+                flushBuffer();
+            buf.put((byte) b);
+        }
+
+        @Override
+        public void write(byte @NotNull [] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (!buf.hasRemaining())
+                    flushBuffer();
+                int n = Math.min(len, buf.remaining());
+                buf.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void writeAt(long position, byte @NotNull [] b, int off, int len) throws IOException {
+            long flushed = flushedPosition;
+            if (position < flushed) {
+                // already flushed to the channel, so seek back to overwrite it
+                int n = (int) Math.min(len, flushed - position);
+                channel.position(position);
+                ByteBuffer src = ByteBuffer.wrap(b, off, n);
+                while (src.hasRemaining())
+                    channel.write(src);
+                channel.position(flushed);
+                position += n;
+                off += n;
+                len -= n;
+            }
+            if (len > 0) {
+                ByteBuffer dup = buf.duplicate();
+                dup.position((int) (position - flushed));
+                dup.put(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushBuffer();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flushBuffer();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -9,10 +9,16 @@ import java.io.OutputStream;
 import java.io.UTFDataFormatException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 
 public class StandardNbtStreamHandler implements NbtStreamHandler {
+    // size of the chunks arrays are encoded into before being written out
+    protected static final int CHUNK_SIZE = 8192;
+
     protected final ByteOrder byteOrder;
     private final ThreadLocal<ByteBuffer> tlScratchBuf;
+    private final ThreadLocal<ByteBuffer> tlChunkBuf;
 
     public StandardNbtStreamHandler(ByteOrder byteOrder) {
         this.byteOrder = byteOrder;
@@ -22,12 +28,17 @@ public class StandardNbtStreamHandler implements NbtStreamHandler {
             buf.order(byteOrder);
             return buf;
         });
+        tlChunkBuf = ThreadLocal.withInitial(() -> ByteBuffer.allocate(CHUNK_SIZE).order(byteOrder));
     }
 
     protected final @NotNull ByteBuffer scratchBuf() {
         return tlScratchBuf.get();
     }
 
+    protected final @NotNull ByteBuffer chunkBuf() {
+        return tlChunkBuf.get();
+    }
+
     @Override
     public long payloadSize(@NotNull NbtType type) {
         switch (type) {
@@ -99,6 +110,72 @@ public class StandardNbtStreamHandler implements NbtStreamHandler {
             return buf.get(0) << 8 | buf.get(1);
     }
 
+    @Override
+    public short readShort(@NotNull ByteBuffer buf) throws IOException {
+        short value = buf.getShort();
+        return buf.order() == byteOrder ? value : Short.reverseBytes(value);
+    }
+
+    @Override
+    public int readInt(@NotNull ByteBuffer buf) throws IOException {
+        int value = buf.getInt();
+        return buf.order() == byteOrder ? value : Integer.reverseBytes(value);
+    }
+
+    @Override
+    public long readLong(@NotNull ByteBuffer buf) throws IOException {
+        long value = buf.getLong();
+        return buf.order() == byteOrder ? value : Long.reverseBytes(value);
+    }
+
+    @Override
+    public float readFloat(@NotNull ByteBuffer buf) throws IOException {
+        int bits = buf.getInt();
+        return Float.intBitsToFloat(buf.order() == byteOrder ? bits : Integer.reverseBytes(bits));
+    }
+
+    @Override
+    public double readDouble(@NotNull ByteBuffer buf) throws IOException {
+        long bits = buf.getLong();
+        return Double.longBitsToDouble(buf.order() == byteOrder ? bits : Long.reverseBytes(bits));
+    }
+
+    @Override
+    public int readUTFLength(@NotNull ByteBuffer buf) throws IOException {
+        short value = buf.getShort();
+        return (buf.order() == byteOrder ? value : Short.reverseBytes(value)) & 0xFFFF;
+    }
+
+    @Override
+    public void readShorts(@NotNull ByteBuffer buf, short @NotNull [] dst, int off, int len) {
+        buf.slice().order(byteOrder).asShortBuffer().get(dst, off, len);
+        buf.position(buf.position() + len * Short.BYTES);
+    }
+
+    @Override
+    public void readInts(@NotNull ByteBuffer buf, int @NotNull [] dst, int off, int len) {
+        buf.slice().order(byteOrder).asIntBuffer().get(dst, off, len);
+        buf.position(buf.position() + len * Integer.BYTES);
+    }
+
+    @Override
+    public void readLongs(@NotNull ByteBuffer buf, long @NotNull [] dst, int off, int len) {
+        buf.slice().order(byteOrder).asLongBuffer().get(dst, off, len);
+        buf.position(buf.position() + len * Long.BYTES);
+    }
+
+    @Override
+    public void readFloats(@NotNull ByteBuffer buf, float @NotNull [] dst, int off, int len) {
+        buf.slice().order(byteOrder).asFloatBuffer().get(dst, off, len);
+        buf.position(buf.position() + len * Float.BYTES);
+    }
+
+    @Override
+    public void readDoubles(@NotNull ByteBuffer buf, double @NotNull [] dst, int off, int len) {
+        buf.slice().order(byteOrder).asDoubleBuffer().get(dst, off, len);
+        buf.position(buf.position() + len * Double.BYTES);
+    }
+
     @Override
     public void writeShort(@NotNull OutputStream out, short value) throws IOException {
         ByteBuffer buf = scratchBuf();
@@ -134,6 +211,51 @@ public class StandardNbtStreamHandler implements NbtStreamHandler {
         out.write(buf.array(), 0, Double.BYTES);
     }
 
+    @Override
+    public void writeInts(@NotNull OutputStream out, int @NotNull [] src, int off, int len) throws IOException {
+        ByteBuffer chunk = chunkBuf();
+        IntBuffer ints = chunk.asIntBuffer();
+        while (len > 0) {
+            int n = Math.min(len, ints.capacity());
+            ints.clear();
+            ints.put(src, off, n);
+            out.write(chunk.array(), 0, n * Integer.BYTES);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void writeLongs(@NotNull OutputStream out, long @NotNull [] src, int off, int len) throws IOException {
+        ByteBuffer chunk = chunkBuf();
+        LongBuffer longs = chunk.asLongBuffer();
+        while (len > 0) {
+            int n = Math.min(len, longs.capacity());
+            longs.clear();
+            longs.put(src, off, n);
+            out.write(chunk.array(), 0, n * Long.BYTES);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public int sizeOfInt(int value) {
+        return Integer.BYTES;
+    }
+
+    @Override
+    public int sizeOfLong(long value) {
+        return Long.BYTES;
+    }
+
+    @Override
+    public int sizeOfUTFLength(int utflen) throws IOException {
+        if (utflen > 0xFFFF)
+            throw new UTFDataFormatException("String is too big");
+        return Short.BYTES;
+    }
+
     @Override
     public void writeUTFLength(@NotNull OutputStream out, int utflen) throws IOException {
         if (utflen > 0xFFFF)
@@ -5,6 +5,7 @@ import org.jetbrains.annotations.NotNull;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UTFDataFormatException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Provides utility methods for encoding and decoding strings using Java's {@linkplain java.io.DataInput modified UTF-8 encoding}.
@@ -20,20 +21,33 @@ public final class MUTF8Strings {
      * @throws UTFDataFormatException if malformed input is received.
      */
     public static void decode(byte @NotNull [] src, int utflen, @NotNull StringBuilder dest) throws UTFDataFormatException {
-        if (src.length < utflen)
+        decode(src, 0, utflen, dest);
+    }
+
+    /**
+     * Decodes a string encoded in the modified UTF-8 format.
+     * @param src input buffer
+     * @param offset offset of input in buffer
+     * @param utflen length of input
+     * @param dest destination buffer
+     * @throws UTFDataFormatException if malformed input is received.
+     */
+    public static void decode(byte @NotNull [] src, int offset, int utflen, @NotNull StringBuilder dest) throws UTFDataFormatException {
+        if (offset < 0 || utflen < 0 || src.length - offset < utflen)
             throw new IllegalArgumentException("Length of input is greater than input buffer's length");
 
-        int count = 0;
+        final int end = offset + utflen;
+        int count = offset;
         int c1, c2, c3;
 
-        while (count < utflen) {
+        while (count < end) {
             c1 = (int) src[count] & 0xFF;
             if (c1 > 127) break;
             count++;
             dest.append((char) c1);
         }
         
-        while (count < utflen) {
+        while (count < end) {
             c1 = (int) src[count] & 0xFF;
             int m = c1 >> 4;
             if (m <= 7) {
@@ -43,27 +57,42 @@ public final class MUTF8Strings {
             } else if (m == 12 || m == 13) {
                 // 0b110xxxxx 0b10xxxxxx
                 count += 2;
-                if (count > utflen)
+                if (count > end)
                     throw new UTFDataFormatException("Malformed input: Partial 2-byte character at end");
                 c2 = src[count - 1];
                 if ((c2 & 0xC0) != 0x80)
-                    throw new UTFDataFormatException("Malformed input around byte " + count);
+                    throw new UTFDataFormatException("Malformed input around byte " + (count - offset));
                 dest.append((char) (((c1 & 0x1F) << 6) | (c2 & 0x3F)));
             } else if (m == 14) {
                 // 0b1110xxxx 0b10xxxxxx 0b10xxxxxx
                 count += 3;
-                if (count > utflen)
+                if (count > end)
                     throw new UTFDataFormatException("Malformed input: Partial 3-byte character at end");
                 c2 = src[count - 2];
                 c3 = src[count - 1];
                 if ((c2 & 0xC0) != 0x80 || (c3 & 0xC0) != 0x80)
-                    throw new UTFDataFormatException("Malformed input around byte " + (count - 1));
+                    throw new UTFDataFormatException("Malformed input around byte " + (count - offset - 1));
                 dest.append((char) (((c1 & 0x0F) << 12) | ((c2 & 0x3F) << 6) | (c3 & 0x3F)));
             } else
-                throw new UTFDataFormatException("Malformed input around byte " + count);
+                throw new UTFDataFormatException("Malformed input around byte " + (count - offset));
         }
     }
 
+    private static boolean isAscii(byte @NotNull [] src, int offset, int length) {
+        int i = offset;
+        final int end = offset + length;
+        // non-ASCII bytes are negative, so OR-ing 8 bytes together checks all of them at once
+        for (final int end8 = end - 7; i < end8; i += 8) {
+            if ((src[i] | src[i + 1] | src[i + 2] | src[i + 3] | src[i + 4] | src[i + 5] | src[i + 6] | src[i + 7]) < 0)
+                return false;
+        }
+        for (; i < end; i++) {
+            if (src[i] < 0)
+                return false;
+        }
+        return true;
+    }
+
     private static final ThreadLocal<StringBuilder> TL_STRING_BUILDER = ThreadLocal.withInitial(StringBuilder::new);
 
     private static @NotNull StringBuilder stringBuilder() {
@@ -80,8 +109,25 @@ public final class MUTF8Strings {
      * @throws UTFDataFormatException if malformed input is received.
      */
     public static @NotNull String decode(byte @NotNull [] src, int utflen) throws UTFDataFormatException {
+        return decode(src, 0, utflen);
+    }
+
+    /**
+     * Decodes a string encoded in the modified UTF-8 format.
+     * @param src input buffer
+     * @param offset offset of input in buffer
+     * @param utflen length of input
+     * @return decoded string
+     * @throws UTFDataFormatException if malformed input is received.
+     */
+    public static @NotNull String decode(byte @NotNull [] src, int offset, int utflen) throws UTFDataFormatException {
+        if (offset < 0 || utflen < 0 || src.length - offset < utflen)
+            throw new IllegalArgumentException("Length of input is greater than input buffer's length");
+        // ASCII is encoded as-is, and decoding it as Latin-1 creates the string straight from the bytes
+        if (isAscii(src, offset, utflen))
+            return new String(src, offset, utflen, StandardCharsets.ISO_8859_1);
         StringBuilder sb = stringBuilder();
-        decode(src, utflen, sb);
+        decode(src, offset, utflen, sb);
         return sb.toString();
     }
 
@@ -146,11 +192,11 @@ public final class MUTF8Strings {
     }
 
     /**
-     * Encodes a string into the modified UTF-8 format.
+     * Determines the length of a string encoded in the modified UTF-8 format, without encoding it.
      * @param value string
-     * @return encode result
+     * @return UTF length
      */
-    public static @NotNull EncodeResult encode(@NotNull String value) {
+    public static int encodedLength(@NotNull String value) {
         final int strlen = value.length();
         int utflen = 0;
         char c;
@@ -164,6 +210,18 @@ public final class MUTF8Strings {
             else
                 utflen += 2;
         }
+        return utflen;
+    }
+
+    /**
+     * Encodes a string into the modified UTF-8 format.
+     * @param value string
+     * @return encode result
+     */
+    public static @NotNull EncodeResult encode(@NotNull String value) {
+        final int strlen = value.length();
+        final int utflen = encodedLength(value);
+        char c;
 
         byte[] buf = buffer(utflen);
 
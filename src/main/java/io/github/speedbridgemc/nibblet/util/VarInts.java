@@ -5,6 +5,8 @@ import org.jetbrains.annotations.NotNull;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 
 /**
  * Provides utility methods for reading and writing VarInts.
@@ -12,6 +14,53 @@ import java.io.OutputStream;
 public final class VarInts {
     private VarInts() { }
 
+    /**
+     * Maximum number of bytes in a VarInt.
+     */
+    public static final int MAX_VARINT_SIZE = 5;
+    /**
+     * Maximum number of bytes in a VarLong.
+     */
+    public static final int MAX_VARLONG_SIZE = 10;
+
+    /**
+     * Determines how many bytes an {@code int} value takes up when encoded as a VarInt.
+     * @param value value
+     * @return encoded size
+     */
+    public static int varIntSize(int value) {
+        return (38 - Integer.numberOfLeadingZeros(value | 1)) / 7;
+    }
+
+    /**
+     * Determines how many bytes a {@code long} value takes up when encoded as a VarLong.
+     * @param value value
+     * @return encoded size
+     */
+    public static int varLongSize(long value) {
+        return (70 - Long.numberOfLeadingZeros(value | 1)) / 7;
+    }
+
+    /**
+     * Determines how many bytes an {@code int} value takes up when encoded as a
+     * <a href="https://developers.google.com/protocol-buffers/docs/encoding#signed_integers">ZigZag</a> VarInt.
+     * @param value value
+     * @return encoded size
+     */
+    public static int varIntZigZagSize(int value) {
+        return varIntSize((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Determines how many bytes a {@code long} value takes up when encoded as a
+     * <a href="https://developers.google.com/protocol-buffers/docs/encoding#signed_integers">ZigZag</a> VarLong.
+     * @param value value
+     * @return encoded size
+     */
+    public static int varLongZigZagSize(long value) {
+        return varLongSize((value << 1) ^ (value >> 63));
+    }
+
     /**
      * Reads an {@code int} value encoded as a VarInt from an input stream.
      * @param in input stream
@@ -31,6 +80,26 @@ public final class VarInts {
         return result;
     }
 
+    /**
+     * Reads an {@code int} value encoded as a VarInt from a buffer, advancing its position.
+     * @param buf buffer
+     * @return resulting value
+     * @throws IOException if the VarInt is too long.
+     * @throws java.nio.BufferUnderflowException if the buffer ends before the VarInt does.
+     */
+    public static int readVarInt(@NotNull ByteBuffer buf) throws IOException {
+        int result = 0, shift = 0;
+        int b;
+        do {
+            if (shift >= 32)
+                throw new IOException("VarInt is too long!");
+            b = buf.get();
+            result |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
     /**
      * Writes an {@code int} value encoded as a VarInt to an output stream.
      * @param out output stream
@@ -46,6 +115,27 @@ public final class VarInts {
         } while (value != 0);
     }
 
+    /**
+     * Writes an {@code int} value encoded as a VarInt that's padded to a fixed width.<p>
+     * The padding consists of groups of zero bits with the continuation bit set, so decoders read the same value as if it
+     * was written by {@link #writeVarInt(OutputStream, int)}.
+     * @param out output stream
+     * @param value value to encode
+     * @param width number of bytes to write, must be enough to encode the value and at most {@link #MAX_VARINT_SIZE}
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void writeVarInt(@NotNull OutputStream out, int value, int width) throws IOException {
+        if (width > MAX_VARINT_SIZE)
+            throw new IllegalArgumentException("VarInts can't be wider than " + MAX_VARINT_SIZE + " bytes, got " + width);
+        for (int i = 1; i < width; i++) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        if ((value & ~0x7F) != 0)
+            throw new IllegalArgumentException("Value doesn't fit in a " + width + "-byte VarInt");
+        out.write(value);
+    }
+
     /**
      * Reads a {@code long} value encoded as a VarLong from an input stream.
      * @param in input stream
@@ -66,6 +156,27 @@ public final class VarInts {
         return result;
     }
 
+    /**
+     * Reads a {@code long} value encoded as a VarLong from a buffer, advancing its position.
+     * @param buf buffer
+     * @return resulting value
+     * @throws IOException if the VarLong is too long.
+     * @throws java.nio.BufferUnderflowException if the buffer ends before the VarLong does.
+     */
+    public static long readVarLong(@NotNull ByteBuffer buf) throws IOException {
+        long result = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift >= 64)
+                throw new IOException("VarLong is too long!");
+            b = buf.get();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
     /**
      * Writes a {@code long} value encoded as a VarLong to an output stream.
      * @param out output stream
@@ -94,6 +205,20 @@ public final class VarInts {
         return (value >>> 1) ^ (-(value & 1));
     }
 
+    /**
+     * Reads an {@code int} value encoded as a
+     * <a href="https://developers.google.com/protocol-buffers/docs/encoding#signed_integers">ZigZag</a> VarInt
+     * from a buffer, advancing its position.
+     * @param buf buffer
+     * @return resulting value
+     * @throws IOException if the VarInt is too long.
+     * @throws java.nio.BufferUnderflowException if the buffer ends before the VarInt does.
+     */
+    public static int readVarIntZigZag(@NotNull ByteBuffer buf) throws IOException {
+        int value = readVarInt(buf);
+        return (value >>> 1) ^ (-(value & 1));
+    }
+
     /**
      * Writes an {@code int} value encoded as a
      * <a href="https://developers.google.com/protocol-buffers/docs/encoding#signed_integers">ZigZag</a> VarInt
@@ -106,6 +231,20 @@ public final class VarInts {
         writeVarInt(out, (value << 1) ^ (value >> 31));
     }
 
+    /**
+     * Writes an {@code int} value encoded as a
+     * <a href="https://developers.google.com/protocol-buffers/docs/encoding#signed_integers">ZigZag</a> VarInt
+     * that's padded to a fixed width.
+     * @param out output stream
+     * @param value value to encode
+     * @param width number of bytes to write
+     * @throws IOException if an I/O error occurs.
+     * @see #writeVarInt(OutputStream, int, int)
+     */
+    public static void writeVarIntZigZag(@NotNull OutputStream out, int value, int width) throws IOException {
+        writeVarInt(out, (value << 1) ^ (value >> 31), width);
+    }
+
     /**
      * Reads a {@code long} value encoded as a
      * <a href="https://developers.google.com/protocol-buffers/docs/encoding#signed_integers">ZigZag</a> VarLong
@@ -119,6 +258,90 @@ public final class VarInts {
         return (value >>> 1) ^ (-(value & 1));
     }
 
+    /**
+     * Reads a {@code long} value encoded as a
+     * <a href="https://developers.google.com/protocol-buffers/docs/encoding#signed_integers">ZigZag</a> VarLong
+     * from a buffer, advancing its position.
+     * @param buf buffer
+     * @return resulting value
+     * @throws IOException if the VarLong is too long.
+     * @throws java.nio.BufferUnderflowException if the buffer ends before the VarLong does.
+     */
+    public static long readVarLongZigZag(@NotNull ByteBuffer buf) throws IOException {
+        long value = readVarLong(buf);
+        return (value >>> 1) ^ (-(value & 1));
+    }
+
+    /**
+     * Skips over VarInts or VarLongs in a buffer, advancing its position.<p>
+     * Values are only delimited, not decoded - overly long values are <em>not</em> detected.
+     * @param buf buffer
+     * @param count number of values to skip
+     * @throws java.nio.BufferUnderflowException if the buffer ends before the last value does.
+     *  In this case, the buffer's position is not modified.
+     */
+    public static void skip(@NotNull ByteBuffer buf, int count) {
+        int pos = buf.position();
+        final int limit = buf.limit();
+        if (buf.hasArray()) {
+            // scanning the array directly is a lot faster than going through the buffer
+            final byte[] array = buf.array();
+            final int offset = buf.arrayOffset();
+            while (count > 0) {
+                if (pos >= limit)
+                    throw new BufferUnderflowException();
+                // branchless, since whether a byte is the last of its value is unpredictable
+                count -= ~array[offset + pos++] >>> 31;
+            }
+        } else {
+            while (count > 0) {
+                if (pos >= limit)
+                    throw new BufferUnderflowException();
+                if (buf.get(pos++) >= 0)
+                    count--;
+            }
+        }
+        buf.position(pos);
+    }
+
+    /**
+     * Encodes an {@code int} value as a
+     * <a href="https://developers.google.com/protocol-buffers/docs/encoding#signed_integers">ZigZag</a> VarInt
+     * into an array. The array must have at least {@link #MAX_VARINT_SIZE} bytes left from {@code pos} onwards.
+     * @param dst destination array
+     * @param pos position to start writing at
+     * @param value value to encode
+     * @return position after the encoded value
+     */
+    public static int putVarIntZigZag(byte @NotNull [] dst, int pos, int value) {
+        int bits = (value << 1) ^ (value >> 31);
+        while ((bits & ~0x7F) != 0) {
+            dst[pos++] = (byte) (bits | 0x80);
+            bits >>>= 7;
+        }
+        dst[pos++] = (byte) bits;
+        return pos;
+    }
+
+    /**
+     * Encodes a {@code long} value as a
+     * <a href="https://developers.google.com/protocol-buffers/docs/encoding#signed_integers">ZigZag</a> VarLong
+     * into an array. The array must have at least {@link #MAX_VARLONG_SIZE} bytes left from {@code pos} onwards.
+     * @param dst destination array
+     * @param pos position to start writing at
+     * @param value value to encode
+     * @return position after the encoded value
+     */
+    public static int putVarLongZigZag(byte @NotNull [] dst, int pos, long value) {
+        long bits = (value << 1) ^ (value >> 63);
+        while ((bits & ~0x7FL) != 0) {
+            dst[pos++] = (byte) (bits | 0x80);
+            bits >>>= 7;
+        }
+        dst[pos++] = (byte) bits;
+        return pos;
+    }
+
     /**
      * Writes a {@code long} value encoded as a
      * <a href="https://developers.google.com/protocol-buffers/docs/encoding#signed_integers">ZigZag</a> VarLong
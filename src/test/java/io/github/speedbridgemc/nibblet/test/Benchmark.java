@@ -0,0 +1,615 @@
+package io.github.speedbridgemc.nibblet.test;
+
+import io.github.speedbridgemc.nibblet.*;
+import io.github.speedbridgemc.nibblet.stream.ByteBufferOutputStream;
+import io.github.speedbridgemc.nibblet.stream.NbtKey;
+import io.github.speedbridgemc.nibblet.stream.NbtPool;
+import io.github.speedbridgemc.nibblet.stream.NbtReader;
+import io.github.speedbridgemc.nibblet.stream.NbtVisitor;
+import io.github.speedbridgemc.nibblet.stream.NbtWriter;
+import io.github.speedbridgemc.nibblet.stream.SeekableOutputStream;
+import io.github.speedbridgemc.nibblet.util.MUTF8Strings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Crude, dependency-free benchmarks. Numbers are only meaningful relative to each other on the same machine.
+ */
+public final class Benchmark {
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int ITERATIONS = 5_000;
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws IOException;
+    }
+
+    private static volatile Object sink;
+
+    private static void bench(String name, Task task) throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            task.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            task.run();
+        long elapsed = System.nanoTime() - start;
+        System.out.format(Locale.ROOT, "%-48s %10.1f us/op%n", name, elapsed / (ITERATIONS * 1000.0));
+    }
+
+    // roughly shaped like a chunk: a handful of scalars, some sections with palettes and block state arrays
+    private static NbtObject chunk() {
+        NbtList.Builder sections = NbtList.builder();
+        for (int y = 0; y < 16; y++) {
+            long[] states = new long[256];
+            for (int i = 0; i < states.length; i++)
+                states[i] = i * 0x9E3779B97F4A7C15L ^ y;
+            sections.add(NbtObject.builder()
+                    .putByte("Y", (byte) y)
+                    .putLongArray("BlockStates", states)
+                    .put("Palette", NbtList.builder()
+                            .add(NbtObject.builder().putString("Name", "minecraft:stone").build())
+                            .add(NbtObject.builder()
+                                    .putString("Name", "minecraft:grass_block")
+                                    .put("Properties", NbtObject.builder().putString("snowy", "false").build())
+                                    .build())
+                            .build())
+                    .build());
+        }
+        int[] heights = new int[256];
+        for (int i = 0; i < heights.length; i++)
+            heights[i] = 60 + (i % 7);
+        return NbtObject.builder()
+                .putInt("DataVersion", 2586)
+                .put("Level", NbtObject.builder()
+                        .putInt("xPos", -12)
+                        .putInt("zPos", 34)
+                        .putLong("LastUpdate", 1234567L)
+                        .putString("Status", "full")
+                        .putIntArray("Biomes", heights)
+                        .put("Sections", sections.build())
+                        .build())
+                .build();
+    }
+
+    private static void benchLongArrayDecoding() throws IOException {
+        long[] states = new long[4096];
+        for (int i = 0; i < states.length; i++)
+            states[i] = i * 0x9E3779B97F4A7C15L;
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        NbtIO.write("", NbtObject.builder().putLongArray("BlockStates", states).build(), NbtFormat.JAVA, baos);
+        final byte[] data = baos.toByteArray();
+
+        System.out.println("4096-entry TAG_Long_Array (JAVA)");
+        bench("nextLong() per element", () -> {
+            try (NbtReader reader = new NbtReader(NbtFormat.JAVA, data)) {
+                reader.beginObject();
+                reader.nextName();
+                reader.nextType();
+                reader.nextName();
+                reader.beginLongArray();
+                long[] values = new long[reader.listSize()];
+                for (int i = 0; reader.listHasNext(); i++)
+                    values[i] = reader.nextLong();
+                reader.endLongArray();
+                sink = values;
+            }
+        });
+        bench("nextLongArray()", () -> {
+            try (NbtReader reader = new NbtReader(NbtFormat.JAVA, data)) {
+                reader.beginObject();
+                reader.nextName();
+                reader.nextType();
+                reader.nextName();
+                sink = reader.nextLongArray();
+            }
+        });
+    }
+
+    private static void benchLongArrayEncoding() throws IOException {
+        final long[] states = new long[4096];
+        for (int i = 0; i < states.length; i++)
+            states[i] = i * 0x9E3779B97F4A7C15L;
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        for (NbtFormat format : new NbtFormat[] { NbtFormat.JAVA, NbtFormat.BEDROCK_NETWORK }) {
+            System.out.println("Writing a 4096-entry TAG_Long_Array (" + format + ")");
+            bench("longValue() per element", () -> {
+                baos.reset();
+                try (NbtWriter writer = new NbtWriter(format, baos)) {
+                    writer.name("").beginObject().name("BlockStates").beginLongArray(states.length);
+                    for (long state : states)
+                        writer.longValue(state);
+                    writer.endLongArray().endObject();
+                }
+                sink = baos;
+            });
+            bench("longArray()", () -> {
+                baos.reset();
+                try (NbtWriter writer = new NbtWriter(format, baos)) {
+                    writer.name("").beginObject().name("BlockStates").longArray(states).endObject();
+                }
+                sink = baos;
+            });
+        }
+    }
+
+    private static final String[] STRINGS = {
+            "id", "Count", "Name", "Properties", "Pos", "DataVersion", "BlockStates",
+            "minecraft:stone", "minecraft:grass_block", "minecraft:oak_log[axis=y]", "snowy", "false"
+    };
+
+    private static void benchStringDecoding() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        int[] offsets = new int[STRINGS.length + 1];
+        for (int i = 0; i < STRINGS.length; i++) {
+            MUTF8Strings.encode(STRINGS[i]).write(baos);
+            offsets[i + 1] = baos.size();
+        }
+        final byte[] data = baos.toByteArray();
+
+        System.out.println("MUTF-8 decoding (" + STRINGS.length + " keys/values)");
+        final StringBuilder sb = new StringBuilder();
+        bench("decode(..., StringBuilder) + toString()", () -> {
+            for (int i = 0; i < STRINGS.length; i++) {
+                sb.setLength(0);
+                MUTF8Strings.decode(data, offsets[i], offsets[i + 1] - offsets[i], sb);
+                sink = sb.toString();
+            }
+        });
+        bench("decode(...)", () -> {
+            for (int i = 0; i < STRINGS.length; i++)
+                sink = MUTF8Strings.decode(data, offsets[i], offsets[i + 1] - offsets[i]);
+        });
+    }
+
+    // lists and arrays of unknown size, which have to be buffered unless their lengths can be patched in
+    private static void writeUnsized(NbtWriter writer) throws IOException {
+        writer.name("").beginObject();
+        writer.name("Sections").beginList();
+        for (int y = 0; y < 16; y++) {
+            writer.beginObject().name("Y").byteValue((byte) y);
+            writer.name("BlockStates").beginLongArray();
+            for (int i = 0; i < 256; i++)
+                writer.longValue(i * 0x9E3779B97F4A7C15L ^ y);
+            writer.endLongArray();
+            writer.endObject();
+        }
+        writer.endList();
+        writer.endObject();
+        writer.close();
+    }
+
+    private static void benchUnsizedWriting() throws IOException {
+        System.out.println("Writing unsized lists (JAVA)");
+        bench("NbtWriter(ByteArrayOutputStream) [buffered]", () -> {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            writeUnsized(new NbtWriter(NbtFormat.JAVA, baos));
+            sink = baos;
+        });
+        final ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+        bench("NbtWriter(SeekableOutputStream) [patched]", () -> {
+            buf.clear();
+            writeUnsized(new NbtWriter(NbtFormat.JAVA, SeekableOutputStream.of(buf)));
+            sink = buf;
+        });
+    }
+
+    // item stacks, as a serializer with fixed names would write them
+    private static final NbtKey ID = NbtKey.of("id"), COUNT = NbtKey.of("Count"), SLOT = NbtKey.of("Slot"), DAMAGE = NbtKey.of("Damage");
+
+    private static void writeItems(NbtWriter writer, boolean keys) throws IOException {
+        writer.name("").beginObject();
+        writer.name("Items").beginList(NbtType.OBJECT, 36);
+        for (int i = 0; i < 36; i++) {
+            writer.beginObject();
+            if (keys)
+                writer.name(ID).stringValue("minecraft:stone").name(COUNT).byteValue((byte) 64)
+                        .name(SLOT).byteValue((byte) i).name(DAMAGE).shortValue((short) 0);
+            else
+                writer.name("id").stringValue("minecraft:stone").name("Count").byteValue((byte) 64)
+                        .name("Slot").byteValue((byte) i).name("Damage").shortValue((short) 0);
+            writer.endObject();
+        }
+        writer.endList();
+        writer.endObject();
+        writer.close();
+    }
+
+    private static int readItems(NbtReader reader, boolean keys) throws IOException {
+        int total = 0;
+        reader.beginObject();
+        reader.nextName();
+        reader.nextType();
+        reader.nextName();
+        reader.beginList();
+        while (reader.listHasNext()) {
+            reader.beginObject();
+            while (reader.nextType() != NbtType.END) {
+                if (keys ? reader.nextNameMatches(COUNT) == 0 : reader.nextName().equals("Count"))
+                    total += reader.nextByte();
+                else
+                    reader.skipValue();
+            }
+            reader.endObject();
+        }
+        reader.endList();
+        reader.endObject();
+        return total;
+    }
+
+    private static void benchKeys() throws IOException {
+        System.out.println("Item stack names (JAVA)");
+        final ByteBufferOutputStream out = new ByteBufferOutputStream();
+        bench("name(String)", () -> {
+            out.reset();
+            writeItems(new NbtWriter(NbtFormat.JAVA, out), false);
+        });
+        bench("name(NbtKey)", () -> {
+            out.reset();
+            writeItems(new NbtWriter(NbtFormat.JAVA, out), true);
+        });
+        final byte[] data = out.toByteArray();
+        bench("nextName() [uncached] + equals", () -> {
+            try (NbtReader reader = new NbtReader(NbtFormat.JAVA, data)) {
+                sink = readItems(reader, false);
+            }
+        });
+        bench("nextNameMatches(NbtKey)", () -> {
+            try (NbtReader reader = new NbtReader(NbtFormat.JAVA, data)) {
+                sink = readItems(reader, true);
+            }
+        });
+    }
+
+    private static EntityData entity() {
+        EntityData entity = new EntityData();
+        entity.id = "minecraft:zombie";
+        entity.pos.add(12.5);
+        entity.pos.add(64.0);
+        entity.pos.add(-3.25);
+        entity.rotation.add(90.0f);
+        entity.rotation.add(0.0f);
+        entity.uuid = new int[] { 1, -2, 3, -4 };
+        entity.customName = Optional.of("Bob");
+        entity.setHealth(17.5f);
+        for (int i = 0; i < 9; i++) {
+            EntityData.Item item = new EntityData.Item();
+            item.id = "minecraft:iron_sword";
+            item.count = 1;
+            item.slot = (byte) i;
+            item.tag = new EntityData.Tag();
+            item.tag.damage = i * 10;
+            item.tag.enchantments = new ArrayList<>();
+            Map<String, String> enchantment = new LinkedHashMap<>();
+            enchantment.put("id", "minecraft:sharpness");
+            enchantment.put("lvl", "3");
+            item.tag.enchantments.add(enchantment);
+            entity.inventory.add(item);
+        }
+        entity.attributes.put("generic.movement_speed", 0.23);
+        entity.attributes.put("generic.max_health", 20.0);
+        return entity;
+    }
+
+    // the hand-written conversions generated codecs replace
+    private static NbtObject toNbt(EntityData entity) {
+        NbtObject.Builder builder = NbtObject.builder().putString("id", entity.id);
+        NbtList.Builder pos = NbtList.builder();
+        for (double d : entity.pos)
+            pos.addDouble(d);
+        NbtList.Builder rotation = NbtList.builder();
+        for (float f : entity.rotation)
+            rotation.addFloat(f);
+        builder.put("Pos", pos.build()).put("Rotation", rotation.build())
+                .putShort("Air", entity.air).putBoolean("OnGround", entity.onGround).putIntArray("UUID", entity.uuid);
+        entity.customName.ifPresent(name -> builder.putString("CustomName", name));
+        entity.portalCooldown.ifPresent(cooldown -> builder.putInt("PortalCooldown", cooldown));
+        NbtList.Builder inventory = NbtList.builder();
+        for (EntityData.Item item : entity.inventory) {
+            NbtList.Builder enchantments = NbtList.builder();
+            for (Map<String, String> enchantment : item.tag.enchantments) {
+                NbtObject.Builder enchantmentNbt = NbtObject.builder();
+                for (Map.Entry<String, String> entry : enchantment.entrySet())
+                    enchantmentNbt.putString(entry.getKey(), entry.getValue());
+                enchantments.add(enchantmentNbt.build());
+            }
+            inventory.add(NbtObject.builder().putString("id", item.id).putByte("Count", item.count).putByte("Slot", item.slot)
+                    .put("tag", NbtObject.builder().putInt("Damage", item.tag.damage).put("Enchantments", enchantments.build()).build())
+                    .build());
+        }
+        NbtObject.Builder attributes = NbtObject.builder();
+        for (Map.Entry<String, Double> entry : entity.attributes.entrySet())
+            attributes.putDouble(entry.getKey(), entry.getValue());
+        return builder.put("Inventory", inventory.build()).put("Attributes", attributes.build())
+                .putFloat("Health", entity.getHealth()).build();
+    }
+
+    private static EntityData fromNbt(NbtObjectView nbt) {
+        EntityData entity = new EntityData();
+        entity.id = nbt.getString("id").orElse(null);
+        nbt.getList("Pos", NbtType.DOUBLE).ifPresent(pos -> {
+            for (NbtElement d : pos)
+                entity.pos.add(((NbtDouble) d).value());
+        });
+        nbt.getList("Rotation", NbtType.FLOAT).ifPresent(rotation -> {
+            for (NbtElement f : rotation)
+                entity.rotation.add(((NbtFloat) f).value());
+        });
+        entity.air = nbt.getShort("Air", entity.air);
+        entity.onGround = nbt.getBoolean("OnGround", false);
+        entity.uuid = nbt.getIntArray("UUID").orElse(null);
+        entity.customName = nbt.getString("CustomName");
+        if (nbt.contains("PortalCooldown", NbtType.INT))
+            entity.portalCooldown = OptionalInt.of(nbt.getInt("PortalCooldown", 0));
+        nbt.getList("Inventory", NbtType.OBJECT).ifPresent(inventory -> {
+            for (NbtElement e : inventory) {
+                NbtObjectView itemNbt = (NbtObjectView) e;
+                EntityData.Item item = new EntityData.Item();
+                item.id = itemNbt.getString("id").orElse(null);
+                item.count = itemNbt.getByte("Count", (byte) 0);
+                item.slot = itemNbt.getByte("Slot", (byte) 0);
+                itemNbt.getObject("tag").ifPresent(tagNbt -> {
+                    item.tag = new EntityData.Tag();
+                    item.tag.damage = tagNbt.getInt("Damage", 0);
+                    tagNbt.getList("Enchantments", NbtType.OBJECT).ifPresent(enchantments -> {
+                        item.tag.enchantments = new ArrayList<>();
+                        for (NbtElement enchantmentNbt : enchantments) {
+                            Map<String, String> enchantment = new LinkedHashMap<>();
+                            for (NbtObjectView.Entry entry : ((NbtObjectView) enchantmentNbt).entries())
+                                enchantment.put(entry.name(), ((NbtString) entry.element()).value());
+                            item.tag.enchantments.add(enchantment);
+                        }
+                    });
+                });
+                entity.inventory.add(item);
+            }
+        });
+        nbt.getObject("Attributes").ifPresent(attributes -> {
+            for (NbtObjectView.Entry entry : attributes.entries())
+                entity.attributes.put(entry.name(), ((NbtDouble) entry.element()).value());
+        });
+        entity.setHealth(nbt.getFloat("Health", entity.getHealth()));
+        return entity;
+    }
+
+    private static NbtObject objectWithKeys(int keys) {
+        NbtObject.Builder builder = NbtObject.builder();
+        for (int i = 0; i < keys; i++)
+            builder.putInt("key" + i, i);
+        return builder.build();
+    }
+
+    private static void benchObjectLookups() throws IOException {
+        System.out.println("NbtObject lookups (1000 per op)");
+        for (final int keys : new int[] { 4, 24 }) {
+            final NbtObject object = objectWithKeys(keys);
+            final String[] names = new String[1000];
+            for (int i = 0; i < names.length; i++)
+                names[i] = "key" + (i % keys);
+            bench("get(...) [" + keys + " keys]", () -> {
+                int n = 0;
+                for (String name : names)
+                    n += ((NbtInt) object.get(name)).value();
+                sink = n;
+            });
+            bench("getInt(...) [" + keys + " keys]", () -> {
+                int n = 0;
+                for (String name : names)
+                    n += object.getInt(name, 0);
+                sink = n;
+            });
+        }
+    }
+
+    // visits every element of a tree through its views, the way read-only consumers do
+    private static int walk(NbtElement element) {
+        int n = 1;
+        if (element instanceof NbtObjectView) {
+            for (NbtObjectView.Entry entry : ((NbtObjectView) element).entries())
+                n += walk(entry.element());
+        } else if (element instanceof NbtListView) {
+            for (NbtElement item : (NbtListView) element)
+                n += walk(item);
+        }
+        return n;
+    }
+
+    private static void benchEntityLists() throws IOException {
+        System.out.println("1000 entities with Pos/Motion/Rotation lists (JAVA)");
+        NbtList.Builder entities = NbtList.builder();
+        for (int i = 0; i < 1000; i++) {
+            entities.add(NbtObject.builder()
+                    .putString("id", "minecraft:zombie")
+                    .put("Pos", NbtList.ofDoubles(i * 1.37, 64.5 + i % 7, -i * 0.71))
+                    .put("Motion", NbtList.ofDoubles(0.01 * i, -0.0784, 0.003 * i))
+                    .put("Rotation", NbtList.ofFloats(i * 3.1f, 0.5f))
+                    .putFloat("Health", 20f)
+                    .build());
+        }
+        final NbtObject root = NbtObject.builder().put("Entities", entities.build()).build();
+        final byte[] data = NbtIO.write("", root, NbtFormat.JAVA);
+        final ByteBufferOutputStream out = new ByteBufferOutputStream();
+        bench("NbtIO.read(...)", () -> sink = NbtIO.read(NbtFormat.JAVA, data));
+        bench("NbtIO.write(...)", () -> {
+            out.reset();
+            NbtIO.write("", root, NbtFormat.JAVA, out);
+        });
+    }
+
+    private static void benchHashing() throws IOException {
+        System.out.println("Chunk hashing and comparison");
+        final NbtObject mutable = chunk();
+        final NbtObject frozen = chunk().freeze();
+        final NbtObject mutableCopy = chunk();
+        final NbtObject changed = chunk();
+        ((NbtObject) changed.get("Level")).putInt("xPos", 0);
+        final NbtObject frozenChanged = changed.deepCopy().freeze();
+        bench("hashCode() [mutable]", () -> sink = mutable.hashCode());
+        bench("hashCode() [frozen]", () -> sink = frozen.hashCode());
+        bench("equals(...) [mutable, one leaf differs]", () -> sink = mutable.equals(changed));
+        bench("equals(...) [mutable, equal]", () -> sink = mutable.equals(mutableCopy));
+        bench("equals(...) [frozen, one leaf differs]", () -> sink = frozen.equals(frozenChanged));
+    }
+
+    private static void benchDeepCopies() throws IOException {
+        System.out.println("Chunk snapshots");
+        final NbtObject mutable = chunk();
+        final NbtObject frozen = chunk().freeze();
+        final ByteBufferOutputStream out = new ByteBufferOutputStream();
+        bench("deepCopy() [mutable]", () -> sink = mutable.deepCopy());
+        bench("deepCopy() [frozen]", () -> sink = frozen.deepCopy());
+        bench("deepCopy() + NbtIO.write(...) [mutable]", () -> {
+            out.reset();
+            NbtIO.write("", mutable.deepCopy(), NbtFormat.JAVA, out);
+        });
+        bench("deepCopy() + putInt(...) [frozen]", () -> {
+            NbtObject copy = frozen.deepCopy();
+            ((NbtObject) copy.get("Level")).putInt("xPos", 0);
+            sink = copy;
+        });
+    }
+
+    private static void benchFrozenTraversal() throws IOException {
+        System.out.println("Chunk traversal through views");
+        final NbtObjectView mutable = chunk().view();
+        final NbtObjectView frozen = chunk().freeze().view();
+        // walk() gets compiled for whichever tree it sees first - comment one of these out for a fair comparison
+        bench("view() of frozen tree", () -> sink = walk(frozen));
+        bench("view() of mutable tree", () -> sink = walk(mutable));
+    }
+
+    private static void benchCodecs() throws IOException {
+        System.out.println("Entity with inventory (JAVA)");
+        final EntityData entity = entity();
+        final ByteBufferOutputStream out = new ByteBufferOutputStream();
+        bench("toNbt(...) + NbtIO.write(...)", () -> {
+            out.reset();
+            NbtIO.write("", toNbt(entity), NbtFormat.JAVA, out);
+        });
+        bench("EntityDataNbtCodec.write(...)", () -> {
+            out.reset();
+            EntityDataNbtCodec.INSTANCE.write("", entity, NbtFormat.JAVA, out);
+        });
+        final byte[] data = out.toByteArray();
+        bench("NbtIO.read(...) + fromNbt(...)", () -> sink = fromNbt((NbtObjectView) NbtIO.read(NbtFormat.JAVA, data).element()));
+        bench("EntityDataNbtCodec.read(...)", () -> sink = EntityDataNbtCodec.INSTANCE.read(NbtFormat.JAVA, data));
+        bench("NbtIO.read(...) [full tree]", () -> sink = NbtIO.read(NbtFormat.JAVA, data));
+        bench("NbtSchema.read(...) [4 of 12 entries]", () -> sink = ENTITY_SCHEMA.read(NbtFormat.JAVA, data));
+    }
+
+    private static final NbtSchema ENTITY_SCHEMA = NbtSchema.builder()
+            .entry("id", NbtType.STRING)
+            .entry("Health", NbtType.FLOAT)
+            .entry("Pos", NbtType.LIST)
+            .list("Inventory", NbtSchema.builder().entry("id", NbtType.STRING).entry("Count", NbtType.BYTE).build())
+            .build();
+
+    // the kind of sparse access chunk loading typically does
+    private static int lookups(NbtIO.Named<? extends NbtRootElement> named) {
+        NbtObjectView level = ((NbtObjectView) named.element()).getObject("Level").orElseThrow(IllegalStateException::new);
+        return level.getInt("xPos", 0) + level.getInt("zPos", 0);
+    }
+
+    private static final class IntCounter implements NbtVisitor {
+        private int count;
+
+        @Override
+        public void visitInt(@Nullable String name, int value) {
+            count++;
+        }
+
+        @Override
+        public void visitIntArray(@Nullable String name, int @NotNull [] values, int length) {
+            count += length;
+        }
+    }
+
+    private static final NbtProjection POSITION = NbtProjection.of("Level.xPos", "Level.zPos");
+    private static final NbtProjection SECTION_YS = NbtProjection.of("Level.Sections[*].Y");
+
+    public static void main(String[] args) throws IOException {
+        benchLongArrayDecoding();
+        benchLongArrayEncoding();
+        benchStringDecoding();
+        benchUnsizedWriting();
+        benchKeys();
+        benchCodecs();
+        benchObjectLookups();
+        benchFrozenTraversal();
+        benchEntityLists();
+        benchHashing();
+        benchDeepCopies();
+
+        NbtObject chunk = chunk();
+        for (NbtFormat format : NbtFormat.values()) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            NbtIO.write("", chunk, format, baos);
+            final byte[] data = baos.toByteArray();
+            final ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+            direct.put(data).flip();
+
+            System.out.println(format + " (" + data.length + " bytes)");
+            bench("read(InputStream)", () -> sink = NbtIO.read(format, new ByteArrayInputStream(data)));
+            bench("read(byte[])", () -> sink = NbtIO.read(format, data));
+            bench("read(ByteBuffer) [direct]", () -> sink = NbtIO.read(format, direct));
+            bench("read(byte[]) + 2 lookups", () -> sink = lookups(NbtIO.read(format, data)));
+            bench("readLazy(byte[]) + 2 lookups", () -> sink = lookups(NbtIO.readLazy(format, data)));
+            bench("NbtProjection.read(byte[]) [2 paths]", () -> sink = POSITION.read(format, data));
+            bench("NbtProjection.read(byte[]) [Sections[*].Y]", () -> sink = SECTION_YS.read(format, data));
+            bench("accept(byte[]) [count ints]", () -> {
+                IntCounter counter = new IntCounter();
+                NbtIO.accept(format, data, counter);
+                sink = counter.count;
+            });
+            final NbtPool pool = new NbtPool(format);
+            bench("accept(pooled reader) [count ints]", () -> {
+                IntCounter counter = new IntCounter();
+                try (NbtReader reader = pool.reader(data)) {
+                    NbtIO.accept(reader, counter);
+                }
+                sink = counter.count;
+            });
+
+            bench("write(ByteArrayOutputStream)", () -> {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                NbtIO.write("", chunk, format, out);
+                sink = out;
+            });
+            final ByteBufferOutputStream reused = new ByteBufferOutputStream(ByteBuffer.allocateDirect(64 * 1024));
+            bench("write(ByteBufferOutputStream) [reused, direct]", () -> {
+                reused.reset();
+                NbtIO.write("", chunk, format, reused);
+                sink = reused.toByteBuffer();
+            });
+            bench("sizeOf(...)", () -> sink = NbtIO.sizeOf("", chunk, format));
+
+            Path file = Files.createTempFile("nibblet-bench", ".nbt");
+            try {
+                Files.write(file, data);
+                bench("read(InputStream) [raw file]", () -> {
+                    try (InputStream in = Files.newInputStream(file)) {
+                        sink = NbtIO.read(format, in);
+                    }
+                });
+                bench("read(InputStream) [buffered file]", () -> {
+                    try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+                        sink = NbtIO.read(format, in);
+                    }
+                });
+                bench("read(Path) [mapped file]", () -> sink = NbtIO.read(format, file));
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+}
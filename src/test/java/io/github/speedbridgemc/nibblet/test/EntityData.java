@@ -0,0 +1,70 @@
+package io.github.speedbridgemc.nibblet.test;
+
+import io.github.speedbridgemc.nibblet.codec.NbtName;
+import io.github.speedbridgemc.nibblet.codec.NbtSerializable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * A mob with an inventory, roughly shaped like Minecraft's entity data. Its codec is generated by nibblet-processor.
+ */
+@NbtSerializable
+public final class EntityData {
+    @NbtName("id")
+    public String id;
+    @NbtName("Pos")
+    public List<Double> pos = new ArrayList<>();
+    @NbtName("Rotation")
+    public List<Float> rotation = new ArrayList<>();
+    @NbtName("Air")
+    public short air = 300;
+    @NbtName("OnGround")
+    public boolean onGround;
+    @NbtName("UUID")
+    public int[] uuid;
+    @NbtName("CustomName")
+    public Optional<String> customName = Optional.empty();
+    @NbtName("PortalCooldown")
+    public OptionalInt portalCooldown = OptionalInt.empty();
+    @NbtName("Inventory")
+    public List<Item> inventory = new ArrayList<>();
+    @NbtName("Attributes")
+    public Map<String, Double> attributes = new LinkedHashMap<>();
+    @NbtName("Health")
+    private float health = 20;
+    // not serialized
+    public transient int ticksSinceSave;
+
+    public float getHealth() {
+        return health;
+    }
+
+    public void setHealth(float health) {
+        this.health = health;
+    }
+
+    @NbtSerializable
+    public static final class Item {
+        @NbtName("id")
+        public String id;
+        @NbtName("Count")
+        public byte count;
+        @NbtName("Slot")
+        public byte slot;
+        @NbtName("tag")
+        public Tag tag;
+    }
+
+    @NbtSerializable
+    public static final class Tag {
+        @NbtName("Damage")
+        public int damage;
+        @NbtName("Enchantments")
+        public List<Map<String, String>> enchantments;
+    }
+}
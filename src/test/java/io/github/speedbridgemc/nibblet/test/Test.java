@@ -1,14 +1,14 @@
 package io.github.speedbridgemc.nibblet.test;
 
 import io.github.speedbridgemc.nibblet.*;
+import io.github.speedbridgemc.nibblet.stream.NbtReader;
 import io.github.speedbridgemc.nibblet.stream.NbtWriter;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -163,6 +163,26 @@ public final class Test {
             e.printStackTrace();
         }
 
+        ByteArrayOutputStream backToBack = new ByteArrayOutputStream();
+        try {
+            for (int i = 0; i < 3; i++)
+                backToBack.write(NbtIO.write("root_" + i, NbtObject.builder().putInt("index", i).build(), NbtFormat.JAVA));
+        } catch (IOException e) {
+            System.err.println("Failed to write back-to-back structures!");
+            e.printStackTrace();
+        }
+        readBackToBack(new ByteArrayInputStream(backToBack.toByteArray()), "a stream");
+        // InputStream.read may return less than was asked for - this one only ever returns a single byte
+        readBackToBack(new FilterInputStream(new ByteArrayInputStream(backToBack.toByteArray())) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        }, "a stream that reads one byte at a time");
+
+        checkCopies();
+        checkMismatchedEntries();
+
         // get bigtest.nbt from https://raw.github.com/Dav1dde/nbd/master/test/bigtest.nbt
         Path pathBig = Paths.get(".", "bigtest.nbt").toAbsolutePath().normalize();
         try (InputStream inCompressed = Files.newInputStream(pathBig);
@@ -175,4 +195,137 @@ public final class Test {
             e.printStackTrace();
         }
     }
+
+    private static NbtObject copySample() {
+        return NbtObject.builder()
+                .put("nested", NbtObject.builder()
+                        .putString("hello", "world")
+                        .putIntArray("ints", 1, 2, 3)
+                        .build())
+                .put("list", NbtList.builder()
+                        .add(NbtObject.builder().putInt("index", 0).build())
+                        .add(NbtObject.builder().putInt("index", 1).build())
+                        .build())
+                .putLongArray("longs", 4, 5, 6)
+                .build();
+    }
+
+    // changes every part of a tree made by copySample()
+    private static void mutateSample(NbtObject root) {
+        NbtObject nested = (NbtObject) root.get("nested");
+        nested.putString("hello", "changed");
+        ((NbtIntArray) nested.get("ints")).set(0, 9);
+        ((NbtObject) ((NbtList) root.get("list")).get(1)).putInt("index", 9);
+        ((NbtList) root.get("list")).add(NbtObject.create());
+        ((NbtLongArray) root.get("longs")).add(7);
+        root.putInt("added", 1);
+    }
+
+    private static void checkUnchanged(NbtObject root, byte[] bytes, int hashCode, String description) throws IOException {
+        if (!Arrays.equals(NbtIO.write("root", root, NbtFormat.JAVA), bytes) || root.hashCode() != hashCode)
+            System.err.println(description + " changed!");
+    }
+
+    private static void checkCopies() {
+        System.out.println("Checking deep copies:");
+        try {
+            // deep copies of frozen trees share its subtrees until they're changed
+            NbtObject frozen = copySample().freeze();
+            byte[] frozenBytes = NbtIO.write("root", frozen, NbtFormat.JAVA);
+            int frozenHash = frozen.hashCode();
+            NbtObject frozenCopy = frozen.deepCopy();
+            mutateSample(frozenCopy);
+            checkUnchanged(frozen, frozenBytes, frozenHash, "Frozen tree, after changing its deep copy,");
+
+            // same for trees that are only partly frozen, in both directions
+            NbtObject mixed = NbtObject.builder()
+                    .put("frozen", copySample().freeze())
+                    .put("mutable", copySample())
+                    .build();
+            byte[] mixedBytes = NbtIO.write("root", mixed, NbtFormat.JAVA);
+            int mixedHash = mixed.hashCode();
+            NbtObject mixedCopy = mixed.deepCopy();
+            mutateSample((NbtObject) mixedCopy.get("frozen"));
+            mutateSample((NbtObject) mixedCopy.get("mutable"));
+            checkUnchanged(mixed, mixedBytes, mixedHash, "Mixed tree, after changing its deep copy,");
+            mixedCopy = mixed.deepCopy();
+            byte[] mixedCopyBytes = NbtIO.write("root", mixedCopy, NbtFormat.JAVA);
+            int mixedCopyHash = mixedCopy.hashCode();
+            mutateSample((NbtObject) mixed.get("mutable"));
+            mixed.put("frozen", NbtObject.create());
+            checkUnchanged(mixedCopy, mixedCopyBytes, mixedCopyHash, "Deep copy of mixed tree, after changing the tree,");
+
+            // frozen elements put into a deep copy are kept as they are
+            NbtObject frozenChild = NbtObject.builder().putInt("child", 1).build().freeze();
+            NbtObject copy = frozen.deepCopy();
+            copy.put("child", frozenChild);
+            NbtList copyList = (NbtList) copy.get("list");
+            copyList.add(frozenChild);
+            if (copy.get("child") != frozenChild || copyList.get(copyList.size() - 1) != frozenChild)
+                System.err.println("Frozen element put into a deep copy was copied!");
+
+            // shallow copies share their children, frozen or not
+            if (frozen.copy().get("nested") != frozen.get("nested") || copy.copy().get("nested") != copy.get("nested")
+                    || copyList.copy().get(0) != copyList.get(0))
+                System.err.println("Shallow copy doesn't share its children!");
+            System.out.println("Done");
+        } catch (IOException | UnsupportedOperationException e) {
+            // a deep copy that still holds frozen subtrees of its source can't be changed
+            System.err.println("Failed to check deep copies");
+            e.printStackTrace();
+        }
+        System.out.println();
+    }
+
+    private static void checkMismatchedEntries() {
+        System.out.println("Reading entries of unexpected types with a generated codec:");
+        try {
+            // Air is a short, Pos a list of doubles and Attributes a map of doubles - these are all skipped, leaving the defaults
+            byte[] data = NbtIO.write("", NbtObject.builder()
+                    .putString("id", "pig")
+                    .putInt("Air", 100)
+                    .put("Pos", NbtList.ofInts(1, 2, 3))
+                    .put("Attributes", NbtObject.builder()
+                            .putDouble("generic.max_health", 10)
+                            .putString("generic.movement_speed", "fast")
+                            .build())
+                    .putFloat("Health", 5)
+                    .build(), NbtFormat.JAVA);
+            EntityData entity = EntityDataNbtCodec.INSTANCE.read(NbtFormat.JAVA, data);
+            System.out.println("id = " + entity.id + ", Air = " + entity.air + ", Pos = " + entity.pos
+                    + ", Attributes = " + entity.attributes + ", Health = " + entity.getHealth());
+            if (!"pig".equals(entity.id) || entity.air != 300 || !entity.pos.isEmpty() || entity.getHealth() != 5
+                    || entity.attributes.size() != 1 || entity.attributes.get("generic.max_health") != 10)
+                System.err.println("Entries of unexpected types weren't skipped!");
+        } catch (IOException e) {
+            System.err.println("Failed to read entries of unexpected types");
+            e.printStackTrace();
+        }
+        System.out.println();
+    }
+
+    private static void readBackToBack(InputStream in, String description) {
+        System.out.println("Reading back-to-back structures from " + description + ":");
+        try (NbtReader reader = new NbtReader(NbtFormat.JAVA, in)) {
+            for (int i = 0; i < 3; i++) {
+                // resetting to the same stream keeps whatever the reader buffered past the previous structure
+                reader.reset(in);
+                reader.beginObject();
+                String rootName = reader.nextName();
+                reader.nextType();
+                String name = reader.nextName();
+                int index = reader.nextInt();
+                reader.endObject();
+                System.out.println(rootName + ": " + name + " = " + index);
+                if (!rootName.equals("root_" + i) || index != i)
+                    System.err.println("Expected root_" + i + " with index " + i + ", got " + rootName + " with index " + index);
+            }
+            if (in.read() >= 0)
+                System.err.println("Stream wasn't read to the end!");
+        } catch (IOException e) {
+            System.err.println("Failed to read back-to-back structures from " + description);
+            e.printStackTrace();
+        }
+        System.out.println();
+    }
 }